@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+/**
+ * A {@code BlockingSubscription} lets a producer running on its own thread publish items to a {@link BugStream.Subscriber}
+ * one at a time. {@link #emit(Object)} waits until the subscriber has requested another item, so a producer reading
+ * results from the network stops reading while the subscriber is behind.
+ * <p>
+ * Only one thread may call {@link #emit(Object)}, {@link #complete()} and {@link #fail(Throwable)}; the subscriber may
+ * request and cancel from any thread.
+ * 
+ * @author Tom
+ *
+ * @param <T> The type of item published
+ */
+public class BlockingSubscription<T> implements BugStream.Subscription {
+	
+	private final BugStream.Subscriber<? super T> subscriber;
+	
+	private long demand = 0;
+	
+	private boolean cancelled = false;
+	
+	private boolean terminated = false;
+	
+	/**
+	 * An error to report in place of completion, such as an invalid request.
+	 */
+	private Throwable error;
+	
+	/**
+	 * Creates a new {@link BlockingSubscription}. The caller must pass it to
+	 * {@link BugStream.Subscriber#onSubscribe(BugStream.Subscription)} before emitting any item.
+	 * @param subscriber The {@link BugStream.Subscriber} receiving the items.
+	 */
+	public BlockingSubscription(BugStream.Subscriber<? super T> subscriber) {
+		this.subscriber = subscriber;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void request(long n) {
+		if(n <= 0) {
+			if(error == null) {
+				error = new IllegalArgumentException("Requested " + n + " items; requests must be positive");
+			}
+			cancelled = true;
+		} else {
+			demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void cancel() {
+		cancelled = true;
+		notifyAll();
+	}
+	
+	/**
+	 * @return True if the subscriber no longer wants items, because it cancelled or made an invalid request.
+	 */
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * Waits until the subscriber has requested an item, then hands it the given one.
+	 * @param item The next item.
+	 * @return True if the item was delivered, or false if the subscription has been cancelled, in which case the
+	 * producer should stop and call {@link #complete()}.
+	 */
+	public boolean emit(T item) {
+		synchronized(this) {
+			try {
+				while(demand == 0 && !cancelled) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				error = e;
+				cancelled = true;
+			}
+			if(cancelled) {
+				return false;
+			}
+			demand--;
+		}
+		subscriber.onNext(item);
+		return true;
+	}
+	
+	/**
+	 * Signals that every item has been emitted. Does nothing if the subscription was cancelled, or an earlier
+	 * error is reported instead.
+	 */
+	public void complete() {
+		terminate(null);
+	}
+	
+	/**
+	 * Signals that the producer failed. Does nothing if the subscription was cancelled.
+	 * @param throwable The reason for the failure.
+	 */
+	public void fail(Throwable throwable) {
+		terminate(throwable);
+	}
+	
+	private void terminate(Throwable throwable) {
+		Throwable reported;
+		boolean silent;
+		synchronized(this) {
+			if(terminated) {
+				return;
+			}
+			terminated = true;
+			reported = error != null ? error : throwable;
+			silent = cancelled && error == null;
+			cancelled = true;
+		}
+		if(silent) {
+			return;
+		}
+		if(reported != null) {
+			subscriber.onError(reported);
+		} else {
+			subscriber.onComplete();
+		}
+	}
+
+}
@@ -15,10 +15,18 @@
  */
 package com.j2bugzilla.base;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.j2bugzilla.base.Flag.Status;
@@ -43,36 +51,284 @@ public class Bug {
 	private static String[] requiredKeys = {"product", "component", "summary", "version"};
 
 	/**
-	 * HashMap representing fields for each Bug. The Value for each Key is a <code>String</code>
-	 * <em>except</em> for the CC: field, which is an array of <code>Strings</code>. 
+	 * The names of the fields kept in typed fields rather than in {@link #otherFields}. The field at index
+	 * {@code i} is marked present by bit {@code 1 << i} of {@link #present}.
 	 */
-	private Map<String, Object> internalState;
+	private static final String[] TYPED_FIELDS = {"id", "alias", "summary", "product", "component", "version",
+		"status", "resolution", "priority", "severity", "op_sys", "platform", "assigned_to", "last_change_time"};
+	
+	private static final int ID = 1;
+	private static final int ALIAS = 1 << 1;
+	private static final int SUMMARY = 1 << 2;
+	private static final int PRODUCT = 1 << 3;
+	private static final int COMPONENT = 1 << 4;
+	private static final int VERSION = 1 << 5;
+	private static final int STATUS = 1 << 6;
+	private static final int RESOLUTION = 1 << 7;
+	private static final int PRIORITY = 1 << 8;
+	private static final int SEVERITY = 1 << 9;
+	private static final int OP_SYS = 1 << 10;
+	private static final int PLATFORM = 1 << 11;
+	private static final int ASSIGNED_TO = 1 << 12;
+	private static final int LAST_CHANGE_TIME = 1 << 13;
+	
+	/**
+	 * The fields which take one of a few values across a whole installation, and so share their values through
+	 * the {@link ValuePool#getDefault() default pool}.
+	 */
+	private static final int SHARED = PRODUCT | COMPONENT | VERSION | STATUS | RESOLUTION | PRIORITY | SEVERITY
+			| OP_SYS | PLATFORM;
+	
+	private static final Map<String, Integer> TYPED_BITS = new HashMap<String, Integer>();
+	
+	static {
+		for(int i = 0; i < TYPED_FIELDS.length; i++) {
+			TYPED_BITS.put(TYPED_FIELDS[i], 1 << i);
+		}
+	}
+	
+	/**
+	 * Stands for a null {@link #lastChangeTime}.
+	 */
+	private static final long NO_TIME = Long.MIN_VALUE;
+	
+	/**
+	 * Bits marking which typed fields hold a value, which may be null. A field whose bit is clear may instead be
+	 * in {@link #otherFields}, if it was given a value of an unexpected type.
+	 */
+	private int present;
+	
+	/**
+	 * Bits marking which typed fields were changed through a setter since this {@link Bug} was created or last
+	 * {@link #clearChangedFields() marked unchanged}. Every setter writes a typed field.
+	 */
+	private int changed;
+	
+	private int id;
+	private String alias;
+	private String summary;
+	private String product;
+	private String component;
+	private String version;
+	private String status;
+	private String resolution;
+	private String priority;
+	private String severity;
+	private String opSys;
+	private String platform;
+	private String assignedTo;
+	private long lastChangeTime;
+	
+	/**
+	 * The fields without a typed field, such as the CC list, flags and custom fields, or null if there are none.
+	 */
+	private Map<String, Object> otherFields;
+	
+	/**
+	 * The fields which were fetched from the installation for this {@link Bug}.
+	 */
+	private final FieldProjection projection;
+	
+	/**
+	 * The {@link Flag Flags} of this {@link Bug}, parsed on first use. Flags cannot be changed on a {@code Bug},
+	 * so they never need parsing again. Threads racing to parse them each build an equal set, and any may win.
+	 */
+	private volatile FlagSet flags;
 	
 	/**
 	 * Constructor for creating a new {@link Bug} to submit to an installation.
 	 * The constructor ensures any required values in {@link #requiredKeys} are set, and throws
-	 * an {@link IllegalStateException} if they are null.
+	 * an {@link IllegalStateException} if they are null. Every field given counts as
+	 * {@link #getChangedFields() changed}, since the installation has not seen it yet.
 	 * 
 	 * @param state A <code>Map</code> pairing required keys to values
 	 */
 	Bug(Map<String, Object> state) {
-		checkRequiredFields(state);
-		internalState = state;
+		this(state, FieldProjection.ALL);
+		changed = present;
+	}
+	
+	/**
+	 * Constructor for a {@link Bug} fetched with only some of its fields. Required values are
+	 * only checked for if they were fetched, and accessors for fields which were not fetched
+	 * throw an {@link IllegalStateException}.
+	 * 
+	 * @param state A <code>Map</code> pairing keys to values
+	 * @param projection The {@link FieldProjection} the bug was fetched with
+	 */
+	Bug(Map<String, Object> state, FieldProjection projection) {
+		this(state, projection, false);
+	}
+	
+	/**
+	 * Constructor for a {@link Bug} which may take over the {@code Map} it is built from. When adopting, the typed
+	 * fields are removed from the map and the rest of it becomes this bug's store for the other fields, so no new
+	 * map is allocated; the caller must not use the map afterwards. Otherwise the map is only read.
+	 * 
+	 * @param state A <code>Map</code> pairing keys to values
+	 * @param projection The {@link FieldProjection} the bug was fetched with
+	 * @param adopt True to take over {@code state}, which must then be modifiable
+	 */
+	Bug(Map<String, Object> state, FieldProjection projection, boolean adopt) {
+		checkRequiredFields(state, projection);
+		this.projection = projection;
+		if(adopt) {
+			for(Iterator<Map.Entry<String, Object>> entries = state.entrySet().iterator(); entries.hasNext();) {
+				Map.Entry<String, Object> entry = entries.next();
+				Integer bit = TYPED_BITS.get(entry.getKey());
+				if(bit != null && setTyped(bit, entry.getValue())) {
+					present |= bit;
+					entries.remove();
+				}
+			}
+			otherFields = state.isEmpty() ? null : state;
+		} else {
+			for(Map.Entry<String, Object> entry : state.entrySet()) {
+				Integer bit = TYPED_BITS.get(entry.getKey());
+				if(bit != null && setTyped(bit, entry.getValue())) {
+					present |= bit;
+				} else {
+					if(otherFields == null) {
+						otherFields = new HashMap<String, Object>(state.size() * 4 / 3 + 1);
+					}
+					otherFields.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
 	}
 
 	/**
 	 * Internal method for determining whether a given <code>HashMap</code> is a valid
 	 * representation of a {@link Bug} or not.
 	 * @param state a collection of String keys and String values in a <code>HashMap</code>
+	 * @param projection the fields which are expected to be present
 	 * @throws IllegalStateException If a required key-value pair is null
 	 */
-	private static void checkRequiredFields(Map<String, Object> state) {
+	private static void checkRequiredFields(Map<String, Object> state, FieldProjection projection) {
 		for(String str : requiredKeys) {
-			if(!state.containsKey(str)) {
+			if(!state.containsKey(str) && projection.isFetched(str)) {
 				throw new IllegalStateException("Missing key/value pair: " + str);
 			}
 		}
 	}
+	
+	/**
+	 * @return The {@link FieldProjection} this {@link Bug} was fetched with.
+	 */
+	FieldProjection getProjection() {
+		return projection;
+	}
+	
+	/**
+	 * Returns the value of a field, failing if the field was left out when this {@link Bug} was fetched.
+	 */
+	private Object get(String key) {
+		Integer bit = TYPED_BITS.get(key);
+		if(bit != null && (present & bit) != 0) {
+			return getTyped(bit);
+		}
+		if(otherFields != null && otherFields.containsKey(key)) {
+			return otherFields.get(key);
+		}
+		if(!projection.isFetched(key)) {
+			throw new IllegalStateException("The field '" + key + "' was not fetched for this bug");
+		}
+		return null;
+	}
+	
+	/**
+	 * Sets the value of a field, in its typed field if it has one and the value is of the expected type, and marks
+	 * it changed.
+	 */
+	private void put(String key, Object value) {
+		Integer bit = TYPED_BITS.get(key);
+		if(bit != null) {
+			changed |= bit;
+		}
+		if(bit != null && setTyped(bit, value)) {
+			present |= bit;
+			if(otherFields != null) {
+				otherFields.remove(key);
+			}
+		} else {
+			if(bit != null) {
+				remove(key);
+			}
+			if(otherFields == null) {
+				otherFields = new HashMap<String, Object>();
+			}
+			otherFields.put(key, value);
+		}
+	}
+	
+	private void remove(String key) {
+		Integer bit = TYPED_BITS.get(key);
+		if(bit != null && (present & bit) != 0) {
+			setTyped(bit, null);
+			present &= ~bit;
+		}
+		if(otherFields != null) {
+			otherFields.remove(key);
+		}
+	}
+	
+	/**
+	 * Stores a value in a typed field, returning false if it is not of the field's type.
+	 */
+	private boolean setTyped(int bit, Object value) {
+		if(bit == ID) {
+			if(!(value instanceof Integer)) {
+				return false;
+			}
+			id = (Integer)value;
+			return true;
+		} else if(bit == LAST_CHANGE_TIME) {
+			if(value != null && !(value instanceof Date)) {
+				return false;
+			}
+			lastChangeTime = value == null ? NO_TIME : ((Date)value).getTime();
+			return true;
+		} else if(value != null && !(value instanceof String)) {
+			return false;
+		}
+		String string = (bit & SHARED) != 0 ? ValuePool.getDefault().intern((String)value) : (String)value;
+		switch(bit) {
+		case ALIAS: alias = string; break;
+		case SUMMARY: summary = string; break;
+		case PRODUCT: product = string; break;
+		case COMPONENT: component = string; break;
+		case VERSION: version = string; break;
+		case STATUS: status = string; break;
+		case RESOLUTION: resolution = string; break;
+		case PRIORITY: priority = string; break;
+		case SEVERITY: severity = string; break;
+		case OP_SYS: opSys = string; break;
+		case PLATFORM: platform = string; break;
+		case ASSIGNED_TO: assignedTo = string; break;
+		default: throw new IllegalArgumentException("Unknown field " + bit);
+		}
+		return true;
+	}
+	
+	private Object getTyped(int bit) {
+		switch(bit) {
+		case ID: return id;
+		case ALIAS: return alias;
+		case SUMMARY: return summary;
+		case PRODUCT: return product;
+		case COMPONENT: return component;
+		case VERSION: return version;
+		case STATUS: return status;
+		case RESOLUTION: return resolution;
+		case PRIORITY: return priority;
+		case SEVERITY: return severity;
+		case OP_SYS: return opSys;
+		case PLATFORM: return platform;
+		case ASSIGNED_TO: return assignedTo;
+		case LAST_CHANGE_TIME: return lastChangeTime == NO_TIME ? null : new Date(lastChangeTime);
+		default: throw new IllegalArgumentException("Unknown field " + bit);
+		}
+	}
 
 	/**
 	 * Returns how highly this bug is ranked. Since this field can be edited between installations, you may wish to
@@ -80,7 +336,7 @@ public class Bug {
 	 * @return a {@code String} describing the relative importance of this bug
 	 */
 	public String getPriority() {
-		return (String)internalState.get("priority");
+		return (present & PRIORITY) != 0 ? priority : (String)get("priority");
 	}
 
 	/**
@@ -89,7 +345,15 @@ public class Bug {
 	 * @return a {@code String} describing the relative severity of this bug
 	 */
 	public String getSeverity() {
-		return (String)internalState.get("severity");
+		return (present & SEVERITY) != 0 ? severity : (String)get("severity");
+	}
+	
+	/**
+	 * Returns the login of the user this bug is assigned to.
+	 * @return the login, usually an email address, of the assignee
+	 */
+	public String getAssignedTo() {
+		return (present & ASSIGNED_TO) != 0 ? assignedTo : (String)get("assigned_to");
 	}
 
 	/**
@@ -98,7 +362,7 @@ public class Bug {
 	 * @return integer ID
 	 */
 	public int getID() {
-		return (Integer)internalState.get("id");
+		return (present & ID) != 0 ? id : (Integer)get("id");
 	}
 
 	/**
@@ -106,7 +370,7 @@ public class Bug {
 	 * @return A {@code String} representing the unique alias for this bug.
 	 */
 	public String getAlias() {
-		return (String)internalState.get("alias");
+		return (present & ALIAS) != 0 ? alias : (String)get("alias");
 	}
 
 	/**
@@ -114,7 +378,7 @@ public class Bug {
 	 * @param alias A {@code String} representing a unique alias for this bug.
 	 */
 	public void setAlias(String alias) {
-		internalState.put("alias", alias);
+		put("alias", alias);
 	}
 
 	/**
@@ -122,7 +386,7 @@ public class Bug {
 	 * @return A {@code String} representing the summary entered for this {@link Bug}.
 	 */
 	public String getSummary() {
-		return (String)internalState.get("summary");
+		return (present & SUMMARY) != 0 ? summary : (String)get("summary");
 	}
 
 	/**
@@ -130,7 +394,7 @@ public class Bug {
 	 * @param summary A {@code String} representing the summary describing this bug.
 	 */
 	public void setSummary(String summary) {
-		internalState.put("summary", summary);
+		put("summary", summary);
 	}
 
 	/**
@@ -138,7 +402,7 @@ public class Bug {
 	 * @return the Product category this {@link Bug} is filed under.
 	 */
 	public String getProduct() {
-		return (String)internalState.get("product");
+		return (present & PRODUCT) != 0 ? product : (String)get("product");
 	}
 
 	/**
@@ -147,7 +411,7 @@ public class Bug {
 	 * @param product A {@code String} representing the product name.
 	 */
 	public void setProduct(String product) {
-		internalState.put("product", product);
+		put("product", product);
 	}
 
 	/**
@@ -155,7 +419,7 @@ public class Bug {
 	 * @return the component of the {@link Bug}'s parent Product
 	 */
 	public String getComponent() {
-		return (String)internalState.get("component");
+		return (present & COMPONENT) != 0 ? component : (String)get("component");
 	}
 
 	/**
@@ -165,7 +429,7 @@ public class Bug {
 	 * @param component A {@code String} representing the component name.
 	 */
 	public void setComponent(String component) {
-		internalState.put("component", component);
+		put("component", component);
 	}
 
 	/**
@@ -173,7 +437,7 @@ public class Bug {
 	 * @return the version associated with this {@link Bug}
 	 */
 	public String getVersion() {
-		return (String)internalState.get("version");
+		return (present & VERSION) != 0 ? version : (String)get("version");
 	}
 
 	/**
@@ -183,7 +447,7 @@ public class Bug {
 	 * @param version A {@code String} describing the version number of the product affected by this bug.
 	 */
 	public void setVersion(String version) {
-		internalState.put("version", version);
+		put("version", version);
 	}
 
 	/**
@@ -191,7 +455,7 @@ public class Bug {
 	 * @return A {@code String} representing the status of a {@link Bug}.
 	 */
 	public String getStatus() {
-		return (String) internalState.get("status");
+		return (present & STATUS) != 0 ? status : (String)get("status");
 	}
 
 	/**
@@ -206,7 +470,7 @@ public class Bug {
 	 * @see {@link #setResolution(String)}
 	 */
 	public void setStatus(String status) {
-		internalState.put("status", status);
+		put("status", status);
 	}
 
 	/**
@@ -215,7 +479,7 @@ public class Bug {
 	 * @see {@link @link com.j2bugzilla.rpc.GetLegalValues GetLegalValues} to retrieve a list of the defined resolutions for a specific installation.
 	 */
 	public String getResolution() {
-		return (String) internalState.get("resolution");
+		return (present & RESOLUTION) != 0 ? resolution : (String)get("resolution");
 	}
 
 	/**
@@ -229,7 +493,7 @@ public class Bug {
 	 * @see {@link #clearResolution()}
 	 */
 	public void setResolution(String resolution) {
-		internalState.put("resolution", resolution);
+		put("resolution", resolution);
 	}
 
 	/**
@@ -240,7 +504,8 @@ public class Bug {
 	 * a set resolution.
 	 */
 	public void clearResolution() {
-		internalState.remove("resolution");
+		remove("resolution");
+		changed |= RESOLUTION;
 	}
 
 	/**
@@ -248,7 +513,7 @@ public class Bug {
 	 * @return A {@code String} representing the name of the affected operating system.
 	 */
 	public String getOperatingSystem() {
-		return (String) internalState.get("op_sys");
+		return (present & OP_SYS) != 0 ? opSys : (String)get("op_sys");
 	}
 
 	/**
@@ -257,7 +522,7 @@ public class Bug {
 	 * @param os A {@code String} representing the operating system name.
 	 */
 	public void setOperatingSystem(String os) {
-		internalState.put("op_sys", os);
+		put("op_sys", os);
 	}
 
 	/**
@@ -266,7 +531,7 @@ public class Bug {
 	 * @return A {@code String} representing the name of the affected platform.
 	 */
 	public String getPlatform() {
-		return (String) internalState.get("platform");
+		return (present & PLATFORM) != 0 ? platform : (String)get("platform");
 	}
 
 	/**
@@ -275,7 +540,18 @@ public class Bug {
 	 * @param platform A {@code String} representing the platform name.
 	 */
 	public void setPlatform(String platform) {
-		internalState.put("platform", platform);
+		put("platform", platform);
+	}
+
+	/**
+	 * Returns when this {@link Bug} was last changed on the installation.
+	 * @return The time of the last change, or null if the bug has not been submitted.
+	 */
+	public Date getLastChangeTime() {
+		if((present & LAST_CHANGE_TIME) == 0) {
+			return (Date)get("last_change_time");
+		}
+		return lastChangeTime == NO_TIME ? null : new Date(lastChangeTime);
 	}
 
 	/**
@@ -283,42 +559,264 @@ public class Bug {
 	 * @return A collection of {@code Flags} recorded by the Bugzilla installation against this {@code Bug}.
 	 */
 	public Set<Flag> getFlags() {
-		Object[] flagObjs = (Object[])internalState.get("flags");
-		Set<Flag> flags = new HashSet<Flag>();
-		for(Object obj : flagObjs) {
-			@SuppressWarnings("unchecked")
-			Map<String, Object> flag = (Map<String, Object>)obj;
-			String name = (String)flag.get("name");
-			String status = (String)flag.get("status");
-			Status s;
-			if(status.equals(" ")) {
-				s = Status.UNSET;
-			} else if(status.equals("?")) {
-				s = Status.UNKNOWN;
-			} else if(status.equals("+")) {
-				s = Status.POSITIVE;
-			} else if(status.equals("-")) {
-				s = Status.NEGATIVE;
-			} else {
-				throw new IllegalStateException("Unknown flag state");
+		FlagSet flags = this.flags;
+		if(flags == null) {
+			flags = FlagSet.parse((Object[])get("flags"));
+			this.flags = flags;
+		}
+		return flags;
+	}
+	
+	/**
+	 * Looks up one of this {@link Bug Bug's} {@link Flag Flags} by name, without walking all of them.
+	 * @param name The name of a flag.
+	 * @return The {@code Flag} with the given name, or null if the bug has none. If several flags share the name,
+	 * for example because they were requested of different people, the first one Bugzilla listed is returned.
+	 */
+	public Flag getFlag(String name) {
+		return ((FlagSet)getFlags()).get(name);
+	}
+	
+	/**
+	 * Returns the fields changed through the {@code setXxx()} methods or {@link #clearResolution()} since this
+	 * {@link Bug} was created, or since {@link #clearChangedFields()} was last called. A field counts as changed
+	 * even if it was set to the value it already had. A bug built by {@link BugFactory#createBug(Map)} or
+	 * {@link BugFactory#createBug()} starts with all of its fields changed; one fetched from the installation starts
+	 * with none.
+	 * @return A read-only {@code Set} of the keys of the changed fields, as used in {@link #getParameterMap()}.
+	 */
+	public Set<String> getChangedFields() {
+		Set<String> fields = new LinkedHashSet<String>();
+		for(int i = 0; i < TYPED_FIELDS.length; i++) {
+			if((changed & (1 << i)) != 0) {
+				fields.add(TYPED_FIELDS[i]);
+			}
+		}
+		return Collections.unmodifiableSet(fields);
+	}
+	
+	/**
+	 * Marks every field of this {@link Bug} unchanged, such as once its changes have been
+	 * {@link com.j2bugzilla.rpc.UpdateBug sent to the installation}.
+	 */
+	public void clearChangedFields() {
+		changed = 0;
+	}
+	
+	/**
+	 * Marks some fields of this {@link Bug} unchanged, leaving any other changes in place.
+	 * @param fields The keys of the fields, as returned by {@link #getChangedFields()}.
+	 */
+	public void clearChangedFields(Collection<String> fields) {
+		for(String field : fields) {
+			Integer bit = TYPED_BITS.get(field);
+			if(bit != null) {
+				changed &= ~bit;
 			}
-			flags.add(new Flag(name, s));
 		}
-		return Collections.unmodifiableSet(flags);
 	}
 	
 	/**
 	 * Used when a representation of this {@link Bug Bug's} internals must be passed via
 	 * XML-RPC for a remote method. Regular users of this API should prefer the normal
 	 * {@code getXxx()} methods.
-	 * @return A read-only {@code Map} of key-value pairs corresponding to this {@code Bug's} properties.
+	 * @return A read-only {@code Map} view of key-value pairs corresponding to this {@code Bug's} properties.
+	 * It is not a copy, so it reflects later calls to the {@code setXxx()} methods.
 	 */
 	public Map<Object, Object> getParameterMap() {
-		Map<Object, Object> params = new HashMap<Object, Object>();
-		for(String key : internalState.keySet()) {
-			params.put(key, internalState.get(key));
+		return new ParameterView();
+	}
+	
+	/**
+	 * A read-only view of the typed fields which are present followed by the other fields. The other fields never
+	 * hold a typed field which is present, so the two parts do not overlap.
+	 */
+	private final class ParameterView extends AbstractMap<Object, Object> {
+		
+		@Override
+		public Object get(Object key) {
+			Integer bit = TYPED_BITS.get(key);
+			if(bit != null && (present & bit) != 0) {
+				return getTyped(bit);
+			}
+			return otherFields == null ? null : otherFields.get(key);
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			Integer bit = TYPED_BITS.get(key);
+			if(bit != null && (present & bit) != 0) {
+				return true;
+			}
+			return otherFields != null && otherFields.containsKey(key);
+		}
+		
+		@Override
+		public int size() {
+			return Integer.bitCount(present) + (otherFields == null ? 0 : otherFields.size());
+		}
+
+		@Override
+		public Set<Map.Entry<Object, Object>> entrySet() {
+			return new AbstractSet<Map.Entry<Object, Object>>() {
+				@Override
+				public Iterator<Map.Entry<Object, Object>> iterator() {
+					return new Iterator<Map.Entry<Object, Object>>() {
+						private int typed = Integer.numberOfTrailingZeros(present);
+						
+						private final Iterator<Map.Entry<String, Object>> others = otherFields == null
+								? Collections.<Map.Entry<String, Object>>emptyIterator() : otherFields.entrySet().iterator();
+						
+						@Override
+						public boolean hasNext() {
+							return typed < TYPED_FIELDS.length || others.hasNext();
+						}
+
+						@Override
+						public Map.Entry<Object, Object> next() {
+							if(typed < TYPED_FIELDS.length) {
+								int index = typed;
+								//Skip to the next present typed field, if any
+								typed = Integer.numberOfTrailingZeros(present & (-1 << (index + 1)));
+								return new SimpleImmutableEntry<Object, Object>(TYPED_FIELDS[index], getTyped(1 << index));
+							}
+							Map.Entry<String, Object> other = others.next();
+							return new SimpleImmutableEntry<Object, Object>(other.getKey(), other.getValue());
+						}
+						
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException("Bug parameters are read-only");
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return ParameterView.this.size();
+				}
+			};
+		}
+	}
+	
+	/**
+	 * An immutable set of {@link Flag Flags}, kept in an array sorted by name so that a flag can be found by
+	 * binary search. Flags with the same name keep the order Bugzilla listed them in.
+	 */
+	private static final class FlagSet extends AbstractSet<Flag> {
+		
+		private static final FlagSet EMPTY = new FlagSet(new Flag[0]);
+		
+		private static final Comparator<Flag> BY_NAME = new Comparator<Flag>() {
+			@Override
+			public int compare(Flag a, Flag b) {
+				return a.getName().compareTo(b.getName());
+			}
+		};
+		
+		private final Flag[] flags;
+		
+		private FlagSet(Flag[] flags) {
+			this.flags = flags;
+		}
+		
+		/**
+		 * Builds a {@link FlagSet} from the {@code flags} field as Bugzilla returns it.
+		 */
+		private static FlagSet parse(Object[] raw) {
+			if(raw == null || raw.length == 0) {
+				return EMPTY;
+			}
+			Flag[] parsed = new Flag[raw.length];
+			for(int i = 0; i < raw.length; i++) {
+				@SuppressWarnings("unchecked")
+				Map<String, Object> flag = (Map<String, Object>)raw[i];
+				String name = (String)flag.get("name");
+				if(name == null) {
+					throw new IllegalStateException("Flag without a name");
+				}
+				parsed[i] = Flag.valueOf(name, Status.fromSymbol((String)flag.get("status")));
+			}
+			//A stable sort, so equal names stay in Bugzilla's order
+			Arrays.sort(parsed, BY_NAME);
+			int size = 0;
+			for(Flag flag : parsed) {
+				if(!containsIn(parsed, size, flag)) {
+					parsed[size++] = flag;
+				}
+			}
+			return new FlagSet(size == parsed.length ? parsed : Arrays.copyOf(parsed, size));
+		}
+		
+		/**
+		 * Returns whether the first {@code size} flags of a sorted array hold the given flag.
+		 */
+		private static boolean containsIn(Flag[] flags, int size, Flag flag) {
+			for(int i = first(flags, size, flag.getName()); i < size && flags[i].getName().equals(flag.getName()); i++) {
+				if(flags[i].equals(flag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Returns the index of the first flag with the given name in the first {@code size} flags of a sorted array,
+		 * or the index it would be inserted at.
+		 */
+		private static int first(Flag[] flags, int size, String name) {
+			int low = 0;
+			int high = size;
+			while(low < high) {
+				int middle = (low + high) >>> 1;
+				if(flags[middle].getName().compareTo(name) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+		
+		private Flag get(String name) {
+			int index = first(flags, flags.length, name);
+			return index < flags.length && flags[index].getName().equals(name) ? flags[index] : null;
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Flag && ((Flag)o).getName() != null && containsIn(flags, flags.length, (Flag)o);
+		}
+
+		@Override
+		public Iterator<Flag> iterator() {
+			return new Iterator<Flag>() {
+				private int next = 0;
+				
+				@Override
+				public boolean hasNext() {
+					return next < flags.length;
+				}
+
+				@Override
+				public Flag next() {
+					if(next == flags.length) {
+						throw new NoSuchElementException();
+					}
+					return flags[next++];
+				}
+				
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return flags.length;
 		}
-		return Collections.unmodifiableMap(params);
 	}
 	
 }
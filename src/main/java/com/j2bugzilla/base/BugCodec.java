@@ -0,0 +1,812 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary form of the model classes {@link Bug}, {@link HttpBug}, {@link Comment} and {@link Attachment},
+ * for snapshots on disk and for passing them between processes. It is far smaller and faster than Java
+ * serialization of their internal maps.
+ * 
+ * <p>Well-known field names are written as small numeric tags, integers as variable-length integers, and
+ * every short string is added to a dictionary the first time it is written, so that later copies of values such as
+ * statuses, products and components take one or two bytes. Each encoding starts with the codec version, and a
+ * decoder refuses versions newer than its own.</p>
+ * 
+ * <p>The static {@code encode} and {@code decode} methods handle one self-contained object. A {@link Writer} and
+ * {@link Reader} handle a stream of them sharing a single dictionary, which is much smaller for many objects.
+ * Writers and readers are not thread-safe.</p>
+ * 
+ * @author Tom
+ */
+public final class BugCodec {
+	
+	/**
+	 * The version of the encoding written by this codec.
+	 */
+	public static final int VERSION = 1;
+	
+	/**
+	 * The bytes "J2BC", which start a stream written by a {@link Writer}.
+	 */
+	private static final int MAGIC = 0x4A324243;
+	
+	private static final int BUG = 1;
+	private static final int HTTP_BUG = 2;
+	private static final int COMMENT = 3;
+	private static final int ATTACHMENT = 4;
+	
+	private static final int NULL = 0;
+	private static final int STRING = 1;
+	private static final int STRING_REF = 2;
+	private static final int LITERAL = 3;
+	private static final int INT = 4;
+	private static final int LONG = 5;
+	private static final int DOUBLE = 6;
+	private static final int TRUE = 7;
+	private static final int FALSE = 8;
+	private static final int DATE = 9;
+	private static final int ARRAY = 10;
+	private static final int MAP = 11;
+	private static final int BYTES = 12;
+	
+	private static final int PROJECTION_ALL = 0;
+	private static final int PROJECTION_INCLUDE = 1;
+	private static final int PROJECTION_EXCLUDE = 2;
+	
+	/**
+	 * Field names written as their index plus one. New names may only be added at the end, so that older
+	 * encodings keep their meaning.
+	 */
+	private static final String[] FIELD_TAGS = {"id", "alias", "summary", "product", "component", "version",
+		"status", "resolution", "priority", "severity", "op_sys", "platform", "assigned_to", "creator", "qa_contact",
+		"cc", "creation_time", "last_change_time", "flags", "keywords", "url", "whiteboard", "target_milestone",
+		"depends_on", "blocks", "see_also", "dupe_of", "is_open", "is_confirmed", "is_cc_accessible",
+		"is_creator_accessible", "classification", "deadline", "estimated_time", "remaining_time", "actual_time",
+		"groups", "internals", "name", "type_id", "setter", "requestee", "creation_date", "modification_date"};
+	
+	private static final Map<String, Integer> FIELD_TAG_INDEX = new HashMap<String, Integer>();
+	
+	static {
+		for(int i = 0; i < FIELD_TAGS.length; i++) {
+			FIELD_TAG_INDEX.put(FIELD_TAGS[i], i + 1);
+		}
+	}
+	
+	/**
+	 * Strings longer than this, such as summaries and comment text, are rarely repeated and are written without
+	 * adding them to the dictionary.
+	 */
+	private static final int MAX_DICTIONARY_STRING = 64;
+	
+	private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+	
+	private BugCodec() {
+	}
+	
+	/**
+	 * @param bug A {@link Bug}.
+	 * @return The bug encoded on its own.
+	 * @throws IllegalArgumentException If the bug holds a value of a type this codec cannot encode.
+	 */
+	public static byte[] encode(Bug bug) {
+		Encoder encoder = new Encoder();
+		encoder.writeVarint(VERSION);
+		encoder.writeBug(bug);
+		return encoder.toByteArray();
+	}
+	
+	/**
+	 * @param bug An {@link HttpBug}.
+	 * @return The bug encoded on its own.
+	 * @throws IllegalArgumentException If the bug holds a value of a type this codec cannot encode.
+	 */
+	public static byte[] encode(HttpBug bug) {
+		Encoder encoder = new Encoder();
+		encoder.writeVarint(VERSION);
+		encoder.writeHttpBug(bug);
+		return encoder.toByteArray();
+	}
+	
+	/**
+	 * @param comment A {@link Comment}.
+	 * @return The comment encoded on its own.
+	 */
+	public static byte[] encode(Comment comment) {
+		Encoder encoder = new Encoder();
+		encoder.writeVarint(VERSION);
+		encoder.writeComment(comment);
+		return encoder.toByteArray();
+	}
+	
+	/**
+	 * @param attachment An {@link Attachment}.
+	 * @return The attachment encoded on its own.
+	 */
+	public static byte[] encode(Attachment attachment) {
+		Encoder encoder = new Encoder();
+		encoder.writeVarint(VERSION);
+		encoder.writeAttachment(attachment);
+		return encoder.toByteArray();
+	}
+	
+	/**
+	 * @param data A {@link Bug} encoded by {@link #encode(Bug)}.
+	 * @return The decoded {@code Bug}.
+	 * @throws IOException If the data is not an encoded {@code Bug}, is damaged, or is of a newer version.
+	 */
+	public static Bug decodeBug(byte[] data) throws IOException {
+		return decode(data, 0, data.length, Bug.class);
+	}
+	
+	/**
+	 * @param data An array holding a {@link Bug} encoded by {@link #encode(Bug)}.
+	 * @param offset The position of the encoded bug in the array.
+	 * @param length The length of the encoded bug.
+	 * @return The decoded {@code Bug}.
+	 * @throws IOException If the data is not an encoded {@code Bug}, is damaged, or is of a newer version.
+	 */
+	public static Bug decodeBug(byte[] data, int offset, int length) throws IOException {
+		return decode(data, offset, length, Bug.class);
+	}
+	
+	/**
+	 * @param data An {@link HttpBug} encoded by {@link #encode(HttpBug)}.
+	 * @return The decoded {@code HttpBug}.
+	 * @throws IOException If the data is not an encoded {@code HttpBug}, is damaged, or is of a newer version.
+	 */
+	public static HttpBug decodeHttpBug(byte[] data) throws IOException {
+		return decode(data, 0, data.length, HttpBug.class);
+	}
+	
+	/**
+	 * @param data A {@link Comment} encoded by {@link #encode(Comment)}.
+	 * @return The decoded {@code Comment}.
+	 * @throws IOException If the data is not an encoded {@code Comment}, is damaged, or is of a newer version.
+	 */
+	public static Comment decodeComment(byte[] data) throws IOException {
+		return decode(data, 0, data.length, Comment.class);
+	}
+	
+	/**
+	 * @param data An {@link Attachment} encoded by {@link #encode(Attachment)}.
+	 * @return The decoded {@code Attachment}.
+	 * @throws IOException If the data is not an encoded {@code Attachment}, is damaged, or is of a newer version.
+	 */
+	public static Attachment decodeAttachment(byte[] data) throws IOException {
+		return decode(data, 0, data.length, Attachment.class);
+	}
+	
+	private static <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException {
+		Decoder decoder = new Decoder(data, offset, length);
+		decoder.readVersion();
+		Object decoded = decoder.readRecord();
+		if(!type.isInstance(decoded)) {
+			throw new IOException("Expected an encoded " + type.getSimpleName() + " but found "
+					+ (decoded == null ? "nothing" : decoded.getClass().getSimpleName()));
+		}
+		return type.cast(decoded);
+	}
+	
+	/**
+	 * Writes a stream of encoded model objects which share one dictionary. The stream starts with a header
+	 * naming the codec version.
+	 */
+	public static class Writer implements Closeable, Flushable {
+		
+		private final OutputStream out;
+		
+		private final Encoder encoder = new Encoder();
+		
+		/**
+		 * Creates a {@link Writer} and writes the stream header.
+		 * @param out The stream to write to. It should be buffered if it is slow to write small amounts to.
+		 * @throws IOException If the header cannot be written.
+		 */
+		public Writer(OutputStream out) throws IOException {
+			this.out = out;
+			encoder.writeInt(MAGIC);
+			encoder.writeVarint(VERSION);
+			drain();
+		}
+		
+		/**
+		 * @param bug A {@link Bug} to write.
+		 * @throws IOException If the stream cannot be written.
+		 * @throws IllegalArgumentException If the bug holds a value of a type this codec cannot encode.
+		 */
+		public void write(Bug bug) throws IOException {
+			encoder.writeBug(bug);
+			drain();
+		}
+		
+		/**
+		 * @param bug An {@link HttpBug} to write.
+		 * @throws IOException If the stream cannot be written.
+		 * @throws IllegalArgumentException If the bug holds a value of a type this codec cannot encode.
+		 */
+		public void write(HttpBug bug) throws IOException {
+			encoder.writeHttpBug(bug);
+			drain();
+		}
+		
+		/**
+		 * @param comment A {@link Comment} to write.
+		 * @throws IOException If the stream cannot be written.
+		 */
+		public void write(Comment comment) throws IOException {
+			encoder.writeComment(comment);
+			drain();
+		}
+		
+		/**
+		 * @param attachment An {@link Attachment} to write.
+		 * @throws IOException If the stream cannot be written.
+		 */
+		public void write(Attachment attachment) throws IOException {
+			encoder.writeAttachment(attachment);
+			drain();
+		}
+		
+		private void drain() throws IOException {
+			out.write(encoder.buffer, 0, encoder.size);
+			encoder.size = 0;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Reads a stream written by a {@link Writer}.
+	 */
+	public static class Reader implements Closeable {
+		
+		private final InputStream in;
+		
+		private final Decoder decoder;
+		
+		/**
+		 * Creates a {@link Reader} and reads the stream header.
+		 * @param in The stream to read from.
+		 * @throws IOException If the stream was not written by a {@link Writer}, or by a newer version of this codec.
+		 */
+		public Reader(InputStream in) throws IOException {
+			this.in = in;
+			decoder = new Decoder(in);
+			if(decoder.readInt() != MAGIC) {
+				throw new IOException("Not a stream of encoded bugs");
+			}
+			decoder.readVersion();
+		}
+		
+		/**
+		 * Reads the next object of the stream.
+		 * @return The next {@link Bug}, {@link HttpBug}, {@link Comment} or {@link Attachment}, or null at the end
+		 * of the stream.
+		 * @throws IOException If the stream cannot be read or is damaged.
+		 */
+		public Object read() throws IOException {
+			return decoder.readRecord();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+	
+	private static class Encoder {
+		
+		private byte[] buffer = new byte[256];
+		
+		private int size;
+		
+		private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+		
+		private final Map<ColumnSchema, Integer> schemas = new IdentityHashMap<ColumnSchema, Integer>();
+		
+		private void writeBug(Bug bug) {
+			writeVarint(BUG);
+			FieldProjection projection = bug.getProjection();
+			if(projection.isAll()) {
+				writeVarint(PROJECTION_ALL);
+			} else {
+				writeVarint(projection.isInclude() ? PROJECTION_INCLUDE : PROJECTION_EXCLUDE);
+				Set<String> fields = projection.getFields();
+				writeVarint(fields.size());
+				for(String field : fields) {
+					writeString(field);
+				}
+			}
+			writeMap(bug.getParameterMap());
+		}
+		
+		private void writeHttpBug(HttpBug bug) {
+			writeVarint(HTTP_BUG);
+			ColumnSchema schema = bug.getSchema();
+			Integer known = schemas.get(schema);
+			if(known != null) {
+				writeVarint(known + 1);
+			} else {
+				writeVarint(0);
+				writeVarint(schema.size());
+				for(String name : schema.getNames()) {
+					writeString(name);
+				}
+				schemas.put(schema, schemas.size());
+			}
+			for(String name : schema.getNames()) {
+				writeValue(bug.get(name));
+			}
+		}
+		
+		private void writeComment(Comment comment) {
+			writeVarint(COMMENT);
+			writeSigned(comment.getID());
+			writeValue(comment.getText());
+		}
+		
+		private void writeAttachment(Attachment attachment) {
+			writeVarint(ATTACHMENT);
+			writeSigned(attachment.getAttachmentID());
+			writeSigned(attachment.getBugID());
+			writeValue(attachment.getFileName());
+			writeValue(attachment.getMIMEType());
+			writeValue(attachment.getSummary());
+			writeValue(attachment.getCreator());
+			writeValue(attachment.createdOn());
+			writeValue(attachment.lastChangedOn());
+			writeValue(attachment.getRawData());
+		}
+		
+		private void writeMap(Map<?, ?> map) {
+			writeVarint(map.size());
+			for(Map.Entry<?, ?> entry : map.entrySet()) {
+				Integer tag = FIELD_TAG_INDEX.get(entry.getKey());
+				if(tag != null) {
+					writeVarint(tag);
+				} else if(entry.getKey() instanceof String) {
+					writeVarint(0);
+					writeString((String)entry.getKey());
+				} else {
+					throw new IllegalArgumentException("Cannot encode a map key of " + entry.getKey().getClass());
+				}
+				writeValue(entry.getValue());
+			}
+		}
+		
+		private void writeValue(Object value) {
+			if(value == null) {
+				writeVarint(NULL);
+			} else if(value instanceof String) {
+				writeString((String)value);
+			} else if(value instanceof Integer) {
+				writeVarint(INT);
+				writeSigned((Integer)value);
+			} else if(value instanceof Long) {
+				writeVarint(LONG);
+				writeSigned((Long)value);
+			} else if(value instanceof Double) {
+				writeVarint(DOUBLE);
+				writeLong(Double.doubleToLongBits((Double)value));
+			} else if(value instanceof Boolean) {
+				writeVarint((Boolean)value ? TRUE : FALSE);
+			} else if(value instanceof Date) {
+				writeVarint(DATE);
+				writeSigned(((Date)value).getTime());
+			} else if(value instanceof Object[]) {
+				Object[] array = (Object[])value;
+				writeVarint(ARRAY);
+				writeVarint(array.length);
+				for(Object element : array) {
+					writeValue(element);
+				}
+			} else if(value instanceof Map<?, ?>) {
+				writeVarint(MAP);
+				writeMap((Map<?, ?>)value);
+			} else if(value instanceof byte[]) {
+				byte[] bytes = (byte[])value;
+				writeVarint(BYTES);
+				writeVarint(bytes.length);
+				writeBytes(bytes);
+			} else {
+				throw new IllegalArgumentException("Cannot encode a value of " + value.getClass());
+			}
+		}
+		
+		/**
+		 * Writes a string tagged as a dictionary reference, a new dictionary entry, or a literal.
+		 */
+		private void writeString(String value) {
+			Integer index = dictionary.get(value);
+			if(index != null) {
+				writeVarint(STRING_REF);
+				writeVarint(index);
+				return;
+			}
+			boolean add = value.length() <= MAX_DICTIONARY_STRING && dictionary.size() < MAX_DICTIONARY_SIZE;
+			if(add) {
+				dictionary.put(value, dictionary.size());
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(add ? STRING : LITERAL);
+			writeVarint(bytes.length);
+			writeBytes(bytes);
+		}
+		
+		private void writeSigned(long value) {
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+		
+		private void writeVarint(long value) {
+			ensure(10);
+			while((value & ~0x7FL) != 0) {
+				buffer[size++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[size++] = (byte)value;
+		}
+		
+		private void writeInt(int value) {
+			ensure(4);
+			for(int shift = 24; shift >= 0; shift -= 8) {
+				buffer[size++] = (byte)(value >>> shift);
+			}
+		}
+		
+		private void writeLong(long value) {
+			ensure(8);
+			for(int shift = 56; shift >= 0; shift -= 8) {
+				buffer[size++] = (byte)(value >>> shift);
+			}
+		}
+		
+		private void writeBytes(byte[] bytes) {
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+		
+		private void ensure(int needed) {
+			if(size + needed > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + needed));
+			}
+		}
+		
+		private byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+	}
+	
+	private static class Decoder {
+		
+		private final InputStream in;
+		
+		private byte[] buffer;
+		
+		private int position;
+		
+		private int limit;
+		
+		private final List<String> dictionary = new ArrayList<String>();
+		
+		private final List<ColumnSchema> schemas = new ArrayList<ColumnSchema>();
+		
+		private Decoder(byte[] data, int offset, int length) {
+			in = null;
+			buffer = data;
+			position = offset;
+			limit = offset + length;
+		}
+		
+		private Decoder(InputStream in) {
+			this.in = in;
+			buffer = new byte[8192];
+		}
+		
+		private void readVersion() throws IOException {
+			int version = readLength();
+			if(version < 1 || version > VERSION) {
+				throw new IOException("Unsupported encoding version " + version);
+			}
+		}
+		
+		/**
+		 * Reads the next model object, or returns null if the input ends before it.
+		 */
+		private Object readRecord() throws IOException {
+			if(position == limit && !fill()) {
+				return null;
+			}
+			int type = readLength();
+			switch(type) {
+			case BUG:
+				return readBug();
+			case HTTP_BUG:
+				return readHttpBug();
+			case COMMENT:
+				return new Comment((int)readSigned(), (String)readValue());
+			case ATTACHMENT:
+				return readAttachment();
+			default:
+				throw new IOException("Unknown record type " + type);
+			}
+		}
+		
+		private Bug readBug() throws IOException {
+			int kind = readLength();
+			FieldProjection projection = FieldProjection.ALL;
+			if(kind != PROJECTION_ALL) {
+				String[] fields = new String[readLength()];
+				for(int i = 0; i < fields.length; i++) {
+					fields[i] = readString();
+				}
+				if(kind == PROJECTION_INCLUDE) {
+					projection = FieldProjection.include(fields);
+				} else if(kind == PROJECTION_EXCLUDE) {
+					projection = FieldProjection.exclude(fields);
+				} else {
+					throw new IOException("Unknown projection " + kind);
+				}
+			}
+			Map<String, Object> state = readMap();
+			try {
+				return new Bug(state, projection, true);
+			} catch(IllegalStateException e) {
+				throw new IOException("Encoded bug is incomplete", e);
+			}
+		}
+		
+		private HttpBug readHttpBug() throws IOException {
+			int known = readLength();
+			ColumnSchema schema;
+			if(known == 0) {
+				String[] names = new String[readLength()];
+				for(int i = 0; i < names.length; i++) {
+					names[i] = readString();
+				}
+				try {
+					schema = new ColumnSchema(names);
+				} catch(IllegalArgumentException e) {
+					throw new IOException("Encoded bug list columns are damaged", e);
+				}
+				schemas.add(schema);
+			} else if(known <= schemas.size()) {
+				schema = schemas.get(known - 1);
+			} else {
+				throw new IOException("Unknown bug list columns " + known);
+			}
+			Object[] values = new Object[schema.size()];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = readValue();
+			}
+			return new HttpBug(schema, values);
+		}
+		
+		private Attachment readAttachment() throws IOException {
+			int id = (int)readSigned();
+			int bugId = (int)readSigned();
+			String name = (String)readValue();
+			String mime = (String)readValue();
+			String summary = (String)readValue();
+			String creator = (String)readValue();
+			Date created = (Date)readValue();
+			Date modified = (Date)readValue();
+			Attachment attachment = new Attachment((byte[])readValue(), name, id, bugId);
+			attachment.setMIMEType(mime);
+			attachment.setSummary(summary);
+			attachment.setCreator(creator);
+			attachment.setCreationDate(created);
+			attachment.setModifiedDate(modified);
+			return attachment;
+		}
+		
+		private <K> Map<K, Object> readMap() throws IOException {
+			int count = readLength();
+			Map<K, Object> map = new HashMap<K, Object>(Math.max(4, Math.min(count, 1024) * 4 / 3 + 1));
+			for(int i = 0; i < count; i++) {
+				int tag = readLength();
+				String key;
+				if(tag == 0) {
+					key = readString();
+				} else if(tag <= FIELD_TAGS.length) {
+					key = FIELD_TAGS[tag - 1];
+				} else {
+					throw new IOException("Unknown field tag " + tag);
+				}
+				@SuppressWarnings("unchecked")
+				K k = (K)key;
+				map.put(k, readValue());
+			}
+			return map;
+		}
+		
+		private Object readValue() throws IOException {
+			int type = readLength();
+			switch(type) {
+			case NULL:
+				return null;
+			case STRING:
+			case STRING_REF:
+			case LITERAL:
+				return readString(type);
+			case INT:
+				return (int)readSigned();
+			case LONG:
+				return readSigned();
+			case DOUBLE:
+				return Double.longBitsToDouble(readLong());
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case DATE:
+				return new Date(readSigned());
+			case ARRAY:
+				Object[] array = new Object[readLength()];
+				for(int i = 0; i < array.length; i++) {
+					array[i] = readValue();
+				}
+				return array;
+			case MAP:
+				return this.<Object>readMap();
+			case BYTES:
+				return readBytes(readLength());
+			default:
+				throw new IOException("Unknown value type " + type);
+			}
+		}
+		
+		private String readString() throws IOException {
+			return readString(readLength());
+		}
+		
+		private String readString(int type) throws IOException {
+			if(type == STRING_REF) {
+				int index = readLength();
+				if(index >= dictionary.size()) {
+					throw new IOException("Unknown dictionary entry " + index);
+				}
+				return dictionary.get(index);
+			} else if(type != STRING && type != LITERAL) {
+				throw new IOException("Expected a string but found type " + type);
+			}
+			String value = new String(readBytes(readLength()), StandardCharsets.UTF_8);
+			if(type == STRING) {
+				dictionary.add(value);
+			}
+			return value;
+		}
+		
+		/**
+		 * Reads a non-negative varint which must fit in an {@code int}, such as a length or a tag.
+		 */
+		private int readLength() throws IOException {
+			long value = readVarint();
+			if(value < 0 || value > Integer.MAX_VALUE) {
+				throw new IOException("Encoded length " + value + " is out of range");
+			}
+			return (int)value;
+		}
+		
+		private long readSigned() throws IOException {
+			long value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+		
+		private long readVarint() throws IOException {
+			long value = 0;
+			for(int shift = 0; shift < 64; shift += 7) {
+				byte b = readByte();
+				value |= (long)(b & 0x7F) << shift;
+				if(b >= 0) {
+					return value;
+				}
+			}
+			throw new IOException("Encoded integer is too long");
+		}
+		
+		private int readInt() throws IOException {
+			int value = 0;
+			for(int i = 0; i < 4; i++) {
+				value = (value << 8) | (readByte() & 0xFF);
+			}
+			return value;
+		}
+		
+		private long readLong() throws IOException {
+			long value = 0;
+			for(int i = 0; i < 8; i++) {
+				value = (value << 8) | (readByte() & 0xFF);
+			}
+			return value;
+		}
+		
+		private byte[] readBytes(int length) throws IOException {
+			if(in == null && length > limit - position) {
+				throw new EOFException("Encoded data ends early");
+			}
+			byte[] bytes = new byte[length];
+			int read = 0;
+			while(read < length) {
+				if(position == limit && !fill()) {
+					throw new EOFException("Encoded data ends early");
+				}
+				int count = Math.min(length - read, limit - position);
+				System.arraycopy(buffer, position, bytes, read, count);
+				position += count;
+				read += count;
+			}
+			return bytes;
+		}
+		
+		private byte readByte() throws IOException {
+			if(position == limit && !fill()) {
+				throw new EOFException("Encoded data ends early");
+			}
+			return buffer[position++];
+		}
+		
+		/**
+		 * Reads more of the stream into the buffer, returning false at its end.
+		 */
+		private boolean fill() throws IOException {
+			if(in == null) {
+				return false;
+			}
+			int read = in.read(buffer, 0, buffer.length);
+			if(read <= 0) {
+				return false;
+			}
+			position = 0;
+			limit = read;
+			return true;
+		}
+	}
+
+}
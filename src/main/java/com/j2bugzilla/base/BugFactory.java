@@ -24,7 +24,10 @@ import java.util.Set;
  * The {@code BugFactory} class allows users of the j2bugzilla API to construct new {@link Bug Bugs}
  * using a fluent interface. It also provides a method for creating a new {@code Bug} based off of
  * a {@code Map} provided from an XML-RPC method.
- * 
+ * <p>
+ * Fields such as the status, priority or product of the bugs it creates, which take one of only a few values
+ * across a whole installation, share their values through the {@link ValuePool#getDefault() default ValuePool}.
+ * <p>
  * The {@code BugFactory} is not thread-safe. Callers must provide their own synchronization when
  * using a {@code BugFactory} shared across multiple threads of execution.
  * @author Tom
@@ -43,22 +46,62 @@ public class BugFactory {
 	private boolean locked = false;
 
 	/**
-	 * Creates a new {@link Bug} based off of the provided {@code Map} of properties.
+	 * Creates a new {@link Bug} based off of the provided {@code Map} of properties. The map is only read while
+	 * the bug is built, so it may be shared, and later changes to it do not affect the bug. The properties count
+	 * as {@link Bug#getChangedFields() changed}, so an {@link com.j2bugzilla.rpc.UpdateBug} sends them all.
 	 * @param properties A {@code Map<String, Object>} describing the internal structure of a bug.
 	 * @return A new {@code Bug} object.
 	 */
 	public Bug createBug(Map<String, Object> properties) {
-		Map<String, Object> copyProps = new HashMap<String, Object>();
-		copyProps.putAll(properties);
-		
-		return new Bug(copyProps);
+		return new Bug(properties);
+	}
+	
+	/**
+	 * Creates a new {@link Bug} based off of the provided {@code Map} of properties, which was fetched
+	 * with only the fields of the given {@link FieldProjection}.
+	 * @param properties A {@code Map<String, Object>} describing the internal structure of a bug.
+	 * @param projection The {@code FieldProjection} the properties were fetched with.
+	 * @return A new {@code Bug} object.
+	 */
+	public Bug createBug(Map<String, Object> properties, FieldProjection projection) {
+		return new Bug(properties, projection);
+	}
+	
+	/**
+	 * Creates a new {@link Bug} which takes ownership of the provided {@code Map} of properties instead of copying
+	 * them, keeping the map as its store for fields such as custom fields. This saves allocating a second map for
+	 * each bug when the caller built the map itself, such as when decoding bugs. The map must be modifiable, and
+	 * must not be used by the caller or anyone else once it has been passed here, so it must never be a map which
+	 * may be shared, such as a method's results.
+	 * @param properties A {@code Map<String, Object>} describing the internal structure of a bug.
+	 * @param projection The {@code FieldProjection} the properties were fetched with.
+	 * @return A new {@code Bug} object.
+	 */
+	public Bug adoptBug(Map<String, Object> properties, FieldProjection projection) {
+		return new Bug(properties, projection, true);
 	}
 
+	/**
+	 * Creates a new {@link HttpBug} based off of the provided {@code Map} of properties.
+	 * @param properties A {@code Map<String, Object>} of values by column key.
+	 * @return A new {@code HttpBug} object.
+	 */
 	public HttpBug createHttpBug(Map<String, Object> properties) {
-		Map<String, Object> copyProps = new HashMap<String, Object>();
-		copyProps.putAll(properties);
-
-		return new HttpBug(copyProps);
+		HttpBug bug = new HttpBug(properties);
+		bug.internValues(ValuePool.getDefault());
+		return bug;
+	}
+	
+	/**
+	 * Creates a new {@link HttpBug} from one row of a bug list.
+	 * @param schema The {@link ColumnSchema} of the bug list, shared by every bug created from it.
+	 * @param values The values of the row, in the order of the schema's columns.
+	 * @return A new {@code HttpBug} object.
+	 */
+	public HttpBug createHttpBug(ColumnSchema schema, Object[] values) {
+		HttpBug bug = new HttpBug(schema, values.clone());
+		bug.internValues(ValuePool.getDefault());
+		return bug;
 	}
 	
 	/**
@@ -194,8 +237,14 @@ public class BugFactory {
 	public Bug createBug() {
 		if(!locked) { throw new IllegalStateException(CALL_NEW); }
 		locked = false;
-		@SuppressWarnings("unchecked")
-		HashMap<String, Object>[] flagArray = flags.toArray(new HashMap[0]);
+		Object[] flagArray = new Object[flags.size()];
+		int i = 0;
+		for(Flag flag : flags) {
+			Map<String, Object> flagMap = new HashMap<String, Object>();
+			flagMap.put("name", flag.getName());
+			flagMap.put("status", flag.getStatus().getSymbol());
+			flagArray[i++] = flagMap;
+		}
 		properties.put("flags", flagArray);
 		return new Bug(properties);
 	}
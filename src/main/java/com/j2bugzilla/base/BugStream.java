@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+/**
+ * Interfaces for publishing results, such as the bugs of a search, as a reactive stream. They are a stand-in for
+ * {@code java.util.concurrent.Flow} from Java 9, with the same shape and rules, defined here because j2bugzilla still
+ * runs on Java 8. They are named apart from the JDK class so that both can be imported on Java 9 and later; code written
+ * against them moves to the JDK interfaces by replacing {@code BugStream} with {@code Flow}.
+ * <p>
+ * A {@link Publisher} hands items to each {@link Subscriber} only as fast as the subscriber asks for them through
+ * its {@link Subscription}.
+ * 
+ * @author Tom
+ */
+public final class BugStream {
+	
+	private BugStream() {
+		
+	}
+	
+	/**
+	 * A producer of items received by {@link Subscriber Subscribers}.
+	 * 
+	 * @param <T> The type of item published
+	 */
+	public interface Publisher<T> {
+		
+		/**
+		 * Adds the given subscriber. It first receives {@link Subscriber#onSubscribe(Subscription)}, then items as
+		 * it requests them, and finally {@link Subscriber#onComplete()} or {@link Subscriber#onError(Throwable)}.
+		 * @param subscriber The {@link Subscriber} to receive items.
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+	
+	/**
+	 * A receiver of items. The methods of one subscriber are never called concurrently.
+	 * 
+	 * @param <T> The type of item received
+	 */
+	public interface Subscriber<T> {
+		
+		/**
+		 * Called before any other method, with the {@link Subscription} through which items are requested.
+		 * @param subscription The new {@code Subscription}.
+		 */
+		void onSubscribe(Subscription subscription);
+		
+		/**
+		 * Called with the next item, only once it has been requested.
+		 * @param item The item.
+		 */
+		void onNext(T item);
+		
+		/**
+		 * Called when the publisher fails. No further methods are called.
+		 * @param throwable The reason for the failure.
+		 */
+		void onError(Throwable throwable);
+		
+		/**
+		 * Called once every item has been received. No further methods are called.
+		 */
+		void onComplete();
+	}
+	
+	/**
+	 * The link between a {@link Publisher} and one {@link Subscriber}.
+	 */
+	public interface Subscription {
+		
+		/**
+		 * Asks for up to {@code n} more items. A non-positive {@code n} fails the subscription with an
+		 * {@link IllegalArgumentException}.
+		 * @param n The number of additional items wanted.
+		 */
+		void request(long n);
+		
+		/**
+		 * Stops the delivery of items. Items may still arrive for a short while.
+		 */
+		void cancel();
+	}
+
+}
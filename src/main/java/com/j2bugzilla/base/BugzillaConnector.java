@@ -18,6 +18,8 @@ package com.j2bugzilla.base;
 
 import com.j2bugzilla.rpc.LogIn;
 import com.j2bugzilla.rpc.LogOut;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.XmlRpcRequest;
@@ -27,16 +29,34 @@ import org.jsoup.nodes.Document;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
  * The {@code BugzillaConnector} class handles all access to a given Bugzilla installation.
  * The Bugzilla API uses XML-RPC, implemented via the Apache XML-RPC library in this instance.
+ * <p>
+ * Once connected, a {@code BugzillaConnector} is thread-safe: any number of threads may call
+ * {@link #executeMethod(BugzillaMethod)} and {@link #executeHttpRequest(BugzillaHttpParser)} at the same
+ * time, sharing one login. Every request gets its own transport, and the login token and session cookies
+ * are published atomically once received. The {@link BugzillaMethod} objects themselves are not thread-safe
+ * and must not be shared between concurrent calls. Calls to {@code connectTo} and {@link #close()}
+ * reconfigure the connector and should not overlap with method executions.
  *
  * @author Tom
  * @see <a href="http://www.bugzilla.org/docs/tip/en/html/api/Bugzilla/WebService.html">WebService</a>
@@ -46,20 +66,57 @@ public class BugzillaConnector {
 
     public static final String COOKIE = "Cookie";
     public static final String SEMICOLON_DELIMITER = "; ";
+
+    /**
+     * The XML-RPC method which executes a list of other methods in one request
+     */
+    private static final String MULTICALL = "system.multicall";
     /**
      * The {@link XmlRpcClient} handles all requests to Bugzilla by transforming method names and
      * parameters into properly formatted XML documents, which it then transmits to the host.
      */
-    private XmlRpcClient client;
+    private volatile XmlRpcClient client;
 
     /**
      * The token represents a login and is used in place of login cookies.
      * See {@link com.j2bugzilla.rpc.LogIn#getToken()}
      */
-    private String token;
-    private String host;
-    private String user;
-    private boolean connected;
+    private volatile String token;
+    private volatile String host;
+    private volatile String user;
+    private volatile boolean connected;
+
+    /**
+     * An immutable snapshot of the cookies received from the installation, shared by every
+     * {@link TransportWithCookies}. It is replaced as a whole, never modified in place.
+     */
+    private final AtomicReference<List<String>> cookies = new AtomicReference<List<String>>(Collections.<String>emptyList());
+
+    /**
+     * The factory for pooled transports, if this connector was connected with a {@link PooledTransportConfig}.
+     */
+    private volatile PooledHttpTransportFactory pooledTransport;
+
+    /**
+     * The {@link Executor} running methods passed to {@link #executeMethodAsync(BugzillaMethod)}.
+     * If none is set, a shared pool of daemon threads is used.
+     */
+    private volatile Executor asyncExecutor;
+
+    /**
+     * The largest number of methods sent in one {@code system.multicall} request by {@link #executeBatch(List)}.
+     */
+    private volatile int batchSize = 100;
+
+    /**
+     * The cache of read-only method results, if one has been set with {@link #setCache(MethodCache)}.
+     */
+    private volatile MethodCache cache;
+
+    /**
+     * The {@link MethodListener MethodListeners} told about each method which completes.
+     */
+    private final List<MethodListener> listeners = new CopyOnWriteArrayList<MethodListener>();
 
     /**
      * Use this method to designate a host to connect to. You must call this method
@@ -89,7 +146,31 @@ public class BugzillaConnector {
      * @throws ConnectionException if a connection cannot be established
      */
     public void connectTo(final String host, final String httpUser, final String httpPasswd) throws ConnectionException {
+        connectTo(toXmlRpcURL(host), httpUser, httpPasswd);
+    }
 
+    /**
+     * Use this method to designate a host to connect to using a pool of persistent HTTP connections.
+     * Connections are kept alive and reused between calls, which avoids a new TCP (and TLS) handshake
+     * for every method executed. Callers should {@link #close()} the connector once they are done with it
+     * to release the pooled connections.
+     *
+     * @param host       A string pointing to the domain of the Bugzilla installation
+     * @param httpUser   username for an optional Basic access authentication
+     * @param httpPasswd password for an optional Basic access authentication
+     * @param pool       A {@link PooledTransportConfig} describing the connection pool
+     * @throws ConnectionException if a connection cannot be established
+     * @see #connectTo(String, String, String)
+     */
+    public void connectTo(String host, String httpUser, String httpPasswd, PooledTransportConfig pool) throws ConnectionException {
+        connectTo(toXmlRpcURL(host), httpUser, httpPasswd, pool);
+    }
+
+    /**
+     * Appends the XML-RPC endpoint to the given host if it is missing, and remembers the base
+     * URL of the installation for {@link #executeHttpRequest(BugzillaHttpParser)}.
+     */
+    private URL toXmlRpcURL(String host) throws ConnectionException {
         String newHost = host;
         this.host = newHost;
         if (!newHost.endsWith("xmlrpc.cgi")) {
@@ -102,14 +183,11 @@ public class BugzillaConnector {
             }
         }
 
-        URL hostURL;
         try {
-            hostURL = new URL(newHost);
+            return new URL(newHost);
         } catch (MalformedURLException e) {
             throw new ConnectionException("Host URL is malformed; URL supplied was " + newHost, e);
         }
-
-        connectTo(hostURL, httpUser, httpPasswd);
     }
 
     /**
@@ -128,29 +206,75 @@ public class BugzillaConnector {
      * @param httpPasswd password for an optional Basic access authentication
      */
     public void connectTo(URL host, String httpUser, String httpPasswd) {
-        XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
-        if (httpUser != null) {
-            config.setBasicUserName(httpUser);
-            config.setBasicPassword(httpPasswd);
-        }
-        config.setServerURL(host);
-
-        client = new XmlRpcClient();
-        client.setConfig(config);
+        final XmlRpcClient sunClient = newClient(host, httpUser, httpPasswd);
 
         /**
          * Here, we override the default behavior of the transport factory to properly
-         * handle cookies for authentication
+         * handle cookies for authentication. Each request gets its own transport, since
+         * a transport holds the connection of the request in flight.
          */
-        XmlRpcTransportFactory factory = new XmlRpcSunHttpTransportFactory(client) {
-
-            private final XmlRpcTransport transport = new TransportWithCookies(client);
+        XmlRpcTransportFactory factory = new XmlRpcSunHttpTransportFactory(sunClient) {
 
             public XmlRpcTransport getTransport() {
-                return transport;
+                return new TransportWithCookies(sunClient, cookies);
             }
         };
-        client.setTransportFactory(factory);
+        sunClient.setTransportFactory(factory);
+
+        close();
+        cookies.set(Collections.<String>emptyList());
+        client = sunClient;
+    }
+
+    /**
+     * Use this method to designate a host to connect to using a pool of persistent HTTP connections
+     * managed by Apache HttpClient. You must call this method before executing any other methods of this object.
+     * <p>
+     * If httpUser is not null, than the httpUser and the httpPasswd will be
+     * used to connect to the bugzilla server. This currently only supports basic
+     * http authentication ( @see <a href="http://en.wikipedia.org/wiki/Basic_access_authentication">Basic access authentication</a>).
+     * <p>
+     * Callers should {@link #close()} the connector once they are done with it to release the pooled connections.
+     *
+     * @param host       A URL of form http:// + somedomain + /xmlrpc.cgi
+     * @param httpUser   username for an optional Basic access authentication
+     * @param httpPasswd password for an optional Basic access authentication
+     * @param pool       A {@link PooledTransportConfig} describing the connection pool
+     */
+    public void connectTo(URL host, String httpUser, String httpPasswd, PooledTransportConfig pool) {
+        XmlRpcClient pooledClient = newClient(host, httpUser, httpPasswd);
+        PooledHttpTransportFactory factory = new PooledHttpTransportFactory(pooledClient, pool);
+        pooledClient.setTransportFactory(factory);
+
+        synchronized (this) {
+            close();
+            pooledTransport = factory;
+        }
+        client = pooledClient;
+    }
+
+    private static XmlRpcClient newClient(URL host, String httpUser, String httpPasswd) {
+        XmlRpcClientConfigImpl config = new XmlRpcClientConfigImpl();
+        if (httpUser != null) {
+            config.setBasicUserName(httpUser);
+            config.setBasicPassword(httpPasswd);
+        }
+        config.setServerURL(host);
+
+        XmlRpcClient newClient = new XmlRpcClient();
+        newClient.setConfig(config);
+        return newClient;
+    }
+
+    /**
+     * Releases any pooled connections held by this connector. Connectors which were not connected with a
+     * {@link PooledTransportConfig} hold no resources, so calling this method on them has no effect.
+     */
+    public synchronized void close() {
+        if (pooledTransport != null) {
+            pooledTransport.shutdown();
+            pooledTransport = null;
+        }
     }
 
     /**
@@ -160,6 +284,10 @@ public class BugzillaConnector {
      * You have to be already logged on bugzilla to use this
      * http authentication ( @see <a href="http://en.wikipedia.org/wiki/Basic_access_authentication">Basic access authentication</a>).
      * <p>
+     * A {@link StreamingBugzillaHttpParser} receives the response one table row at a time while it is read,
+     * rather than as a single document once it has been read completely. A {@link ReaderBugzillaHttpParser}
+     * reads the response itself.
+     * <p>
      *
      * @param parser Holds the parser information for get the result object
      */
@@ -171,29 +299,58 @@ public class BugzillaConnector {
                 url.addParameter(pair.getKey().toString(), pair.getValue().toString());
             }
 
-            URLConnection conn = url
-                    .build()
-                    .toURL()
-                    .openConnection();
-
-            TransportWithCookies transport = (TransportWithCookies) (client.getTransportFactory().getTransport());
-            StringBuffer sb = new StringBuffer();
-            for (String cookie : transport.cookies) {
-                sb.append(cookie + SEMICOLON_DELIMITER);
+            CloseableHttpResponse response = null;
+            InputStream stream;
+            PooledHttpTransportFactory pool = pooledTransport;
+            if (pool != null) {
+                //The pooled client keeps its own cookie store
+                response = pool.getHttpClient().execute(new HttpGet(url.build()));
+                stream = response.getEntity().getContent();
+            } else {
+                URLConnection conn = url
+                        .build()
+                        .toURL()
+                        .openConnection();
+
+                StringBuilder sb = new StringBuilder();
+                for (String cookie : cookies.get()) {
+                    sb.append(cookie + SEMICOLON_DELIMITER);
+                }
+                conn.setRequestProperty(COOKIE, sb.toString());
+                stream = conn.getInputStream();
             }
-            conn.setRequestProperty(COOKIE, sb.toString());
-
 
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    conn.getInputStream()));
+            BufferedReader in = new BufferedReader(new InputStreamReader(stream));
+            if (parser instanceof ReaderBugzillaHttpParser || parser instanceof StreamingBugzillaHttpParser) {
+                try {
+                    if (parser instanceof ReaderBugzillaHttpParser) {
+                        ((ReaderBugzillaHttpParser) parser).parse(in);
+                    } else {
+                        new HtmlRowTokenizer((StreamingBugzillaHttpParser) parser).tokenize(in);
+                    }
+                } finally {
+                    in.close();
+                    if (response != null) {
+                        response.close();
+                    }
+                }
+                return;
+            }
             String inputLine = in.readLine();
             StringBuilder stringBuilder = new StringBuilder();
-            while (!inputLine.contains(parser.getStartOfParse())) inputLine = in.readLine();
-            do {
+            while (inputLine != null && !inputLine.contains(parser.getStartOfParse())) inputLine = in.readLine();
+            //A page without the start marker, such as a search past the last result, parses as empty
+            while (inputLine != null) {
                 stringBuilder.append(inputLine);
-            } while (!(inputLine = in.readLine()).contains(parser.getEndOfParse()));
-            stringBuilder.append(inputLine);
+                if (inputLine.contains(parser.getEndOfParse())) {
+                    break;
+                }
+                inputLine = in.readLine();
+            }
             in.close();
+            if (response != null) {
+                response.close();
+            }
 
 
             Document doc = Jsoup.parse(stringBuilder.toString());
@@ -221,40 +378,271 @@ public class BugzillaConnector {
      * @throws BugzillaException If the XML-RPC library returns a fault, a {@link BugzillaException}
      *                           with a descriptive error message for that fault will be thrown.
      */
-    @SuppressWarnings("unchecked")//Must cast Object from client.execute()
     public void executeMethod(BugzillaMethod method) throws BugzillaException {
+        XmlRpcClient client = this.client;
         if (client == null) {
             throw new IllegalStateException("Cannot execute a method without connecting!");
         }//We are not currently connected to an installation
-        Map<Object, Object> params = new HashMap<Object, Object>();
-        if (token != null) {
-            params.put("Bugzilla_token", token);
+        MethodCache cache = this.cache;
+        long generation = 0;
+        if (cache != null) {
+            generation = cache.getGeneration();
+            Map<Object, Object> cached = cache.get(method);
+            if (cached != null) {
+                method.setResultMap(cached);
+                fireMethodExecuted(method);
+                return;
+            }
         }
-
-        params.putAll(method.getParameterMap());
-        Object[] obj = {params};
+        Object[] obj = {getParameters(method, this.token)};
         try {
             Object results = client.execute(method.getMethodName(), obj);
-            if (!(results instanceof Map<?, ?>)) {
-                results = Collections.emptyMap();
+            setResults(method, results, cache, generation);
+        } catch (XmlRpcException e) {
+            BugzillaException wrapperException = XmlExceptionHandler.handleFault(e);
+            throw wrapperException;
+        }
+    }
+
+    /**
+     * Executes many {@link BugzillaMethod BugzillaMethods} using Bugzilla's {@code system.multicall} method, so that
+     * up to {@link #setBatchSize(int) batch size} methods share a single HTTP round trip. Methods are sent in the
+     * order given, and each one which succeeds has its {@link BugzillaMethod#setResultMap(Map)} called just as
+     * {@link #executeMethod(BugzillaMethod)} would.
+     * <p>
+     * A fault raised by one method does not stop the others. Instead, it is translated by the
+     * {@link XmlExceptionHandler} and returned, keyed by the method which raised it. All methods sent in one
+     * round trip use the login in effect when it was sent; a {@link LogIn} in a batch only affects later round trips.
+     *
+     * @param methods The {@link BugzillaMethod BugzillaMethods} to call on the connected installation
+     * @return A {@code Map} from each method which failed to the {@link BugzillaException} describing its fault,
+     * in the order the methods were given. The map is empty if every method succeeded.
+     * @throws BugzillaException If a whole round trip fails, for example because the installation does not
+     *                           support {@code system.multicall}.
+     */
+    @SuppressWarnings("unchecked")//Must cast Object from client.execute()
+    public Map<BugzillaMethod, BugzillaException> executeBatch(List<? extends BugzillaMethod> methods) throws BugzillaException {
+        XmlRpcClient client = this.client;
+        if (client == null) {
+            throw new IllegalStateException("Cannot execute a method without connecting!");
+        }
+        Map<BugzillaMethod, BugzillaException> faults = new LinkedHashMap<BugzillaMethod, BugzillaException>();
+        int size = batchSize;
+        for (int from = 0; from < methods.size(); from += size) {
+            List<? extends BugzillaMethod> batch = methods.subList(from, Math.min(methods.size(), from + size));
+            String token = this.token;
+            Object[] calls = new Object[batch.size()];
+            for (int i = 0; i < calls.length; i++) {
+                BugzillaMethod method = batch.get(i);
+                Map<String, Object> call = new HashMap<String, Object>();
+                call.put("methodName", method.getMethodName());
+                call.put("params", new Object[]{getParameters(method, token)});
+                calls[i] = call;
+            }
+
+            MethodCache cache = this.cache;
+            long generation = cache == null ? 0 : cache.getGeneration();
+            Object[] results;
+            try {
+                results = (Object[]) client.execute(MULTICALL, new Object[]{calls});
+            } catch (XmlRpcException e) {
+                throw XmlExceptionHandler.handleFault(e);
             }
-            Map<Object, Object> readOnlyResults = Collections.unmodifiableMap((Map<Object, Object>) results);
-            method.setResultMap(readOnlyResults);
-            if (method instanceof LogIn) {
-                LogIn login = (LogIn) method;
-                String email = (String) method.getParameterMap().get("login");
-                this.user = email.split("@")[0];
-                setToken(login.getToken());
-                this.connected = true;
+            if (results.length != calls.length) {
+                throw new BugzillaException("Expected " + calls.length + " results from " + MULTICALL + " but received " + results.length);
             }
 
-            if (method instanceof LogOut) {
-                this.connected = false;
+            for (int i = 0; i < results.length; i++) {
+                BugzillaMethod method = batch.get(i);
+                if (results[i] instanceof Map<?, ?>) {
+                    //A struct in place of the one-element result array is a fault
+                    faults.put(method, XmlExceptionHandler.handleFault((Map<Object, Object>) results[i]));
+                } else {
+                    Object[] result = (Object[]) results[i];
+                    setResults(method, result.length > 0 ? result[0] : null, cache, generation);
+                }
             }
-        } catch (XmlRpcException e) {
-            BugzillaException wrapperException = XmlExceptionHandler.handleFault(e);
-            throw wrapperException;
         }
+        return faults;
+    }
+
+    /**
+     * Sets the largest number of methods {@link #executeBatch(List)} sends in a single round trip.
+     * Defaults to 100.
+     *
+     * @param batchSize A positive number of methods per request
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets a {@link MethodCache} to answer repeated read-only calls made through {@link #executeMethod(BugzillaMethod)}
+     * and {@link #executeMethodAsync(BugzillaMethod)} without going to the installation. Successful writes made
+     * through this connector, including those in {@link #executeBatch(List)}, invalidate the bugs they change.
+     *
+     * @param cache A {@code MethodCache}, or null to stop caching
+     */
+    public void setCache(MethodCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return The {@link MethodCache} set with {@link #setCache(MethodCache)}, or null if results are not cached
+     */
+    public MethodCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Adds a {@link MethodListener} to be told about each method which completes successfully through this
+     * connector, whether by {@link #executeMethod(BugzillaMethod)}, {@link #executeMethodAsync(BugzillaMethod)}
+     * or {@link #executeBatch(List)}.
+     *
+     * @param listener A {@code MethodListener}
+     */
+    public void addMethodListener(MethodListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a {@link MethodListener} about completed methods.
+     *
+     * @param listener A {@code MethodListener} added with {@link #addMethodListener(MethodListener)}
+     */
+    public void removeMethodListener(MethodListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireMethodExecuted(BugzillaMethod method) {
+        for (MethodListener listener : listeners) {
+            listener.methodExecuted(method);
+        }
+    }
+
+    private static Map<Object, Object> getParameters(BugzillaMethod method, String token) {
+        Map<Object, Object> params = new HashMap<Object, Object>();
+        if (token != null) {
+            params.put("Bugzilla_token", token);
+        }
+
+        params.putAll(method.getParameterMap());
+        return params;
+    }
+
+    /**
+     * Hands the results of a successful call to its method, records them in the cache the call was made with,
+     * if any, and tracks the login state.
+     */
+    @SuppressWarnings("unchecked")//Must cast Object from client.execute()
+    private void setResults(BugzillaMethod method, Object results, MethodCache cache, long generation) {
+        if (!(results instanceof Map<?, ?>)) {
+            results = Collections.emptyMap();
+        }
+        Map<Object, Object> readOnlyResults = Collections.unmodifiableMap((Map<Object, Object>) results);
+        method.setResultMap(readOnlyResults);
+        if (cache != null) {
+            cache.record(method, readOnlyResults, generation);
+        }
+        if (method instanceof LogIn) {
+            LogIn login = (LogIn) method;
+            String email = (String) method.getParameterMap().get("login");
+            this.user = email.split("@")[0];
+            setToken(login.getToken());
+            this.connected = true;
+        }
+
+        if (method instanceof LogOut) {
+            this.connected = false;
+        }
+        fireMethodExecuted(method);
+    }
+
+    /**
+     * Executes a {@link BugzillaMethod} without blocking the caller. The method runs on the executor set with
+     * {@link #setAsyncExecutor(Executor)}, and the returned future completes with the same method object once
+     * its {@link BugzillaMethod#setResultMap(Map)} has been called. If Bugzilla returns a fault, the future
+     * completes exceptionally with the {@link BugzillaException} {@link #executeMethod(BugzillaMethod)} would have thrown.
+     * <p>
+     * Dependent calls can be chained without waiting in between, for example:
+     * <br />
+     * <code>
+     * conn.executeMethodAsync(new GetBug(id))<br />
+     * &nbsp;&nbsp;&nbsp;&nbsp;.thenCompose(get -&gt; conn.executeMethodAsync(new BugComments(get.getBug())))<br />
+     * </code>
+     *
+     * @param method A {@link BugzillaMethod} to call on the connected installation
+     * @param <T>    The type of {@code BugzillaMethod} executed
+     * @return A {@link CompletableFuture} completing with {@code method} once its results are available
+     */
+    public <T extends BugzillaMethod> CompletableFuture<T> executeMethodAsync(final T method) {
+        if (client == null) {
+            throw new IllegalStateException("Cannot execute a method without connecting!");
+        }
+        return runAsync(method, () -> executeMethod(method));
+    }
+
+    /**
+     * Performs an HTTP request and parses its response without blocking the caller, on the same executor as
+     * {@link #executeMethodAsync(BugzillaMethod)}. The returned future completes with the same parser object once
+     * its {@link BugzillaHttpParser#parse(Document)} has been called, or exceptionally with the
+     * {@link BugzillaException} {@link #executeHttpRequest(BugzillaHttpParser)} would have thrown.
+     *
+     * @param parser Holds the parser information for get the result object
+     * @param <T>    The type of {@code BugzillaHttpParser} executed
+     * @return A {@link CompletableFuture} completing with {@code parser} once its results are available
+     */
+    public <T extends BugzillaHttpParser> CompletableFuture<T> executeHttpRequestAsync(final T parser) {
+        return runAsync(parser, () -> executeHttpRequest(parser));
+    }
+
+    /**
+     * Runs a call on the asynchronous executor, completing the returned future with {@code result} once it returns.
+     */
+    private <T> CompletableFuture<T> runAsync(final T result, final Call call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        Executor executor = asyncExecutor;
+        if (executor == null) {
+            executor = DefaultAsyncExecutor.INSTANCE;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    call.execute();
+                    future.complete(result);
+                } catch (BugzillaException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * A blocking request run by {@link #runAsync(Object, Call)}.
+     */
+    private interface Call {
+        void execute() throws BugzillaException;
+    }
+
+    /**
+     * Sets the {@link Executor} used by {@link #executeMethodAsync(BugzillaMethod)} and
+     * {@link #executeHttpRequestAsync(BugzillaHttpParser)}. Each asynchronous call occupies
+     * one thread of the executor for the duration of its round trip, so its size bounds the number of requests in flight.
+     *
+     * @param executor An {@code Executor}, or null to use the shared default pool of daemon threads, which runs
+     * as many calls at once as a {@link PooledTransportConfig#DEFAULT_MAX_CONNECTIONS default connection pool} allows
+     */
+    public void setAsyncExecutor(Executor executor) {
+        this.asyncExecutor = executor;
     }
 
     public boolean getConnectionStatus() { return connected;}
@@ -263,10 +651,45 @@ public class BugzillaConnector {
         token = t;
     }
 
+    /**
+     * Holds the default executor for asynchronous calls, created on first use. It runs at most as many calls at
+     * once as a {@link PooledTransportConfig#DEFAULT_MAX_CONNECTIONS default connection pool} has connections,
+     * and queues up to {@link #MAX_QUEUED_CALLS} more; calls beyond that are rejected, failing their futures.
+     * Its threads are daemons and die when idle, so it needs no shutdown.
+     */
+    static final class DefaultAsyncExecutor {
+
+        static final int MAX_THREADS = PooledTransportConfig.DEFAULT_MAX_CONNECTIONS;
+
+        static final int MAX_QUEUED_CALLS = 10000;
+
+        static final String THREAD_PREFIX = "j2bugzilla-async-";
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        static final ThreadPoolExecutor INSTANCE = newExecutor();
+
+        private static ThreadPoolExecutor newExecutor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(MAX_QUEUED_CALLS), new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, THREAD_PREFIX + THREAD_COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
     /**
      * We need a transport class which will correctly handle cookies set by Bugzilla. This private
      * subclass will appropriately set the Cookie HTTP headers.
      * <p>
+     * A new transport is used for every request, so the connection it holds is never shared between
+     * threads. The cookies themselves are shared through an {@link AtomicReference} to an immutable list.
+     * <p>
      * Cookies are not support by Bugzilla 4.4.3+.
      *
      * @author Tom
@@ -274,17 +697,19 @@ public class BugzillaConnector {
     private static final class TransportWithCookies extends XmlRpcSunHttpTransport {
 
         /**
-         * A {@code List} of cookies received from the installation, used for authentication
+         * The cookies received from the installation, used for authentication
          */
-        public List<String> cookies = new ArrayList<String>();
+        private final AtomicReference<List<String>> cookies;
 
         /**
          * Creates a new {@link TransportWithCookies} object.
          *
          * @param pClient The {@link XmlRpcClient} that does the heavy lifting.
+         * @param cookies The cookies shared by every transport of the connector.
          */
-        public TransportWithCookies(XmlRpcClient pClient) {
+        public TransportWithCookies(XmlRpcClient pClient, AtomicReference<List<String>> cookies) {
             super(pClient);
+            this.cookies = cookies;
         }
 
         private URLConnection conn;
@@ -305,10 +730,11 @@ public class BugzillaConnector {
          */
         protected void initHttpHeaders(XmlRpcRequest request) throws XmlRpcClientException {
             super.initHttpHeaders(request);
-            if (cookies.size() > 0) {
+            List<String> current = cookies.get();
+            if (current.size() > 0) {
                 StringBuilder commaSep = new StringBuilder();
 
-                for (String str : cookies) {
+                for (String str : current) {
                     commaSep.append(str);
                     commaSep.append(",");
                 }
@@ -323,18 +749,19 @@ public class BugzillaConnector {
         }
 
         /**
-         * Retrieves cookie values from the HTTP header of Bugzilla responses
+         * Retrieves cookie values from the HTTP header of Bugzilla responses. Only the first
+         * response carrying cookies is recorded; concurrent responses race to publish theirs
+         * and the losers are discarded.
          *
          * @param conn
          */
         private void getCookies(URLConnection conn) {
-            if (cookies.size() == 0) {
+            List<String> current = cookies.get();
+            if (current.size() == 0 && conn != null) {
                 Map<String, List<String>> headers = conn.getHeaderFields();
                 if (headers.containsKey("Set-Cookie")) {//avoid NPE
                     List<String> vals = headers.get("Set-Cookie");
-                    for (String str : vals) {
-                        cookies.add(str);
-                    }
+                    cookies.compareAndSet(current, Collections.unmodifiableList(new ArrayList<String>(vals)));
                 }
             }
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ColumnSchema} class names the columns of a bug list. Every {@link HttpBug} from one search shares the
+ * same schema, and stores only an array of values in column order, rather than a {@code Map} of its own. 
+ * A {@code ColumnSchema} is immutable and may be shared between threads.
+ * 
+ * @author Tom
+ */
+public final class ColumnSchema {
+	
+	private final String[] names;
+	
+	private final Map<String, Integer> indexes;
+	
+	/**
+	 * The positions of the columns whose values are {@link HttpBug#isPooledColumn(String) pooled}, found on first
+	 * use. Threads racing to find them each build an equal array, and any may win.
+	 */
+	private volatile int[] pooledColumns;
+	
+	/**
+	 * Creates a new {@link ColumnSchema} with the given column keys, in order.
+	 * @param names The keys of the columns, as used in {@link HttpBug#getInternalState()}.
+	 * @throws IllegalArgumentException If a key appears more than once.
+	 */
+	public ColumnSchema(String... names) {
+		this.names = names.clone();
+		Map<String, Integer> indexes = new HashMap<String, Integer>(names.length * 2);
+		for(int i = 0; i < names.length; i++) {
+			if(indexes.put(names[i], i) != null) {
+				throw new IllegalArgumentException("Column " + names[i] + " appears more than once");
+			}
+		}
+		this.indexes = indexes;
+	}
+	
+	/**
+	 * @return The number of columns.
+	 */
+	public int size() {
+		return names.length;
+	}
+	
+	/**
+	 * @param index The position of a column.
+	 * @return The key of the column at that position.
+	 */
+	public String getName(int index) {
+		return names[index];
+	}
+	
+	/**
+	 * @return The keys of every column, in order.
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+	
+	/**
+	 * @param name The key of a column.
+	 * @return The position of the column, or -1 if there is no such column.
+	 */
+	public int indexOf(Object name) {
+		Integer index = indexes.get(name);
+		return index == null ? -1 : index;
+	}
+	
+	/**
+	 * @return The positions of the columns whose values are {@link HttpBug#isPooledColumn(String) pooled}.
+	 */
+	int[] getPooledColumns() {
+		int[] pooled = pooledColumns;
+		if(pooled == null) {
+			int count = 0;
+			pooled = new int[names.length];
+			for(int i = 0; i < names.length; i++) {
+				if(HttpBug.isPooledColumn(names[i])) {
+					pooled[count++] = i;
+				}
+			}
+			pooled = Arrays.copyOf(pooled, count);
+			pooledColumns = pooled;
+		}
+		return pooled;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@code FieldProjection} limits which fields Bugzilla returns for an object, using the
+ * {@code include_fields} and {@code exclude_fields} parameters understood by methods such as
+ * {@code Bug.get} and {@code Bug.comments}. Fetching only the fields a caller reads keeps responses
+ * small and quick to parse.
+ * <p>
+ * Objects built from a projected response remember the projection, so that asking for a field
+ * which was never fetched fails clearly instead of returning null.
+ * 
+ * @author Tom
+ *
+ */
+public final class FieldProjection {
+	
+	/**
+	 * A {@link FieldProjection} which fetches every field. This is the default.
+	 */
+	public static final FieldProjection ALL = new FieldProjection(Collections.<String>emptySet(), false);
+	
+	private final Set<String> fields;
+	
+	private final boolean include;
+	
+	private FieldProjection(Set<String> fields, boolean include) {
+		this.fields = fields;
+		this.include = include;
+	}
+	
+	/**
+	 * Creates a {@link FieldProjection} which fetches only the named fields.
+	 * @param fields The names of the fields to fetch, as Bugzilla knows them, such as {@code "id"} or {@code "status"}.
+	 * @return A new {@code FieldProjection}.
+	 */
+	public static FieldProjection include(String... fields) {
+		if(fields.length == 0) {
+			throw new IllegalArgumentException("At least one field is required");
+		}
+		return new FieldProjection(Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(fields))), true);
+	}
+	
+	/**
+	 * Creates a {@link FieldProjection} which fetches every field except the named ones.
+	 * @param fields The names of the fields to leave out, as Bugzilla knows them.
+	 * @return A new {@code FieldProjection}.
+	 */
+	public static FieldProjection exclude(String... fields) {
+		return new FieldProjection(Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(fields))), false);
+	}
+	
+	/**
+	 * Returns whether the named field is fetched under this {@link FieldProjection}.
+	 * @param field The name of a field.
+	 * @return True if the field is returned by Bugzilla.
+	 */
+	public boolean isFetched(String field) {
+		return include == fields.contains(field);
+	}
+	
+	/**
+	 * @return True if this {@link FieldProjection} fetches every field.
+	 */
+	public boolean isAll() {
+		return !include && fields.isEmpty();
+	}
+	
+	/**
+	 * @return True if this {@link FieldProjection} names the fields to fetch, false if it names the fields to leave out.
+	 */
+	boolean isInclude() {
+		return include;
+	}
+	
+	/**
+	 * @return The fields named by this {@link FieldProjection}.
+	 */
+	Set<String> getFields() {
+		return fields;
+	}
+	
+	/**
+	 * Adds the parameters describing this {@link FieldProjection} to the parameters of a {@link BugzillaMethod}.
+	 * @param params The parameter {@code Map} of a method.
+	 */
+	public void addTo(Map<Object, Object> params) {
+		params.remove("include_fields");
+		params.remove("exclude_fields");
+		if(!isAll()) {
+			params.put(include ? "include_fields" : "exclude_fields", fields.toArray());
+		}
+	}
+	
+}
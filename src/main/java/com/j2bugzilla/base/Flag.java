@@ -15,6 +15,9 @@
  */
 package com.j2bugzilla.base;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * The {@code Flag} class represents a custom flag in a Bugzilla installation. A {@code Flag} may have one
  * of several states: {@code '+', '-', '?' or ' '}. The meaning of a {@code Flag} is context-dependent.
@@ -31,24 +34,67 @@ public class Flag {
 		/**
 		 * The {@code UNSET} {@link Status} represents a {@link Flag} which has not been toggled. It is represented by ' '.
 		 */
-		UNSET, 
+		UNSET(" "), 
 		
 		/**
 		 * The {@code POSITIVE} {@link Status} represents a {@link Flag} which has been toggled to '+'.
 		 */
-		POSITIVE, 
+		POSITIVE("+"), 
 		
 		/**
 		 * The {@code NEGATIVE} {@link Status} represents a {@link Flag} which has been toggled to '-'.
 		 */
-		NEGATIVE, 
+		NEGATIVE("-"), 
 		
 		/**
 		 * The {@code UNKNOWN} {@link Status} represents a {@link Flag} which has been toggled to '?'.
 		 */
-		UNKNOWN 
+		UNKNOWN("?");
+		
+		private final String symbol;
+		
+		private Status(String symbol) {
+			this.symbol = symbol;
+		}
+		
+		/**
+		 * @return The character Bugzilla uses for this {@link Status}.
+		 */
+		String getSymbol() {
+			return symbol;
+		}
+		
+		/**
+		 * @param symbol The character Bugzilla uses for a flag status.
+		 * @return The matching {@link Status}.
+		 * @throws IllegalStateException If the symbol is not a known status.
+		 */
+		static Status fromSymbol(String symbol) {
+			if(symbol != null && symbol.length() == 1) {
+				switch(symbol.charAt(0)) {
+				case ' ': return UNSET;
+				case '+': return POSITIVE;
+				case '-': return NEGATIVE;
+				case '?': return UNKNOWN;
+				default: break;
+				}
+			}
+			throw new IllegalStateException("Unknown flag state");
+		}
 	}
 	
+	/**
+	 * Flags are shared between bugs rather than created for each one, up to this many distinct names.
+	 */
+	private static final int MAX_INTERNED_NAMES = 1024;
+	
+	private static final Status[] STATUSES = Status.values();
+	
+	/**
+	 * The shared {@link Flag Flags} for each name, by {@link Status} ordinal.
+	 */
+	private static final ConcurrentMap<String, Flag[]> INTERNED = new ConcurrentHashMap<String, Flag[]>();
+	
 	private final String name;
 	
 	private final Status status;
@@ -63,6 +109,31 @@ public class Flag {
 		this.status = status;
 	}
 	
+	/**
+	 * Returns a {@link Flag} with the given name and status, shared with every other caller asking for the same
+	 * pair so that bugs with common flags do not each hold their own copies.
+	 * @param name The name of the {@code Flag}.
+	 * @param status The {@link Status} of the {@code Flag}.
+	 * @return A {@code Flag} equal to {@code new Flag(name, status)}.
+	 */
+	static Flag valueOf(String name, Status status) {
+		Flag[] byStatus = INTERNED.get(name);
+		if(byStatus == null) {
+			if(INTERNED.size() >= MAX_INTERNED_NAMES) {
+				return new Flag(name, status);
+			}
+			byStatus = new Flag[STATUSES.length];
+			for(Status s : STATUSES) {
+				byStatus[s.ordinal()] = new Flag(name, s);
+			}
+			Flag[] existing = INTERNED.putIfAbsent(name, byStatus);
+			if(existing != null) {
+				byStatus = existing;
+			}
+		}
+		return byStatus[status.ordinal()];
+	}
+	
 	/**
 	 * Returns the unique name for this {@link Flag}.
 	 * @return A {@code String} representing the name.
@@ -79,4 +150,27 @@ public class Flag {
 		return status;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if(o == this) {
+			return true;
+		}
+		if(!(o instanceof Flag)) {
+			return false;
+		}
+		Flag other = (Flag)o;
+		return status == other.status && (name == null ? other.name == null : name.equals(other.name));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * (name == null ? 0 : name.hashCode()) + (status == null ? 0 : status.ordinal());
+	}
+	
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.parser.Parser;
+
+/**
+ * The {@code HtmlRowTokenizer} splits an HTML table into rows while it is being read, and hands each one to a
+ * {@link StreamingBugzillaHttpParser} as soon as it is complete. It only looks at tag boundaries, so it holds no more
+ * than one row of text at a time; each row is then parsed on its own by Jsoup.
+ * <p>
+ * Rows end at their {@code </tr>}, at the next {@code <tr>}, or at the end of the table, as HTML allows the closing tag
+ * to be left out. Tags are recognized by their names only, so text within attribute values, such as a summary
+ * quoted in a title, never ends a row or the table.
+ * 
+ * @author Tom
+ */
+final class HtmlRowTokenizer {
+	
+	/**
+	 * The number of characters read from the response at once.
+	 */
+	private static final int READ_SIZE = 8192;
+	
+	private final StreamingBugzillaHttpParser parser;
+	
+	/**
+	 * The lower case name of the tag ending the table, such as {@code /table}.
+	 */
+	private final String end;
+	
+	/**
+	 * The context rows are parsed in, so that Jsoup accepts a {@code <tr>} on its own.
+	 */
+	private final Element rowContext = new Element("tbody");
+	
+	/**
+	 * The text of the header or row being read.
+	 */
+	private final StringBuilder buffer = new StringBuilder();
+	
+	/**
+	 * The text of the tag being read.
+	 */
+	private final StringBuilder tag = new StringBuilder();
+	
+	private boolean inTag = false;
+	
+	/**
+	 * The quote character of the attribute value being read within a tag, or 0.
+	 */
+	private char quote = 0;
+	
+	private boolean inHeader = true;
+	
+	private boolean inRow = false;
+	
+	/**
+	 * Creates a new {@link HtmlRowTokenizer} feeding the given parser.
+	 * @param parser The {@link StreamingBugzillaHttpParser} receiving the table.
+	 */
+	HtmlRowTokenizer(StreamingBugzillaHttpParser parser) {
+		this.parser = parser;
+		this.end = tagName(parser.getEndOfParse().toLowerCase(Locale.ENGLISH));
+	}
+	
+	/**
+	 * Reads the table from the response. Lines before the one containing the parser's start marker are skipped; 
+	 * if there is no such line, the parser receives nothing.
+	 * @param in The response body.
+	 * @throws IOException If the response cannot be read.
+	 */
+	void tokenize(BufferedReader in) throws IOException {
+		String line = in.readLine();
+		while (line != null && !line.contains(parser.getStartOfParse())) {
+			line = in.readLine();
+		}
+		if (line == null) {
+			return;
+		}
+		for (int i = 0; i < line.length(); i++) {
+			if (!feed(line.charAt(i))) {
+				return;
+			}
+		}
+		char[] chunk = new char[READ_SIZE];
+		int read;
+		while ((read = in.read(chunk)) != -1) {
+			for (int i = 0; i < read; i++) {
+				if (!feed(chunk[i])) {
+					return;
+				}
+			}
+		}
+		finishRow();
+	}
+	
+	/**
+	 * Consumes one character of the table.
+	 * @return False once the end of the table has been reached.
+	 */
+	private boolean feed(char c) {
+		if (!inTag) {
+			if (c == '<') {
+				inTag = true;
+				tag.append(c);
+			} else {
+				buffer.append(c);
+			}
+			return true;
+		}
+		tag.append(c);
+		if (quote != 0) {
+			if (c == quote) {
+				quote = 0;
+			}
+		} else if (c == '"' || c == '\'') {
+			quote = c;
+		} else if (c == '>') {
+			inTag = false;
+			String text = tag.toString();
+			tag.setLength(0);
+			return endTag(text);
+		}
+		return true;
+	}
+	
+	/**
+	 * Handles a complete tag.
+	 * @return False if the tag ends the table.
+	 */
+	private boolean endTag(String text) {
+		String name = tagName(text.toLowerCase(Locale.ENGLISH));
+		if (name.equals(end)) {
+			finishRow();
+			return false;
+		}
+		if (name.equals("tr")) {
+			finishRow();
+			inRow = true;
+			buffer.append(text);
+		} else if (name.equals("/tr")) {
+			buffer.append(text);
+			finishRow();
+		} else {
+			buffer.append(text);
+		}
+		return true;
+	}
+	
+	/**
+	 * Hands over the header, if it has not been yet, or else the row being read, and starts over.
+	 */
+	private void finishRow() {
+		if (inHeader) {
+			inHeader = false;
+			parser.parseHeader(Jsoup.parse(buffer.toString()));
+		} else if (inRow) {
+			Element row = parseRow(buffer.toString());
+			if (row != null) {
+				parser.parseRow(row);
+			}
+		}
+		inRow = false;
+		buffer.setLength(0);
+	}
+	
+	private Element parseRow(String html) {
+		List<Node> nodes = Parser.parseFragment(html, rowContext, "");
+		for (Node node : nodes) {
+			if (node instanceof Element && ((Element) node).tagName().equals("tr")) {
+				return (Element) node;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Extracts the lower case name of a tag, with a leading slash for a closing tag.
+	 */
+	private static String tagName(String lower) {
+		int i = 1;
+		while (i < lower.length() && !Character.isWhitespace(lower.charAt(i)) && lower.charAt(i) != '>') {
+			i++;
+		}
+		return lower.substring(1, i);
+	}
+
+}
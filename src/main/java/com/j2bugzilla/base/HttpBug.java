@@ -1,43 +1,343 @@
 package com.j2bugzilla.base;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 /**
  * Created by springfield-home on 5/28/17.
+ * <p>
+ * The values of an {@code HttpBug} are kept in an array in the order of its {@link ColumnSchema}, which is shared
+ * by every bug from the same search. {@link #getInternalState()} is a read-only view over them.
+ * <p>
+ * The typed accessors, one for each {@code BugSearchParser.SearchColumn}, parse their column the first time they
+ * are called and return the cached result afterwards. An accessor returns null, or 0 for a number, if the bug list
+ * did not include its column or the value is blank, and throws an {@link IllegalStateException} if the value cannot
+ * be parsed. Accessors may be called from several threads at once.
  */
 public class HttpBug {
-    private Map<String, Object> internalState;
+    public static final String ID = "Id";
+    public static final String CREATION_DATE = "CreationTs";
+    public static final String LAST_UPDATE = "DeltaTs";
+    public static final String SEVERITY = "BugSeverity";
+    public static final String PRIORITY = "Priority";
+    public static final String STATUS = "BugStatus";
+    public static final String CASE_COUNT = "CaseCount";
+    public static final String ASSIGNED = "AssignedTo";
+    public static final String NEED_INFO = "Needinfo";
+    public static final String REPORTER = "Reporter";
+    public static final String CATEGORY = "Category";
+    public static final String COMPONENT = "Component";
+    public static final String FIX_BY = "FixBy";
+    public static final String BRANCH = "CfBranch";
+    public static final String VISS = "CfViss";
+    public static final String SUMMARY = "ShortDesc";
+
+    /**
+     * Parses the dates of the bug list, such as {@code 2017-05-26 13:38:57}. The time, or its seconds,
+     * may be left out. Immutable, so shared by every bug.
+     */
+    private static final DateTimeFormatter DATE_FORMAT = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd[ HH:mm[:ss]]")
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+            .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+            .toFormatter(Locale.ENGLISH);
+
+    /**
+     * The columns which take one of a few values across a whole installation, and so share their values through
+     * a {@link ValuePool}.
+     */
+    private static final Set<String> POOLED_COLUMNS = new HashSet<>(Arrays.asList(SEVERITY, PRIORITY, STATUS,
+            COMPONENT, CATEGORY, "Product", "Resolution", "OpSys", "RepPlatform"));
+
+    /**
+     * Stands in for a parsed value which was absent or blank.
+     */
+    private static final Object NONE = new Object();
+
+    private ColumnSchema schema;
+    private Object[] values;
+
+    /**
+     * The parsed values of the typed accessors, in column order, allocated on first use. Races between threads
+     * at worst parse a value twice, since every parsed value is immutable.
+     */
+    private Object[] parsed;
 
     HttpBug(Map<String, Object> internalState) {
-        this.internalState = internalState;
+        setInternalState(internalState);
     }
 
+    HttpBug(ColumnSchema schema, Object[] values) {
+        if (values.length != schema.size()) {
+            throw new IllegalArgumentException("Expected " + schema.size() + " values but found " + values.length);
+        }
+        this.schema = schema;
+        this.values = values;
+    }
+
+    /**
+     * @return A read-only {@code Map} view of the values of this bug, by column key
+     */
     public Map<String,Object> getInternalState() {
-        return internalState;
+        return new StateView();
     }
 
     public void setInternalState(Map<String, Object> internalState) {
-        this.internalState = internalState;
+        String[] names = new String[internalState.size()];
+        Object[] values = new Object[internalState.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : internalState.entrySet()) {
+            names[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+        this.schema = new ColumnSchema(names);
+        this.values = values;
+        this.parsed = null;
+    }
+
+    /**
+     * @param key The key of a column
+     * @return Whether the values of the column are shared through a {@link ValuePool}
+     */
+    static boolean isPooledColumn(String key) {
+        return POOLED_COLUMNS.contains(key);
+    }
+
+    /**
+     * Replaces the values of the pooled columns of this bug with their instances from the given pool.
+     *
+     * @param pool The {@link ValuePool} to share values through
+     */
+    void internValues(ValuePool pool) {
+        for (int index : schema.getPooledColumns()) {
+            if (values[index] instanceof String) {
+                values[index] = pool.intern((String) values[index]);
+            }
+        }
+    }
+
+    /**
+     * @return The {@link ColumnSchema} naming the values of this bug
+     */
+    public ColumnSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param key The key of a column
+     * @return The value of the column, or null if the bug has no such column
+     */
+    public Object get(String key) {
+        int index = schema.indexOf(key);
+        return index < 0 ? null : values[index];
     }
 
+    /**
+     * @return The time this bug last changed, in the default time zone, like {@link #getLastUpdate()}
+     */
     public Date getDeltaTs() {
-        // ex :2017-05-26 13:38:57
-        String sLastChange = (String) internalState.get("DeltaTs");
-        DateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        return getLastUpdate();
+    }
+
+    public String getId() {
+        return (String) get(ID);
+    }
+
+    /**
+     * @return The ID of this bug as a number
+     */
+    public int getBugId() {
+        return getInt(ID);
+    }
+
+    /**
+     * @return The time this bug was reported, in the default time zone
+     */
+    public Date getCreationDate() {
+        return getDate(CREATION_DATE);
+    }
+
+    /**
+     * @return The time this bug last changed, in the default time zone
+     */
+    public Date getLastUpdate() {
+        return getDate(LAST_UPDATE);
+    }
+
+    public String getSeverity() {
+        return getString(SEVERITY);
+    }
+
+    public String getPriority() {
+        return getString(PRIORITY);
+    }
+
+    public String getStatus() {
+        return getString(STATUS);
+    }
+
+    public int getCaseCount() {
+        return getInt(CASE_COUNT);
+    }
+
+    public String getAssignedTo() {
+        return getString(ASSIGNED);
+    }
+
+    public String getNeedInfo() {
+        return getString(NEED_INFO);
+    }
+
+    public String getReporter() {
+        return getString(REPORTER);
+    }
+
+    public String getCategory() {
+        return getString(CATEGORY);
+    }
+
+    public String getComponent() {
+        return getString(COMPONENT);
+    }
+
+    public String getFixBy() {
+        return getString(FIX_BY);
+    }
+
+    public String getBranch() {
+        return getString(BRANCH);
+    }
+
+    public String getViss() {
+        return getString(VISS);
+    }
+
+    public String getSummary() {
+        return getString(SUMMARY);
+    }
+
+    private String getString(String key) {
+        Object value = get(key);
+        return value == null ? null : value.toString();
+    }
+
+    private int getInt(String key) {
+        Object value = parse(key);
+        return value == null ? 0 : (Integer) value;
+    }
+
+    private Date getDate(String key) {
+        Object value = parse(key);
+        return value == null ? null : new Date((Long) value);
+    }
+
+    /**
+     * Returns the parsed value of a column, parsing and caching it on first use. Dates are cached as
+     * milliseconds, since {@code Date} is mutable.
+     */
+    private Object parse(String key) {
+        int index = schema.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object[] parsed = this.parsed;
+        if (parsed == null) {
+            parsed = new Object[values.length];
+            this.parsed = parsed;
+        }
+        Object value = parsed[index];
+        if (value == null) {
+            value = parseValue(key, values[index]);
+            parsed[index] = value;
+        }
+        return value == NONE ? null : value;
+    }
+
+    private Object parseValue(String key, Object raw) {
+        String text = raw == null ? "" : raw.toString().trim();
+        if (text.isEmpty()) {
+            return NONE;
+        }
         try {
-            Date date = format.parse(sLastChange);
-            return date;
-        } catch (ParseException e) {
-            e.printStackTrace();
+            if (key.equals(CREATION_DATE) || key.equals(LAST_UPDATE)) {
+                return LocalDateTime.parse(text, DATE_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            return Integer.valueOf(text);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalStateException("Cannot parse " + key + " value '" + text + "' of bug " + getId(), e);
         }
-        return null;
     }
 
-    public String getId() {
-        return (String) internalState.get("Id");
+    /**
+     * A read-only {@code Map} over the schema and values of this bug.
+     */
+    private final class StateView extends AbstractMap<String, Object> {
+
+        @Override
+        public Object get(Object key) {
+            int index = schema.indexOf(key);
+            return index < 0 ? null : values[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return schema.indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new Iterator<Map.Entry<String, Object>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < values.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new SimpleImmutableEntry<String, Object>(schema.getName(index), values[index]);
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException("HttpBug state is read-only");
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
     }
 }
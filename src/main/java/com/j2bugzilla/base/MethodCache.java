@@ -0,0 +1,368 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code MethodCache} keeps the results of read-only {@link BugzillaMethod BugzillaMethods} so that repeating a
+ * call with the same parameters does not go to the installation again. Install one with
+ * {@link BugzillaConnector#setCache(MethodCache)}.
+ * <p>
+ * Only methods with a time to live are cached. By default these are {@code Bug.get}, {@code Bug.comments} and
+ * {@code Bug.attachments}, kept for {@value #DEFAULT_BUG_TTL_SECONDS} seconds, and {@code Product.get} and
+ * {@code Bug.fields}, kept for {@value #DEFAULT_METADATA_TTL_SECONDS} seconds. When the cache is full, the least
+ * recently used result is evicted.
+ * <p>
+ * A bug's cached results are dropped as soon as the same connector successfully runs {@code Bug.update},
+ * {@code Bug.add_comment} or {@code Bug.add_attachment} against it, and the whole cache is cleared when the login
+ * changes. Changes made by anybody else are only seen once the results expire.
+ * <p>
+ * Cached results are shared by every method which receives them, and must not be modified. A {@code MethodCache}
+ * is thread-safe.
+ * 
+ * @author Tom
+ */
+public class MethodCache {
+	
+	/**
+	 * The default number of seconds bug results are kept.
+	 */
+	public static final long DEFAULT_BUG_TTL_SECONDS = 60;
+	
+	/**
+	 * The default number of seconds product and field results are kept.
+	 */
+	public static final long DEFAULT_METADATA_TTL_SECONDS = 600;
+	
+	/**
+	 * The methods which change a bug, and so invalidate its cached results.
+	 */
+	private static final Set<String> WRITE_METHODS = new HashSet<String>(Arrays.asList(
+			"Bug.update", "Bug.add_comment", "Bug.add_attachment"));
+	
+	/**
+	 * The methods which change the login, and so clear the cache.
+	 */
+	private static final Set<String> LOGIN_METHODS = new HashSet<String>(Arrays.asList("User.login", "User.logout"));
+	
+	private final int maxEntries;
+	
+	private final Map<String, Long> ttls = new HashMap<String, Long>();
+	
+	private final LinkedHashMap<Key, Entry> entries;
+	
+	private long hits;
+	
+	private long misses;
+	
+	private long evictions;
+	
+	/**
+	 * Counts the times cached results have been dropped by a write, a login or a call to {@link #invalidateBug(Object)}
+	 * or {@link #clear()}. Results fetched while it changed may predate the change, so they are not cached.
+	 */
+	private long generation;
+	
+	/**
+	 * Creates a new {@link MethodCache} holding up to the given number of results, with the default times to live.
+	 * @param maxEntries The largest number of results kept.
+	 */
+	public MethodCache(int maxEntries) {
+		if(maxEntries < 1) { throw new IllegalArgumentException("Cache size must be positive"); }
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		for(String method : new String[]{"Bug.get", "Bug.comments", "Bug.attachments"}) {
+			setTimeToLive(method, DEFAULT_BUG_TTL_SECONDS, TimeUnit.SECONDS);
+		}
+		for(String method : new String[]{"Product.get", "Bug.fields"}) {
+			setTimeToLive(method, DEFAULT_METADATA_TTL_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+	
+	/**
+	 * Sets how long the results of a method are kept. Write methods cannot be cached.
+	 * @param methodName The name of the method, as returned by {@link BugzillaMethod#getMethodName()}.
+	 * @param ttl The time to keep results for, or 0 to stop caching the method.
+	 * @param unit The unit of {@code ttl}.
+	 * @return A reference to the original {@code MethodCache}.
+	 */
+	public synchronized MethodCache setTimeToLive(String methodName, long ttl, TimeUnit unit) {
+		if(ttl < 0) { throw new IllegalArgumentException("Time to live cannot be negative"); }
+		if(WRITE_METHODS.contains(methodName) || LOGIN_METHODS.contains(methodName)) {
+			throw new IllegalArgumentException(methodName + " changes the installation and cannot be cached");
+		}
+		if(ttl == 0) {
+			ttls.remove(methodName);
+		} else {
+			ttls.put(methodName, unit.toNanos(ttl));
+		}
+		return this;
+	}
+	
+	/**
+	 * Returns the current generation, to be taken before a method is looked up and passed to
+	 * {@link #record(BugzillaMethod, Map, long)} with its results.
+	 * @return A number which changes whenever cached results are dropped.
+	 */
+	synchronized long getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * Looks up the cached results of a method.
+	 * @param method The {@link BugzillaMethod} about to be executed.
+	 * @return The results of an earlier call with the same name and parameters, or null if there are none which
+	 * have not expired.
+	 */
+	synchronized Map<Object, Object> get(BugzillaMethod method) {
+		if(!ttls.containsKey(method.getMethodName())) {
+			return null;
+		}
+		Key key = new Key(method);
+		Entry entry = entries.get(key);
+		if(entry != null && entry.expires - System.nanoTime() > 0) {
+			hits++;
+			return entry.results;
+		}
+		if(entry != null) {
+			entries.remove(key);
+		}
+		misses++;
+		return null;
+	}
+	
+	/**
+	 * Records the results of a successful call: caches them for a read method, or invalidates what they
+	 * change for a write method. The results of a read method are not cached if anything was invalidated since
+	 * {@code generation} was taken, as they may have been read before the change.
+	 * @param method The {@link BugzillaMethod} which was executed.
+	 * @param results Its read-only results.
+	 * @param generation The {@link #getGeneration() generation} taken before the method was looked up.
+	 */
+	synchronized void record(BugzillaMethod method, Map<Object, Object> results, long generation) {
+		String name = method.getMethodName();
+		if(LOGIN_METHODS.contains(name)) {
+			clear();
+			return;
+		}
+		if(WRITE_METHODS.contains(name)) {
+			Set<String> ids = new HashSet<String>();
+			collectIds(method.getParameterMap(), ids);
+			invalidate(ids);
+			return;
+		}
+		Long ttl = ttls.get(name);
+		if(ttl == null || generation != this.generation) {
+			return;
+		}
+		Set<String> ids = new HashSet<String>();
+		collectIds(method.getParameterMap(), ids);
+		collectResultIds(results, ids);
+		entries.put(new Key(method), new Entry(results, System.nanoTime() + ttl, ids));
+		Iterator<Entry> eldest = entries.values().iterator();
+		while(entries.size() > maxEntries) {
+			eldest.next();
+			eldest.remove();
+			evictions++;
+		}
+	}
+	
+	/**
+	 * Drops every cached result concerning the given bug.
+	 * @param id The ID or alias of a bug.
+	 */
+	public synchronized void invalidateBug(Object id) {
+		invalidate(Collections.singleton(id.toString()));
+	}
+	
+	/**
+	 * Drops every cached result.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		generation++;
+	}
+	
+	/**
+	 * @return The number of results currently cached, including any which have expired but not yet been dropped.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * @return The number of lookups answered from the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+	
+	/**
+	 * @return The number of lookups of cacheable methods which had to go to the installation.
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+	
+	/**
+	 * @return The number of results evicted because the cache was full.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+	
+	/**
+	 * @return The fraction of lookups answered from the cache, or 0 if there have been none.
+	 */
+	public synchronized double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double)hits / total;
+	}
+	
+	private void invalidate(Set<String> ids) {
+		generation++;
+		Iterator<Entry> it = entries.values().iterator();
+		while(it.hasNext()) {
+			if(!Collections.disjoint(it.next().bugIds, ids)) {
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Adds the bug IDs or aliases named by the {@code id} or {@code ids} parameter.
+	 */
+	private static void collectIds(Map<Object, Object> params, Set<String> ids) {
+		for(String name : new String[]{"id", "ids"}) {
+			Object value = params.get(name);
+			if(value instanceof Object[]) {
+				for(Object o : (Object[])value) {
+					ids.add(String.valueOf(o));
+				}
+			} else if(value instanceof Iterable<?>) {
+				for(Object o : (Iterable<?>)value) {
+					ids.add(String.valueOf(o));
+				}
+			} else if(value != null) {
+				ids.add(String.valueOf(value));
+			}
+		}
+	}
+	
+	/**
+	 * Adds the IDs and aliases of the bugs in a result, so that a bug fetched by alias is invalidated by its ID
+	 * and the other way around.
+	 */
+	private static void collectResultIds(Map<Object, Object> results, Set<String> ids) {
+		Object bugs = results.get("bugs");
+		if(bugs instanceof Object[]) {
+			for(Object o : (Object[])bugs) {
+				if(o instanceof Map<?, ?>) {
+					Map<?, ?> bug = (Map<?, ?>)o;
+					for(String field : new String[]{"id", "alias"}) {
+						Object value = bug.get(field);
+						if(value instanceof Object[]) {
+							for(Object alias : (Object[])value) {
+								ids.add(String.valueOf(alias));
+							}
+						} else if(value != null) {
+							ids.add(String.valueOf(value));
+						}
+					}
+				}
+			}
+		} else if(bugs instanceof Map<?, ?>) {
+			//Bug.comments and Bug.attachments key their results by bug ID
+			for(Object id : ((Map<?, ?>)bugs).keySet()) {
+				ids.add(String.valueOf(id));
+			}
+		}
+	}
+	
+	/**
+	 * Identifies a call by its method name and parameters. Arrays within the parameters are compared by content.
+	 */
+	private static final class Key {
+		
+		private final String methodName;
+		
+		private final Object params;
+		
+		Key(BugzillaMethod method) {
+			this.methodName = method.getMethodName();
+			this.params = canonical(method.getParameterMap());
+		}
+		
+		private static Object canonical(Object value) {
+			if(value instanceof Object[]) {
+				List<Object> list = new ArrayList<Object>();
+				for(Object o : (Object[])value) {
+					list.add(canonical(o));
+				}
+				return list;
+			}
+			if(value instanceof Map<?, ?>) {
+				Map<Object, Object> map = new HashMap<Object, Object>();
+				for(Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+					map.put(entry.getKey(), canonical(entry.getValue()));
+				}
+				return map;
+			}
+			return value;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)o;
+			return methodName.equals(other.methodName) && params.equals(other.params);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * methodName.hashCode() + params.hashCode();
+		}
+	}
+	
+	private static final class Entry {
+		
+		private final Map<Object, Object> results;
+		
+		private final long expires;
+		
+		private final Set<String> bugIds;
+		
+		Entry(Map<Object, Object> results, long expires, Set<String> bugIds) {
+			this.results = results;
+			this.expires = expires;
+			this.bugIds = bugIds;
+		}
+	}
+
+}
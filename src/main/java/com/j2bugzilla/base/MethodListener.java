@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+/**
+ * A {@code MethodListener} is told about each {@link BugzillaMethod} which completes successfully through a
+ * {@link BugzillaConnector}, so that it can follow the bugs an application fetches and changes without
+ * making calls of its own.
+ * 
+ * @author Tom
+ */
+public interface MethodListener {
+	
+	/**
+	 * Called once the results of a method have been handed to it, including results answered from the
+	 * connector's {@link MethodCache}. It is called on the thread which executed the method, so it should
+	 * return quickly; any exception it throws is passed on to the caller of the method.
+	 * @param method A {@link BugzillaMethod} whose results are available.
+	 */
+	void methodExecuted(BugzillaMethod method);
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.List;
+
+/**
+ * A {@code PageConsumer} receives the pages of results retrieved by a {@link ParallelPageFetcher}.
+ * 
+ * @author Tom
+ *
+ * @param <T> The type of result on each page
+ */
+public interface PageConsumer<T> {
+	
+	/**
+	 * Handles one page of results. Pages are always handed over on the thread which called
+	 * {@link ParallelPageFetcher#fetchAll(PageConsumer)}, one at a time.
+	 * @param offset The offset of the first result on the page within the whole result set.
+	 * @param page The results on the page. Never empty.
+	 */
+	void accept(int offset, List<T> page);
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@code PageSource} fetches one page of a larger result set, such as a search, by its offset.
+ * See {@link ParallelPageFetcher}.
+ * 
+ * @author Tom
+ *
+ * @param <T> The type of result on each page
+ */
+public interface PageSource<T> {
+	
+	/**
+	 * Starts fetching a page of results. A page shorter than {@code limit} marks the end of the result set.
+	 * @param offset The number of results to skip.
+	 * @param limit The largest number of results to return.
+	 * @return A {@code CompletableFuture} completing with the results on the page, or exceptionally with a
+	 * {@link BugzillaException} if the page could not be fetched.
+	 */
+	CompletableFuture<List<T>> fetchPage(int offset, int limit);
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The {@code ParallelPageFetcher} retrieves a large result set as a series of pages which are fetched concurrently.
+ * Up to {@link #setMaxInFlight(int) max in flight} pages are requested from a {@link PageSource} at once, and each
+ * page is handed to a {@link PageConsumer} as soon as it may be delivered. Fetching stops at the first empty page, or
+ * the first page shorter than the first page.
+ * <p>
+ * Installations may cap their pages below the {@link #setPageSize(int) page size}, so the first page is fetched alone.
+ * If it comes back short, later pages are requested at its size, since only the next page can tell whether the
+ * results ended or were capped.
+ * <p>
+ * In ordered mode, pages are delivered by increasing offset; pages which arrive early are held until the pages before
+ * them have been delivered, and count towards the limit on pages in flight. In unordered mode, pages are delivered in
+ * the order they arrive.
+ * <p>
+ * The number of pages actually running at once is also bounded by the executor of the {@link BugzillaConnector}, see
+ * {@link BugzillaConnector#setAsyncExecutor(java.util.concurrent.Executor)}, and by the connection pool if one is used.
+ * Since pages are requested by offset, bugs which start or stop matching the search while it runs may be skipped or
+ * delivered twice.
+ * 
+ * @author Tom
+ *
+ * @param <T> The type of result on each page
+ */
+public class ParallelPageFetcher<T> {
+	
+	/**
+	 * The default number of results on each page.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 500;
+	
+	/**
+	 * The default number of pages fetched at once.
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+	
+	private final PageSource<T> source;
+	
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	
+	private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	
+	private boolean ordered = true;
+	
+	/**
+	 * Creates a new {@link ParallelPageFetcher} for the given result set.
+	 * @param source The {@link PageSource} which fetches each page.
+	 */
+	public ParallelPageFetcher(PageSource<T> source) {
+		this.source = source;
+	}
+	
+	/**
+	 * Sets the number of results requested on each page. Defaults to {@value #DEFAULT_PAGE_SIZE}.
+	 * @param pageSize A positive number of results.
+	 * @return A reference to the original {@code ParallelPageFetcher}.
+	 */
+	public ParallelPageFetcher<T> setPageSize(int pageSize) {
+		if(pageSize < 1) { throw new IllegalArgumentException("Page size must be positive"); }
+		this.pageSize = pageSize;
+		return this;
+	}
+	
+	/**
+	 * Sets the largest number of pages being fetched, or waiting to be delivered, at once. 
+	 * Defaults to {@value #DEFAULT_MAX_IN_FLIGHT}.
+	 * @param maxInFlight A positive number of pages.
+	 * @return A reference to the original {@code ParallelPageFetcher}.
+	 */
+	public ParallelPageFetcher<T> setMaxInFlight(int maxInFlight) {
+		if(maxInFlight < 1) { throw new IllegalArgumentException("Pages in flight must be positive"); }
+		this.maxInFlight = maxInFlight;
+		return this;
+	}
+	
+	/**
+	 * Sets whether pages are delivered by increasing offset, or as soon as they arrive. Defaults to ordered.
+	 * @param ordered True to deliver pages in order.
+	 * @return A reference to the original {@code ParallelPageFetcher}.
+	 */
+	public ParallelPageFetcher<T> setOrdered(boolean ordered) {
+		this.ordered = ordered;
+		return this;
+	}
+	
+	/**
+	 * Fetches every page of the result set, handing each non-empty page to the consumer on the calling thread. 
+	 * A slow consumer holds back further requests rather than letting pages pile up.
+	 * @param consumer The {@link PageConsumer} receiving the results.
+	 * @return The total number of results delivered.
+	 * @throws BugzillaException If a page could not be fetched. No further pages are delivered; 
+	 * pages already in flight are left to finish and discarded.
+	 */
+	public int fetchAll(PageConsumer<T> consumer) throws BugzillaException {
+		BlockingQueue<Page<T>> arrived = new LinkedBlockingQueue<Page<T>>();
+		TreeMap<Integer, List<T>> waiting = new TreeMap<Integer, List<T>>();
+		int nextRequest = 0;
+		int nextDelivery = 0;
+		int running = 0;
+		int end = Integer.MAX_VALUE;
+		int delivered = 0;
+		//The size of a full page, which is not known until the first page arrives
+		int step = 0;
+		
+		while(true) {
+			while(nextRequest <= end && running + waiting.size() < maxInFlight && (step > 0 || running == 0)) {
+				request(nextRequest, step > 0 ? step : pageSize, arrived);
+				nextRequest += step;
+				running++;
+			}
+			if(running == 0) {
+				break;
+			}
+			
+			Page<T> page = take(arrived);
+			running--;
+			if(page.error != null) {
+				throw unwrap(page.error);
+			}
+			if(step == 0) {
+				int size = page.results.size();
+				step = size > 0 && size < pageSize ? size : pageSize;
+				nextRequest = step;
+			}
+			if(page.results.isEmpty() || page.results.size() < step) {
+				end = Math.min(end, page.offset);
+			}
+			if(page.offset > end) {
+				continue;
+			}
+			if(!ordered) {
+				delivered += deliver(consumer, page.offset, page.results);
+				continue;
+			}
+			waiting.put(page.offset, page.results);
+			while(nextDelivery <= end && !waiting.isEmpty() && waiting.firstKey() == nextDelivery) {
+				delivered += deliver(consumer, nextDelivery, waiting.pollFirstEntry().getValue());
+				nextDelivery += step;
+			}
+		}
+		return delivered;
+	}
+	
+	/**
+	 * Starts fetching a page, queueing it on {@code arrived} once it completes either way.
+	 */
+	private void request(final int offset, int limit, final BlockingQueue<Page<T>> arrived) {
+		source.fetchPage(offset, limit).whenComplete((results, error) -> arrived.add(new Page<T>(offset, results, error)));
+	}
+	
+	private int deliver(PageConsumer<T> consumer, int offset, List<T> results) {
+		if(!results.isEmpty()) {
+			consumer.accept(offset, results);
+		}
+		return results.size();
+	}
+	
+	private static <T> Page<T> take(BlockingQueue<Page<T>> arrived) throws BugzillaException {
+		try {
+			return arrived.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BugzillaException("Interrupted while waiting for a page", e);
+		}
+	}
+	
+	private static BugzillaException unwrap(Throwable error) {
+		if(error instanceof CompletionException && error.getCause() != null) {
+			error = error.getCause();
+		}
+		if(error instanceof BugzillaException) {
+			return (BugzillaException)error;
+		}
+		return new BugzillaException("Could not fetch page", error);
+	}
+	
+	/**
+	 * One completed page request: its results, or the reason it failed.
+	 */
+	private static final class Page<T> {
+		
+		private final int offset;
+		
+		private final List<T> results;
+		
+		private final Throwable error;
+		
+		Page(int offset, List<T> results, Throwable error) {
+			this.offset = offset;
+			this.results = results;
+			this.error = error;
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcClientException;
+import org.apache.xmlrpc.client.XmlRpcHttpClientConfig;
+import org.apache.xmlrpc.client.XmlRpcHttpTransport;
+import org.apache.xmlrpc.client.XmlRpcHttpTransportException;
+import org.apache.xmlrpc.common.XmlRpcStreamRequestConfig;
+import org.apache.xmlrpc.util.HttpUtil;
+import org.xml.sax.SAXException;
+
+/**
+ * An XML-RPC transport which sends each request through a shared, pooled Apache {@link CloseableHttpClient}
+ * instead of a fresh {@link java.net.URLConnection}. A new {@code PooledHttpTransport} is created for every
+ * request by {@link PooledHttpTransportFactory}; the underlying client and its connections are shared.
+ * <p>
+ * Cookies set by the installation are kept in the client's cookie store, so no extra header handling is
+ * needed here.
+ * 
+ * @author Tom
+ */
+class PooledHttpTransport extends XmlRpcHttpTransport {
+
+	private static final String USER_AGENT = XmlRpcHttpTransport.USER_AGENT + " (Apache HttpClient Transport)";
+	
+	private final CloseableHttpClient httpClient;
+	
+	private HttpPost post;
+	
+	private CloseableHttpResponse response;
+	
+	/**
+	 * Creates a new {@link PooledHttpTransport} for a single request.
+	 * @param client The {@link XmlRpcClient} that does the heavy lifting.
+	 * @param httpClient The shared, pooled client to send the request through.
+	 */
+	PooledHttpTransport(XmlRpcClient client, CloseableHttpClient httpClient) {
+		super(client, USER_AGENT);
+		this.httpClient = httpClient;
+	}
+	
+	@Override
+	protected void initHttpHeaders(XmlRpcRequest request) throws XmlRpcClientException {
+		XmlRpcHttpClientConfig config = (XmlRpcHttpClientConfig) request.getConfig();
+		try {
+			post = new HttpPost(config.getServerURL().toURI());
+		} catch (URISyntaxException e) {
+			throw new XmlRpcClientException("Host URL is malformed; URL supplied was " + config.getServerURL(), e);
+		}
+		super.initHttpHeaders(request);
+	}
+
+	@Override
+	protected void setRequestHeader(String header, String value) {
+		post.setHeader(header, value);
+	}
+	
+	/**
+	 * The request entity reports its own length; HttpClient rejects an explicit {@code Content-Length} header.
+	 */
+	@Override
+	protected void setContentLength(int length) {
+	}
+
+	@Override
+	protected void writeRequest(ReqWriter writer) throws XmlRpcException, IOException, SAXException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(out);
+		post.setEntity(new ByteArrayEntity(out.toByteArray()));
+		
+		response = httpClient.execute(post);
+		int status = response.getStatusLine().getStatusCode();
+		if(status < 200 || status > 299) {
+			throw new XmlRpcHttpTransportException(status, response.getStatusLine().getReasonPhrase());
+		}
+	}
+
+	@Override
+	protected InputStream getInputStream() throws XmlRpcException {
+		try {
+			return response.getEntity().getContent();
+		} catch (IOException e) {
+			throw new XmlRpcClientException("Failed to read the response: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	protected boolean isResponseGzipCompressed(XmlRpcStreamRequestConfig config) {
+		Header encoding = response.getFirstHeader("Content-Encoding");
+		return encoding != null && HttpUtil.isUsingGzipEncoding(encoding.getValue());
+	}
+
+	/**
+	 * Releases the connection back to the pool. The rest of the response is consumed first so that
+	 * the connection can be kept alive and reused.
+	 */
+	@Override
+	protected void close() throws XmlRpcClientException {
+		if(response == null) {
+			return;
+		}
+		try {
+			EntityUtils.consume(response.getEntity());
+			response.close();
+		} catch (IOException e) {
+			throw new XmlRpcClientException("Failed to release the connection: " + e.getMessage(), e);
+		} finally {
+			response = null;
+		}
+	}
+	
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcTransport;
+import org.apache.xmlrpc.client.XmlRpcTransportFactoryImpl;
+
+/**
+ * Creates {@link PooledHttpTransport PooledHttpTransports} which share a single pooled
+ * {@link CloseableHttpClient}, configured from a {@link PooledTransportConfig}. The factory
+ * also runs a daemon thread which closes expired and idle connections.
+ * 
+ * @author Tom
+ */
+class PooledHttpTransportFactory extends XmlRpcTransportFactoryImpl {
+	
+	private final PoolingHttpClientConnectionManager connectionManager;
+	
+	private final CloseableHttpClient httpClient;
+	
+	private final Thread evictor;
+	
+	/**
+	 * Creates a new {@link PooledHttpTransportFactory} and starts its connection pool.
+	 * @param client The {@link XmlRpcClient} which will use the created transports.
+	 * @param config A {@link PooledTransportConfig} describing the pool.
+	 */
+	PooledHttpTransportFactory(XmlRpcClient client, final PooledTransportConfig config) {
+		super(client);
+		
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(config.getMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+		connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+				.setSoKeepAlive(true)
+				.setTcpNoDelay(true)
+				.setSoTimeout(config.getSocketTimeout())
+				.build());
+		
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(config.getConnectTimeout())
+				.setSocketTimeout(config.getSocketTimeout())
+				.setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+				.build();
+		
+		httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setDefaultCookieStore(new BasicCookieStore())
+				.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+					@Override
+					public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+						long advertised = super.getKeepAliveDuration(response, context);
+						if(advertised < 0) {
+							return config.getKeepAlive();
+						}
+						return Math.min(advertised, config.getKeepAlive());
+					}
+				})
+				//The XML-RPC transport handles gzip responses itself
+				.disableContentCompression()
+				.build();
+		
+		evictor = new Thread("j2bugzilla-connection-evictor") {
+			@Override
+			public void run() {
+				try {
+					while(!isInterrupted()) {
+						Thread.sleep(config.getEvictionInterval());
+						connectionManager.closeExpiredConnections();
+						if(config.getIdleTimeout() > 0) {
+							connectionManager.closeIdleConnections(config.getIdleTimeout(), TimeUnit.MILLISECONDS);
+						}
+					}
+				} catch (InterruptedException e) {
+					//Shutting down
+				}
+			}
+		};
+		evictor.setDaemon(true);
+		evictor.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public XmlRpcTransport getTransport() {
+		return new PooledHttpTransport(getClient(), httpClient);
+	}
+	
+	/**
+	 * @return The pooled {@link CloseableHttpClient} shared by all transports from this factory.
+	 */
+	CloseableHttpClient getHttpClient() {
+		return httpClient;
+	}
+	
+	/**
+	 * Stops idle eviction and closes every pooled connection.
+	 */
+	void shutdown() {
+		evictor.interrupt();
+		connectionManager.shutdown();
+	}
+
+}
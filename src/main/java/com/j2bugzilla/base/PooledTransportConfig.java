@@ -0,0 +1,201 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+/**
+ * The {@code PooledTransportConfig} class describes how a {@link BugzillaConnector} should manage
+ * its pool of persistent HTTP connections when it is connected using
+ * {@link BugzillaConnector#connectTo(java.net.URL, String, String, PooledTransportConfig)}. Connections
+ * are kept alive between requests and reused, so repeated calls to the same installation do not pay
+ * for a new TCP (and TLS) handshake each time.
+ * 
+ * Settings are applied when the connector connects; changing a {@code PooledTransportConfig} afterwards
+ * has no effect on connectors which have already been created with it.
+ * 
+ * @author Tom
+ *
+ */
+public class PooledTransportConfig {
+	
+	/**
+	 * The maximum number of connections a pool holds open at once unless {@link #setMaxConnections(int) set}.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 20;
+	
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+	
+	private int maxConnectionsPerRoute = 20;
+	
+	private int connectTimeout = 30000;
+	
+	private int socketTimeout = 60000;
+	
+	private int connectionRequestTimeout = 30000;
+	
+	private long keepAlive = 60000;
+	
+	private long idleTimeout = 30000;
+	
+	private long evictionInterval = 5000;
+	
+	/**
+	 * Sets the maximum number of connections the pool may hold open at once, across all hosts.
+	 * Defaults to 20.
+	 * @param maxConnections A positive number of connections.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setMaxConnections(int maxConnections) {
+		if(maxConnections < 1) { throw new IllegalArgumentException("At least one connection is required"); }
+		this.maxConnections = maxConnections;
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum number of connections the pool may hold open to a single host.
+	 * Defaults to 20.
+	 * @param maxConnectionsPerRoute A positive number of connections.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		if(maxConnectionsPerRoute < 1) { throw new IllegalArgumentException("At least one connection is required"); }
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+	
+	/**
+	 * Sets how long to wait, in milliseconds, for a new connection to be established.
+	 * A value of zero waits indefinitely. Defaults to 30 seconds.
+	 * @param connectTimeout A timeout in milliseconds.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+		return this;
+	}
+	
+	/**
+	 * Sets how long to wait, in milliseconds, between packets of a response before giving up.
+	 * A value of zero waits indefinitely. Defaults to 60 seconds.
+	 * @param socketTimeout A timeout in milliseconds.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setSocketTimeout(int socketTimeout) {
+		this.socketTimeout = socketTimeout;
+		return this;
+	}
+	
+	/**
+	 * Sets how long to wait, in milliseconds, for a connection to become free when every
+	 * pooled connection is in use. A value of zero waits indefinitely. Defaults to 30 seconds.
+	 * @param connectionRequestTimeout A timeout in milliseconds.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setConnectionRequestTimeout(int connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+		return this;
+	}
+	
+	/**
+	 * Sets the longest time, in milliseconds, a connection is kept alive for reuse. If the installation
+	 * advertises a shorter {@code Keep-Alive} timeout, that value is honored instead. Defaults to 60 seconds.
+	 * @param keepAlive A duration in milliseconds.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setKeepAlive(long keepAlive) {
+		this.keepAlive = keepAlive;
+		return this;
+	}
+	
+	/**
+	 * Sets how long, in milliseconds, a pooled connection may sit unused before it is closed. 
+	 * A value of zero or less disables idle eviction. Defaults to 30 seconds.
+	 * @param idleTimeout A duration in milliseconds.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+	
+	/**
+	 * Sets how often, in milliseconds, the pool is checked for expired and idle connections.
+	 * Defaults to 5 seconds.
+	 * @param evictionInterval A positive duration in milliseconds.
+	 * @return A reference to the original {@code PooledTransportConfig}.
+	 */
+	public PooledTransportConfig setEvictionInterval(long evictionInterval) {
+		if(evictionInterval < 1) { throw new IllegalArgumentException("Eviction interval must be positive"); }
+		this.evictionInterval = evictionInterval;
+		return this;
+	}
+
+	/**
+	 * @return The maximum number of pooled connections across all hosts.
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * @return The maximum number of pooled connections to a single host.
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	/**
+	 * @return The connect timeout in milliseconds.
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * @return The socket read timeout in milliseconds.
+	 */
+	public int getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * @return The time to wait for a free pooled connection in milliseconds.
+	 */
+	public int getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	/**
+	 * @return The longest time a connection is kept alive in milliseconds.
+	 */
+	public long getKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * @return The idle time after which a connection is closed, in milliseconds.
+	 */
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * @return The interval between eviction runs in milliseconds.
+	 */
+	public long getEvictionInterval() {
+		return evictionInterval;
+	}
+	
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * A {@code ReaderBugzillaHttpParser} reads the response body itself, for responses which are not HTML, such as the
+ * CSV form of a bug list. {@link BugzillaConnector#executeHttpRequest(BugzillaHttpParser)} calls {@link #parse(Reader)}
+ * in place of {@link #parse(org.jsoup.nodes.Document)} for any parser implementing it, and
+ * {@link #getStartOfParse()} and {@link #getEndOfParse()} are not used.
+ * <p>
+ * A response which was already read into a {@link Document} is parsed from the document's text.
+ * 
+ * @author Tom
+ */
+public interface ReaderBugzillaHttpParser extends BugzillaHttpParser {
+	
+	/**
+	 * Parses the response body.
+	 * @param response The body of the response, which is closed by the caller.
+	 * @throws IOException If the response cannot be read or is malformed.
+	 */
+	void parse(Reader response) throws IOException;
+	
+	/**
+	 * Parses the text of a response which was already read into a document.
+	 * @param doc The response.
+	 * @throws UncheckedIOException If the text is malformed.
+	 */
+	@Override
+	default void parse(Document doc) {
+		try {
+			parse(new StringReader(doc.body() != null ? doc.body().wholeText() : doc.wholeText()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * @return Null, since the whole response is read.
+	 */
+	@Override
+	default String getStartOfParse() {
+		return null;
+	}
+	
+	/**
+	 * @return Null, since the whole response is read.
+	 */
+	@Override
+	default String getEndOfParse() {
+		return null;
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import org.jsoup.nodes.Element;
+
+/**
+ * A {@code StreamingBugzillaHttpParser} receives the table it parses one row at a time, as the response is read,
+ * instead of as a single {@link org.jsoup.nodes.Document}. {@link BugzillaConnector#executeHttpRequest(BugzillaHttpParser)}
+ * uses this in place of {@link #parse(org.jsoup.nodes.Document)} for any parser implementing it, so only one row of the
+ * response is held in memory at once.
+ * <p>
+ * The table is taken to begin on the line containing {@link #getStartOfParse()} and to end at the first tag named
+ * like {@link #getEndOfParse()}, such as {@code </table>}.
+ * 
+ * @author Tom
+ */
+public interface StreamingBugzillaHttpParser extends BugzillaHttpParser {
+	
+	/**
+	 * Handles everything from the start of the table up to its first {@code <tr>}, such as its {@code <col>} elements.
+	 * This is called once, before any row.
+	 * @param header An {@code Element} holding the start of the table.
+	 */
+	void parseHeader(Element header);
+	
+	/**
+	 * Handles one row of the table, including any header rows.
+	 * @param row A {@code <tr>} {@code Element}.
+	 */
+	void parseRow(Element row);
+
+}
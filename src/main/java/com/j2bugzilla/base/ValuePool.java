@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.base;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@code ValuePool} class collapses equal {@code Strings} into one shared instance, for fields such as the status,
+ * priority or product of a bug, which take one of only a few values across a whole installation. Each bug decoded from
+ * a response otherwise holds its own copy of every such value.
+ * <p>
+ * A pool holds at most a fixed number of values, so that fields with many distinct values cannot grow it without
+ * bound. Once it is full, values not yet in the pool are returned as they are. A {@code ValuePool} may be shared
+ * between threads.
+ * 
+ * @author Tom
+ */
+public final class ValuePool {
+	
+	/**
+	 * The number of values held by the {@link #getDefault() default pool}.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 4096;
+	
+	private static final ValuePool DEFAULT = new ValuePool(DEFAULT_MAX_SIZE);
+	
+	private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+	
+	private final int maxSize;
+	
+	/**
+	 * Creates a new, empty {@link ValuePool}.
+	 * @param maxSize The most values the pool may hold.
+	 * @throws IllegalArgumentException If {@code maxSize} is negative.
+	 */
+	public ValuePool(int maxSize) {
+		if(maxSize < 0) {
+			throw new IllegalArgumentException("Negative pool size " + maxSize);
+		}
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Returns the pool used by {@link BugFactory} for the fields of every {@link Bug} and {@link HttpBug} it creates.
+	 * It is seeded with the results of each {@link com.j2bugzilla.rpc.GetLegalValues GetLegalValues} method.
+	 * @return The default {@link ValuePool}.
+	 */
+	public static ValuePool getDefault() {
+		return DEFAULT;
+	}
+	
+	/**
+	 * Returns the pooled instance of a value, adding the value to the pool if it is not yet held and the pool is
+	 * not full.
+	 * @param value A {@code String}, which may be null.
+	 * @return An equal {@code String} from the pool, or {@code value} itself if the pool is full, or null if
+	 * {@code value} was null.
+	 */
+	public String intern(String value) {
+		if(value == null) {
+			return null;
+		}
+		String pooled = values.get(value);
+		if(pooled == null) {
+			if(values.size() >= maxSize) {
+				return value;
+			}
+			pooled = values.putIfAbsent(value, value);
+		}
+		return pooled == null ? value : pooled;
+	}
+	
+	/**
+	 * Adds each of the given values to the pool, while it has room, such as the legal values of a field.
+	 * @param values The values to add.
+	 */
+	public void addAll(Collection<String> values) {
+		for(String value : values) {
+			intern(value);
+		}
+	}
+	
+	/**
+	 * @return The number of values in the pool.
+	 */
+	public int size() {
+		return values.size();
+	}
+	
+	/**
+	 * @return The most values the pool may hold.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * Removes every value from the pool. Values already handed out stay shared by whatever holds them.
+	 */
+	public void clear() {
+		values.clear();
+	}
+
+}
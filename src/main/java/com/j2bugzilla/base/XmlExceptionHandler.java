@@ -96,4 +96,16 @@ public final class XmlExceptionHandler {
 		return new BugzillaException(message, exception);
 	}
 	
+	/**
+	 * Translates a fault returned as a struct rather than thrown, as happens for the individual
+	 * methods of a {@code system.multicall} request, into a subclass of {@link BugzillaException}
+	 * @param fault A {@code Map} holding the {@code faultCode} and {@code faultString} of a fault
+	 * @return A subclass of {@code BugzillaException}
+	 */
+	public static BugzillaException handleFault(Map<Object, Object> fault) {
+		Object code = fault.get("faultCode");
+		int faultCode = code instanceof Integer ? (Integer)code : -1;
+		return handleFault(new XmlRpcException(faultCode, (String)fault.get("faultString")));
+	}
+	
 }
@@ -0,0 +1,213 @@
+package com.j2bugzilla.http;
+
+import com.j2bugzilla.base.BugFactory;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaHttpParser;
+import com.j2bugzilla.base.ColumnSchema;
+import com.j2bugzilla.base.HttpBug;
+import com.j2bugzilla.base.PageSource;
+import org.apache.commons.lang3.text.WordUtils;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The part of a {@code buglist.cgi} search shared by every form of the bug list: the query, its columns and paging,
+ * and turning the values of each row into an {@link HttpBug}. Subclasses read one form of the response, see
+ * {@link BugSearchParser} for the HTML table and {@link BugSearchCsvParser} for CSV.
+ * <p>
+ * Bugs are collected for {@link #getResults()}, or handed straight to the consumer given to
+ * {@link #setBugConsumer(Consumer)}.
+ */
+public abstract class BugListParser implements BugzillaHttpParser {
+    public static final String PATH = "buglist.cgi";
+    public static final char[] MINUS = new char[]{'_'};
+    public static final String UNDERSCORE = "_";
+    public static final String JOIN_ESPACE = "";
+    public static final String LIMIT = "limit";
+    public static final String OFFSET = "offset";
+    public static final String ORDER = "order";
+    public static final String BUG_ID = "bug_id";
+    public static final String ID = "id";
+
+    public final List<HttpBug> listaBugs = new LinkedList();
+
+    private final Map<Object, Object> params = new HashMap<Object, Object>();
+
+    private ColumnSchema schema = new ColumnSchema();
+
+    private final BugFactory factory = new BugFactory();
+
+    private Consumer<HttpBug> bugConsumer;
+
+    protected BugListParser(BugSearchParser.SearchQuery... queries) {
+        params.put(BugSearchParser.SearchLimiter.QUERY_FORMAT.getName(), "advanced");
+        if (queries.length == 0) {
+            throw new IllegalArgumentException("At least one search query is required");
+        }
+
+        for (BugSearchParser.SearchQuery query : queries) {
+            params.put(query.getLimiter().getName(), query.getQuery());
+        }
+    }
+
+    protected BugListParser(BugListParser other) {
+        params.putAll(other.params);
+    }
+
+    /**
+     * Creates a parser of the same kind with the same parameters as this one, but no results, so that
+     * {@link #page(int, int)} returns parsers of the subclass's own kind.
+     *
+     * @return A new parser which has not been executed
+     */
+    protected abstract BugListParser copy();
+
+    /**
+     * Hands each bug to the given consumer as soon as its row has been read, instead of collecting it
+     * for {@link #getResults()}. Use this to process result sets too large to hold in memory.
+     *
+     * @param bugConsumer A {@code Consumer} called once for every bug, in the order of the list
+     */
+    public void setBugConsumer(Consumer<HttpBug> bugConsumer) {
+        this.bugConsumer = bugConsumer;
+    }
+
+    /**
+     * Returns a new parser with the same query and columns as this one, for a different page of results.
+     * Pages past the last result parse as empty. Pages are sorted by bug ID, so that each page is cut from the
+     * same ordering of the results.
+     *
+     * @param offset The number of matching bugs to skip
+     * @param limit  The largest number of bugs to return
+     * @return A new parser of the same kind which has not been executed
+     */
+    public BugListParser page(int offset, int limit) {
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("Offset cannot be negative and limit must be positive");
+        }
+        BugListParser page = copy();
+        page.params.put(OFFSET, offset);
+        page.params.put(LIMIT, limit);
+        page.params.put(ORDER, "bug_id");
+        return page;
+    }
+
+    /**
+     * Returns a {@link PageSource} which requests pages of this search asynchronously on the given connector,
+     * for use with a {@link com.j2bugzilla.base.ParallelPageFetcher}.
+     *
+     * @param conn A connected {@link BugzillaConnector}
+     * @return A {@code PageSource} of the bugs matching this search
+     */
+    public PageSource<HttpBug> pages(final BugzillaConnector conn) {
+        return new PageSource<HttpBug>() {
+            @Override
+            public CompletableFuture<List<HttpBug>> fetchPage(int offset, int limit) {
+                return conn.executeHttpRequestAsync(page(offset, limit)).thenApply(BugListParser::getResults);
+            }
+        };
+    }
+
+    public void setSearchColumns(BugSearchParser.SearchColumn... columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("At least one search column is required");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < columns.length - 1; i++) {
+            sb.append(columns[i].getName() + ",");
+        }
+        sb.append(columns[columns.length - 1].getName());
+        params.put(BugSearchParser.SearchLimiter.BUG_PROPERTIES.getName(), sb.toString());
+    }
+
+    public Map<Object, Object> getParameters() {
+        return params;
+    }
+
+    @Override
+    public String getExtraPath() {
+        return PATH;
+    }
+
+    /**
+     * @return The columns of the bug list being parsed
+     */
+    protected ColumnSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Sets the columns of the bug list being parsed, shared by every bug created from it.
+     *
+     * @param schema A {@code ColumnSchema}, which may be shared with other searches
+     */
+    protected void setSchema(ColumnSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Sets the column keys of the bug list being parsed, shared by every bug created from it.
+     *
+     * @param columnsName The column keys, in order
+     */
+    protected void setColumns(String[] columnsName) {
+        schema = new ColumnSchema(columnsName);
+    }
+
+    /**
+     * Turns a column name of the bug list, such as {@code bug_status}, into the key of its value in
+     * {@link HttpBug#getInternalState()}, such as {@code BugStatus}. The ID column is always {@code Id}.
+     *
+     * @param column The name of the column, as used in {@code columnlist}
+     * @return The key of the column's values
+     */
+    static String columnKey(String column) {
+        if (BUG_ID.equals(column)) {
+            column = ID;
+        }
+        return WordUtils.capitalizeFully(column, MINUS).replaceAll(UNDERSCORE, JOIN_ESPACE);
+    }
+
+    /**
+     * Creates an {@link HttpBug} from the values of one row. Only reads the parser's state, so rows may be built
+     * on several threads at once.
+     *
+     * @param values The values of the row, in the order of the columns
+     * @return The new bug
+     */
+    protected HttpBug createBug(Object[] values) {
+        return factory.createHttpBug(schema, values);
+    }
+
+    /**
+     * Creates an {@link HttpBug} from the values of one row, and collects it or hands it to the consumer.
+     *
+     * @param values The values of the row, in the order of the columns
+     */
+    protected void addBug(Object[] values) {
+        addBug(createBug(values));
+    }
+
+    /**
+     * Collects a bug, or hands it to the consumer.
+     *
+     * @param httpBug A bug of the list, in the order of the list
+     */
+    protected void addBug(HttpBug httpBug) {
+        if (bugConsumer != null) {
+            bugConsumer.accept(httpBug);
+        } else {
+            listaBugs.add(httpBug);
+        }
+    }
+
+    @Override
+    public List<HttpBug> getResults() {
+        return listaBugs;
+    }
+}
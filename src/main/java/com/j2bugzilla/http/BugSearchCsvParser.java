@@ -0,0 +1,145 @@
+package com.j2bugzilla.http;
+
+import com.j2bugzilla.base.ReaderBugzillaHttpParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the same searches as {@link BugSearchParser}, but asks {@code buglist.cgi} for the CSV form of the bug list
+ * ({@code ctype=csv}) instead of the HTML table. Rows are parsed straight from the response into
+ * {@link com.j2bugzilla.base.HttpBug HttpBugs}, one at a time, without building any HTML document. The CSV form is
+ * also much smaller than the HTML one, and its values are never shortened for display.
+ * <p>
+ * Values are stored under the same keys as the HTML parser uses, see {@link BugListParser#columnKey(String)}.
+ */
+public class BugSearchCsvParser extends BugListParser implements ReaderBugzillaHttpParser {
+    public static final String CTYPE = "ctype";
+    public static final String CSV = "csv";
+
+    public BugSearchCsvParser(BugSearchParser.SearchQuery... queries) {
+        super(queries);
+        getParameters().put(CTYPE, CSV);
+    }
+
+    private BugSearchCsvParser(BugSearchCsvParser other) {
+        super(other);
+    }
+
+    @Override
+    protected BugSearchCsvParser copy() {
+        return new BugSearchCsvParser(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return A new {@code BugSearchCsvParser} which has not been executed
+     */
+    @Override
+    public BugSearchCsvParser page(int offset, int limit) {
+        return (BugSearchCsvParser) super.page(offset, limit);
+    }
+
+    @Override
+    public void parse(Reader response) throws IOException {
+        CsvReader csv = new CsvReader(response);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+        String[] keys = new String[header.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = columnKey(header.get(i));
+        }
+        setColumns(keys);
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                //A blank line
+                continue;
+            }
+            if (record.size() != keys.length) {
+                throw new IOException("Expected " + keys.length + " values in CSV record " + csv.getRecordNumber()
+                        + " but found " + record.size());
+            }
+            addBug(record.toArray());
+        }
+    }
+
+    /**
+     * Reads the records of an RFC 4180 CSV document one at a time. Quoted values may contain commas,
+     * line breaks and doubled quotes.
+     */
+    private static final class CsvReader {
+        private final Reader in;
+        private final StringBuilder value = new StringBuilder();
+        private int next;
+        private int recordNumber = 0;
+
+        CsvReader(Reader in) throws IOException {
+            this.in = in;
+            next = in.read();
+            if (next == '\uFEFF') {
+                next = in.read();
+            }
+        }
+
+        int getRecordNumber() {
+            return recordNumber;
+        }
+
+        /**
+         * @return The values of the next record, or null at the end of the document
+         */
+        List<String> readRecord() throws IOException {
+            if (next == -1) {
+                return null;
+            }
+            recordNumber++;
+            List<String> record = new ArrayList<String>();
+            while (true) {
+                value.setLength(0);
+                if (next == '"') {
+                    readQuoted();
+                } else {
+                    while (next != -1 && next != ',' && next != '\r' && next != '\n') {
+                        value.append((char) next);
+                        next = in.read();
+                    }
+                }
+                record.add(value.toString());
+                if (next == ',') {
+                    next = in.read();
+                    continue;
+                }
+                if (next == '\r') {
+                    next = in.read();
+                }
+                if (next == '\n') {
+                    next = in.read();
+                }
+                return record;
+            }
+        }
+
+        private void readQuoted() throws IOException {
+            next = in.read();
+            while (true) {
+                if (next == -1) {
+                    throw new IOException("Unterminated quoted value in CSV record " + recordNumber);
+                }
+                if (next == '"') {
+                    next = in.read();
+                    if (next != '"') {
+                        return;
+                    }
+                }
+                value.append((char) next);
+                next = in.read();
+            }
+        }
+    }
+}
@@ -1,31 +1,52 @@
 package com.j2bugzilla.http;
 
-import com.j2bugzilla.base.Bug;
-import com.j2bugzilla.base.BugFactory;
-import com.j2bugzilla.base.BugzillaHttpParser;
+import com.j2bugzilla.base.ColumnSchema;
 import com.j2bugzilla.base.HttpBug;
-import org.apache.commons.lang3.text.WordUtils;
+import com.j2bugzilla.base.StreamingBugzillaHttpParser;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
 import org.jsoup.select.Elements;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Created by springfield-home on 5/28/17.
+ * <p>
+ * The HTML table of the bug list is read one row at a time, see {@link StreamingBugzillaHttpParser}. Bugs are
+ * collected for {@link #getResults()}, or handed straight to the consumer given to
+ * {@link #setBugConsumer(java.util.function.Consumer)}.
  */
-public class BugSearchParser implements BugzillaHttpParser {
+public class BugSearchParser extends BugListParser implements StreamingBugzillaHttpParser {
     public static final String START = "buglistSorter";
     public static final String END = "</table>";
-    public static final String PATH = "buglist.cgi";
-    public static final char[] MINUS = new char[]{'_'};
-    public static final String UNDERSCORE = "_";
-    public static final String JOIN_ESPACE = "";
     public static final int OFFSET_BZ = 3;
     public static final int OFFSET_COLUMN = 7;
-    public final List<HttpBug> listaBugs = new LinkedList();
+    public static final int PARALLEL_THRESHOLD = 256;
+    public static final int MAX_CACHED_COLUMNS = 1024;
+    public static final String TR = "tr";
+    public static final String TD = "td";
+    public static final String SPAN = "span";
+    public static final String TITLE = "title";
+    public static final String COLUMN_DELIMITER = " ";
 
-    private final Map<Object, Object> params = new HashMap<Object, Object>();
+    /**
+     * The column key for each {@code <col>} class string seen so far, shared by every search.
+     */
+    private static final ConcurrentMap<String, String> COLUMN_KEYS = new ConcurrentHashMap<String, String>();
+
+    /**
+     * The schema for each list of {@code <col>} class strings seen so far, so that repeated searches with the
+     * same columns share one {@link ColumnSchema}.
+     */
+    private static final ConcurrentMap<String, ColumnSchema> SCHEMAS = new ConcurrentHashMap<String, ColumnSchema>();
+
+    private ForkJoinPool pool;
 
     public enum SearchColumn {
         CREATION_DATE("creation_ts"),
@@ -125,26 +146,39 @@ public class BugSearchParser implements BugzillaHttpParser {
     }
 
     public BugSearchParser(SearchQuery... queries) {
-        params.put(SearchLimiter.QUERY_FORMAT.getName(), "advanced");
-        if (queries.length == 0) {
-            throw new IllegalArgumentException("At least one search query is required");
-        }
+        super(queries);
+    }
 
-        for (BugSearchParser.SearchQuery query : queries) {
-            params.put(query.getLimiter().getName(), query.getQuery());
-        }
+    protected BugSearchParser(BugSearchParser other) {
+        super(other);
+        pool = other.pool;
     }
 
-    public void setSearchColumns(BugSearchParser.SearchColumn... columns) {
-        if (columns.length == 0) {
-            throw new IllegalArgumentException("At least one search column is required");
-        }
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < columns.length - 1; i++) {
-            sb.append(columns[i].getName() + ",");
-        }
-        sb.append(columns[columns.length - 1].getName());
-        params.put(SearchLimiter.BUG_PROPERTIES.getName(), sb.toString());
+    @Override
+    protected BugSearchParser copy() {
+        return new BugSearchParser(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return A new {@code BugSearchParser} which has not been executed
+     */
+    @Override
+    public BugSearchParser page(int offset, int limit) {
+        return (BugSearchParser) super.page(offset, limit);
+    }
+
+    /**
+     * Makes {@link #parse(Document)} build the bugs of large tables in parallel on the given pool, splitting the
+     * rows into ranges of at least {@value #PARALLEL_THRESHOLD}. Bugs are still collected, or handed to the consumer,
+     * in the order of the table and on the calling thread. Responses read by the connector are parsed row by row as
+     * they arrive and are not affected.
+     *
+     * @param pool A {@code ForkJoinPool}, or null to parse on the calling thread only
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.pool = pool;
     }
 
     @Override
@@ -157,44 +191,135 @@ public class BugSearchParser implements BugzillaHttpParser {
         return END;
     }
 
-    public Map<Object, Object> getParameters() {
-        return params;
+    @Override
+    public void parse(Document doc) {
+        parseHeader(doc);
+        Elements bugs = doc.getElementsByTag(TR);
+        if (pool != null && bugs.size() > PARALLEL_THRESHOLD) {
+            for (HttpBug httpBug : pool.invoke(new ParseRows(bugs, 1, bugs.size()))) {
+                addBug(httpBug);
+            }
+            return;
+        }
+        for (int i = 1; i < bugs.size(); i++) {
+            parseRow(bugs.get(i));
+        }
     }
 
-    @Override
-    public String getExtraPath() {
-        return PATH;
+    /**
+     * Builds the bugs of a range of rows, splitting it in half until it is no longer than
+     * {@link #PARALLEL_THRESHOLD}. The results are joined in the order of the rows.
+     */
+    private final class ParseRows extends RecursiveTask<List<HttpBug>> {
+        private final Elements rows;
+        private final int from;
+        private final int to;
+
+        ParseRows(Elements rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<HttpBug> compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                List<HttpBug> bugs = new ArrayList<HttpBug>(to - from);
+                for (int i = from; i < to; i++) {
+                    HttpBug httpBug = toBug(rows.get(i));
+                    if (httpBug != null) {
+                        bugs.add(httpBug);
+                    }
+                }
+                return bugs;
+            }
+            int middle = (from + to) >>> 1;
+            ParseRows second = new ParseRows(rows, middle, to);
+            second.fork();
+            List<HttpBug> bugs = new ParseRows(rows, from, middle).compute();
+            bugs.addAll(second.join());
+            return bugs;
+        }
     }
 
     @Override
-    public void parse(Document doc) {
-        Elements columns = doc.select("col");
+    public void parseHeader(Element header) {
+        Elements columns = header.getElementsByTag("col");
+        StringBuilder classes = new StringBuilder();
+        for (Element column : columns) {
+            classes.append(column.className()).append(COLUMN_DELIMITER);
+        }
+        ColumnSchema cached = SCHEMAS.get(classes.toString());
+        if (cached != null) {
+            setSchema(cached);
+            return;
+        }
         String[] columnsName = new String[columns.size()];
         for (int i = 0; i < columns.size(); i++) {
-            String columnText = columns.get(i).className();
-            columnText = columnText.substring(OFFSET_BZ, columnText.length() - OFFSET_COLUMN);
-            columnsName[i] = WordUtils.capitalizeFully(columnText, MINUS).replaceAll(UNDERSCORE, JOIN_ESPACE);
+            columnsName[i] = columnDescriptor(columns.get(i).className());
         }
-        Elements bugs = doc.select("tr");
-        for (int i = 1; i < bugs.size(); i++) {
-            Map<String, Object> bugMap = new LinkedHashMap();
-            Elements rows = bugs.get(i).select("td");
-            for (int j = 0; j < columns.size(); j++) {
-                Element row = rows.get(j);
-                if (row.children().size() > 0 && row.child(0).is("span")) {
-                    bugMap.put(columnsName[j], row.child(0).attr("title"));
-                } else {
-                    bugMap.put(columnsName[j], row.text());
-                }
+        setColumns(columnsName);
+        if (SCHEMAS.size() < MAX_CACHED_COLUMNS) {
+            SCHEMAS.putIfAbsent(classes.toString(), getSchema());
+        }
+    }
 
+    /**
+     * Returns the column key for the class of a {@code <col>}, such as {@code bz_bug_status_column},
+     * computing it only the first time the class is seen.
+     */
+    private static String columnDescriptor(String columnText) {
+        String key = COLUMN_KEYS.get(columnText);
+        if (key == null) {
+            key = columnKey(columnText.substring(OFFSET_BZ, columnText.length() - OFFSET_COLUMN));
+            if (COLUMN_KEYS.size() < MAX_CACHED_COLUMNS) {
+                COLUMN_KEYS.putIfAbsent(columnText, key);
             }
-            listaBugs.add(new BugFactory().createHttpBug(bugMap));
         }
+        return key;
     }
 
     @Override
-    public List<HttpBug> getResults() {
-        return listaBugs;
+    public void parseRow(Element bug) {
+        HttpBug httpBug = toBug(bug);
+        if (httpBug != null) {
+            addBug(httpBug);
+        }
+    }
+
+    /**
+     * Builds the bug of one row. Only reads the parser's state, so rows may be built on several threads at once.
+     *
+     * @param bug A {@code <tr>} of the bug list
+     * @return The bug, or null if the row holds the column headings
+     */
+    private HttpBug toBug(Element bug) {
+        Object[] values = null;
+        int j = 0;
+        for (int i = 0; i < bug.childNodeSize(); i++) {
+            Node node = bug.childNode(i);
+            if (!(node instanceof Element) || !((Element) node).tagName().equals(TD)) {
+                continue;
+            }
+            if (values == null) {
+                values = new Object[getSchema().size()];
+            }
+            if (j == values.length) {
+                break;
+            }
+            Element row = (Element) node;
+            Element first = row.firstElementChild();
+            if (first != null && first.tagName().equals(SPAN)) {
+                values[j++] = first.attr(TITLE);
+            } else {
+                values[j++] = row.text();
+            }
+        }
+        if (values == null) {
+            //The column headings
+            return null;
+        }
+        return createBug(values);
     }
 
 
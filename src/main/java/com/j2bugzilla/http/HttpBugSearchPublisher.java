@@ -0,0 +1,67 @@
+package com.j2bugzilla.http;
+
+import com.j2bugzilla.base.BlockingSubscription;
+import com.j2bugzilla.base.BugStream;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+import com.j2bugzilla.base.HttpBug;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the bugs of a {@link BugListParser} search, HTML or CSV, as a {@link BugStream.Publisher}, each one as soon as
+ * its row has been read. The response is read on the connector's executor, see
+ * {@link BugzillaConnector#executeHttpRequestAsync(com.j2bugzilla.base.BugzillaHttpParser)}, and reading pauses
+ * whenever the subscriber has not requested another bug, so the network holds back the rest of the list rather than
+ * memory. Cancelling the subscription closes the response.
+ * <p>
+ * A publisher runs its search once, so it accepts a single subscriber. It takes over the parser's bug consumer.
+ */
+public class HttpBugSearchPublisher implements BugStream.Publisher<HttpBug> {
+    private final BugzillaConnector conn;
+    private final BugListParser parser;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public HttpBugSearchPublisher(BugzillaConnector conn, BugListParser parser) {
+        this.conn = conn;
+        this.parser = parser;
+    }
+
+    @Override
+    public void subscribe(BugStream.Subscriber<? super HttpBug> subscriber) {
+        final BlockingSubscription<HttpBug> subscription = new BlockingSubscription<HttpBug>(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscription.fail(new IllegalStateException("An HttpBugSearchPublisher accepts only one subscriber"));
+            return;
+        }
+        parser.setBugConsumer(bug -> {
+            if (!subscription.emit(bug)) {
+                throw new Cancelled();
+            }
+        });
+        conn.executeHttpRequestAsync(parser).whenComplete((p, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof BugzillaException && cause.getCause() instanceof Cancelled) {
+                cause = null;
+            }
+            if (cause == null) {
+                subscription.complete();
+            } else {
+                subscription.fail(cause);
+            }
+        });
+    }
+
+    /**
+     * Thrown from the bug consumer to stop reading the response once the subscription has been cancelled.
+     */
+    private static final class Cancelled extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Cancelled() {
+            super("Subscription cancelled");
+        }
+    }
+}
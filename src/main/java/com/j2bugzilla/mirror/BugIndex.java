@@ -0,0 +1,342 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaMethod;
+import com.j2bugzilla.base.MethodListener;
+import com.j2bugzilla.rpc.BugSearch;
+import com.j2bugzilla.rpc.GetBug;
+import com.j2bugzilla.rpc.GetBugs;
+import com.j2bugzilla.rpc.UpdateBug;
+
+/**
+ * An in-memory index of bug IDs by status, product, component, priority, severity and assignee, so that questions
+ * such as "which open bugs in this product are assigned to this user" can be answered without searching the
+ * installation. Each value of each {@link Field} has a posting list of the IDs of the bugs holding it, and the
+ * {@link IdList IdLists} returned by {@link #lookup(Field, String...)} are combined to form queries:
+ * <br />
+ * <code>
+ * IdList mine = index.lookup(Field.STATUS, "NEW", "ASSIGNED", "REOPENED")<br />
+ * &nbsp;&nbsp;&nbsp;&nbsp;.and(index.lookup(Field.PRODUCT, "Widgets"))<br />
+ * &nbsp;&nbsp;&nbsp;&nbsp;.and(index.lookup(Field.ASSIGNEE, "someone@example.com"));<br />
+ * </code>
+ * 
+ * <p>Once {@link #listenTo(BugzillaConnector) listening to a connector}, the index follows every bug fetched
+ * with {@link GetBug}, {@link GetBugs} or {@link BugSearch} and every bug changed with {@link UpdateBug}. A bug
+ * fetched with a {@link com.j2bugzilla.base.FieldProjection} only updates the fields it was fetched with.
+ * The index holds IDs only; the bugs themselves can be kept in a {@link BugStore}. It is thread-safe.</p>
+ * 
+ * @author Tom
+ */
+public class BugIndex implements MethodListener {
+	
+	/**
+	 * The fields of a {@link Bug} a {@link BugIndex} indexes.
+	 */
+	public enum Field {
+		STATUS("status"),
+		PRODUCT("product"),
+		COMPONENT("component"),
+		PRIORITY("priority"),
+		SEVERITY("severity"),
+		ASSIGNEE("assigned_to");
+		
+		private final String name;
+		
+		private Field(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * @return The name of this field as Bugzilla knows it.
+		 */
+		public String getName() {
+			return name;
+		}
+	}
+	
+	private static final Field[] FIELDS = Field.values();
+	
+	private final Map<Field, Map<String, Postings>> postings = new EnumMap<Field, Map<String, Postings>>(Field.class);
+	
+	/**
+	 * The postings each indexed bug is in, by {@link Field} ordinal. A bug whose value of a field is unknown
+	 * has null for that field.
+	 */
+	private final Map<Integer, Postings[]> bugs = new HashMap<Integer, Postings[]>();
+	
+	private IdList all = IdList.EMPTY;
+	
+	/**
+	 * Creates an empty {@link BugIndex}.
+	 */
+	public BugIndex() {
+		for(Field field : FIELDS) {
+			postings.put(field, new HashMap<String, Postings>());
+		}
+	}
+	
+	/**
+	 * Keeps this index up to date with the bugs fetched and changed through a connector.
+	 * @param conn A {@link BugzillaConnector}.
+	 * @return This {@code BugIndex}, for chaining.
+	 */
+	public BugIndex listenTo(BugzillaConnector conn) {
+		conn.addMethodListener(this);
+		return this;
+	}
+	
+	/**
+	 * Indexes a bug, replacing what was known about it. Fields which were not fetched for the bug keep the values
+	 * they were last indexed with.
+	 * @param bug A {@link Bug}.
+	 */
+	public synchronized void add(Bug bug) {
+		Map<Object, Object> state = bug.getParameterMap();
+		Postings[] current = bugs.get(bug.getID());
+		if(current == null) {
+			current = new Postings[FIELDS.length];
+			bugs.put(bug.getID(), current);
+			all = null;
+		}
+		for(Field field : FIELDS) {
+			if(!state.containsKey(field.getName())) {
+				continue;
+			}
+			Object value = state.get(field.getName());
+			Postings old = current[field.ordinal()];
+			if(old != null && old.value.equals(value)) {
+				continue;
+			}
+			if(old != null) {
+				remove(field, old, bug.getID());
+			}
+			Postings updated = null;
+			if(value != null) {
+				Map<String, Postings> byValue = postings.get(field);
+				updated = byValue.get(value);
+				if(updated == null) {
+					updated = new Postings(value.toString());
+					byValue.put(updated.value, updated);
+				}
+				updated.add(bug.getID());
+			}
+			current[field.ordinal()] = updated;
+		}
+	}
+	
+	/**
+	 * Indexes many bugs.
+	 * @param bugs The {@link Bug Bugs} to index.
+	 * @see #add(Bug)
+	 */
+	public synchronized void addAll(Collection<Bug> bugs) {
+		for(Bug bug : bugs) {
+			add(bug);
+		}
+	}
+	
+	/**
+	 * Removes a bug from the index.
+	 * @param id The ID of a bug.
+	 */
+	public synchronized void remove(int id) {
+		Postings[] current = bugs.remove(id);
+		if(current == null) {
+			return;
+		}
+		all = null;
+		for(Field field : FIELDS) {
+			if(current[field.ordinal()] != null) {
+				remove(field, current[field.ordinal()], id);
+			}
+		}
+	}
+	
+	private void remove(Field field, Postings old, int id) {
+		old.remove(id);
+		if(old.size == 0) {
+			postings.get(field).remove(old.value);
+		}
+	}
+	
+	/**
+	 * @return The number of bugs in the index.
+	 */
+	public synchronized int size() {
+		return bugs.size();
+	}
+	
+	/**
+	 * @return The IDs of every bug in the index.
+	 */
+	public synchronized IdList all() {
+		if(all == null) {
+			int[] ids = new int[bugs.size()];
+			int i = 0;
+			for(int id : bugs.keySet()) {
+				ids[i++] = id;
+			}
+			Arrays.sort(ids);
+			all = new IdList(ids);
+		}
+		return all;
+	}
+	
+	/**
+	 * Finds the bugs holding any of the given values of a field.
+	 * @param field The {@link Field} to look in.
+	 * @param values One or more values of the field. Values are matched exactly, including case.
+	 * @return The IDs of the matching bugs.
+	 */
+	public synchronized IdList lookup(Field field, String... values) {
+		Map<String, Postings> byValue = postings.get(field);
+		IdList result = IdList.EMPTY;
+		for(String value : values) {
+			Postings matching = byValue.get(value);
+			if(matching != null) {
+				result = result.or(matching.snapshot());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @param field A {@link Field}.
+	 * @return The values of the field held by at least one bug in the index, in order.
+	 */
+	public synchronized Set<String> getValues(Field field) {
+		return Collections.unmodifiableSet(new TreeSet<String>(postings.get(field).keySet()));
+	}
+	
+	/**
+	 * @param id The ID of a bug.
+	 * @param field A {@link Field}.
+	 * @return The value of the field the bug was last indexed with, or null if it is unknown.
+	 */
+	public synchronized String getValue(int id, Field field) {
+		Postings[] current = bugs.get(id);
+		if(current == null || current[field.ordinal()] == null) {
+			return null;
+		}
+		return current[field.ordinal()].value;
+	}
+	
+	/**
+	 * Removes every bug from the index.
+	 */
+	public synchronized void clear() {
+		bugs.clear();
+		for(Map<String, Postings> byValue : postings.values()) {
+			byValue.clear();
+		}
+		all = IdList.EMPTY;
+	}
+
+	/**
+	 * Indexes the bugs fetched or changed by a method. Bugs fetched without their {@code id} cannot be indexed,
+	 * so they are skipped. The bugs indexed are the same {@code Bug} objects the method hands to its caller.
+	 * @param method A {@link BugzillaMethod} which has completed.
+	 */
+	@Override
+	public void methodExecuted(BugzillaMethod method) {
+		if(method instanceof GetBug) {
+			GetBug get = (GetBug)method;
+			Bug bug = get.getProjection().isFetched("id") ? get.getBug() : null;
+			if(bug != null) {
+				add(bug);
+			}
+		} else if(method instanceof GetBugs) {
+			addAll(((GetBugs)method).getBugs().values());
+		} else if(method instanceof BugSearch) {
+			BugSearch search = (BugSearch)method;
+			if(search.getProjection().isFetched("id")) {
+				addAll(search.getSearchResults());
+			}
+		} else if(method instanceof UpdateBug) {
+			add(((UpdateBug)method).getBug());
+		}
+	}
+	
+	/**
+	 * The IDs of the bugs holding one value of a field. IDs are appended as bugs are indexed and only sorted
+	 * when the list is next read, so that indexing many bugs in no particular order stays cheap.
+	 */
+	private static class Postings {
+		
+		private final String value;
+		
+		private int[] ids = new int[4];
+		
+		private int size;
+		
+		private boolean sorted = true;
+		
+		private IdList snapshot;
+		
+		private Postings(String value) {
+			this.value = value;
+		}
+		
+		private void add(int id) {
+			if(size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			if(size > 0 && ids[size - 1] > id) {
+				sorted = false;
+			}
+			ids[size++] = id;
+			snapshot = null;
+		}
+		
+		private void remove(int id) {
+			sort();
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if(index >= 0) {
+				System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+				size--;
+				snapshot = null;
+			}
+		}
+		
+		private void sort() {
+			if(!sorted) {
+				Arrays.sort(ids, 0, size);
+				sorted = true;
+			}
+		}
+		
+		private IdList snapshot() {
+			if(snapshot == null) {
+				sort();
+				snapshot = new IdList(Arrays.copyOf(ids, size));
+			}
+			return snapshot;
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+
+import com.j2bugzilla.base.Bug;
+
+/**
+ * A {@code BugStore} holds a local copy of bugs, along with the checkpoint a {@link BugSync} resumes from.
+ * 
+ * @author Tom
+ */
+public interface BugStore {
+	
+	/**
+	 * Looks up a bug.
+	 * @param id The ID of the bug.
+	 * @return The stored {@link Bug}, or null if there is none.
+	 * @throws IOException If the store cannot be read.
+	 */
+	Bug get(int id) throws IOException;
+	
+	/**
+	 * @return The number of bugs stored.
+	 */
+	int size();
+	
+	/**
+	 * @return The last change time up to which every bug has been stored, or null if nothing has been synchronized yet.
+	 * @throws IOException If the store cannot be read.
+	 */
+	Date getCheckpoint() throws IOException;
+	
+	/**
+	 * Stores a batch of bugs, replacing any earlier copies, then moves the checkpoint forward. If the store fails
+	 * part way, the checkpoint must not have moved, so that the batch is fetched again.
+	 * @param bugs The {@link Bug Bugs} to store.
+	 * @param checkpoint The new checkpoint.
+	 * @throws IOException If the store cannot be written.
+	 */
+	void apply(Collection<Bug> bugs, Date checkpoint) throws IOException;
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+import com.j2bugzilla.base.FieldProjection;
+import com.j2bugzilla.rpc.BugFetcher;
+import com.j2bugzilla.rpc.BugSearch;
+import com.j2bugzilla.rpc.BugSearch.SearchQuery;
+import com.j2bugzilla.rpc.BugSearchIterator;
+import com.j2bugzilla.rpc.GetBugs;
+
+/**
+ * The {@code BugSync} class brings a {@link BugStore} up to date with the bugs matching a search, such as every bug of
+ * a product. Each run asks the installation only for the bugs changed since the store's checkpoint, using
+ * {@code Bug.search} on {@code last_change_time}, then fetches them in batches with a {@link BugFetcher}. 
+ * <p>
+ * The search is paged by offset, so a bug which leaves the scope while the pages are read shifts the later pages,
+ * and a changed bug may slip between two of them. The changes are therefore listed again from the same time until a
+ * listing turns up no bug the earlier ones missed, so that the checkpoint never moves past an unlisted change.
+ * <p>
+ * Changed bugs are applied in order of their last change time, and the checkpoint moves forward after every batch, 
+ * so a run which fails part way resumes from the last complete batch. Bugzilla matches changes at or after the 
+ * checkpoint, so bugs changed at exactly that time are fetched again, which does no harm.
+ * <p>
+ * Bugs which stop matching the search, or which become inaccessible, are left in the store as they were.
+ * 
+ * @author Tom
+ */
+public class BugSync {
+	
+	/**
+	 * The default number of bugs fetched and stored in one batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	
+	/**
+	 * The default number of changed bugs listed by one {@code Bug.search} page.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+	
+	private final BugzillaConnector conn;
+	
+	private final BugStore store;
+	
+	private final SearchQuery[] scope;
+	
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	
+	private FieldProjection projection = FieldProjection.ALL;
+	
+	/**
+	 * Creates a new {@link BugSync}.
+	 * @param conn A connected {@link BugzillaConnector}.
+	 * @param store The {@link BugStore} to bring up to date.
+	 * @param scope One or more {@link SearchQuery SearchQueries} selecting the bugs to mirror.
+	 */
+	public BugSync(BugzillaConnector conn, BugStore store, SearchQuery... scope) {
+		if(scope.length == 0) {
+			throw new IllegalArgumentException("At least one search query is required");
+		}
+		this.conn = conn;
+		this.store = store;
+		this.scope = scope.clone();
+	}
+	
+	/**
+	 * Sets the number of bugs fetched and stored between checkpoints. Defaults to {@value #DEFAULT_BATCH_SIZE}.
+	 * @param batchSize A positive number of bugs.
+	 * @return A reference to the original {@code BugSync}.
+	 */
+	public BugSync setBatchSize(int batchSize) {
+		if(batchSize < 1) { throw new IllegalArgumentException("Batch size must be positive"); }
+		this.batchSize = batchSize;
+		return this;
+	}
+	
+	/**
+	 * Sets the number of changed bugs listed by each search request. Defaults to {@value #DEFAULT_PAGE_SIZE}.
+	 * @param pageSize A positive number of bugs.
+	 * @return A reference to the original {@code BugSync}.
+	 */
+	public BugSync setPageSize(int pageSize) {
+		if(pageSize < 1) { throw new IllegalArgumentException("Page size must be positive"); }
+		this.pageSize = pageSize;
+		return this;
+	}
+	
+	/**
+	 * Limits the fields fetched and stored for each bug. The projection must include {@code last_change_time}.
+	 * @param projection A {@link FieldProjection} naming the fields to fetch.
+	 * @return A reference to the original {@code BugSync}.
+	 */
+	public BugSync setProjection(FieldProjection projection) {
+		if(!projection.isFetched("id") || !projection.isFetched("last_change_time")) {
+			throw new IllegalArgumentException("Synchronized bugs need their id and last_change_time");
+		}
+		this.projection = projection;
+		return this;
+	}
+	
+	/**
+	 * Fetches every bug changed since the store's checkpoint and applies it to the store.
+	 * @return A {@link Result} describing the run.
+	 * @throws BugzillaException If the installation cannot be searched or a batch cannot be fetched. Batches applied
+	 * before the failure, and the checkpoint, are kept.
+	 * @throws IOException If the store cannot be read or written.
+	 */
+	public Result sync() throws BugzillaException, IOException {
+		Date since = store.getCheckpoint();
+		List<Bug> changed = listChanged(since);
+		Result result = new Result(changed.size(), since);
+		
+		for(int from = 0; from < changed.size(); from += batchSize) {
+			List<Bug> batch = changed.subList(from, Math.min(changed.size(), from + batchSize));
+			List<Integer> ids = new ArrayList<Integer>(batch.size());
+			for(Bug bug : batch) {
+				ids.add(bug.getID());
+			}
+			GetBugs fetched = new BugFetcher(conn).setProjection(projection).fetch(ids);
+			Date checkpoint = batch.get(batch.size() - 1).getLastChangeTime();
+			Map<Integer, Bug> bugs = fetched.getBugs();
+			store.apply(bugs.values(), checkpoint);
+			result.applied += bugs.size();
+			result.missing.addAll(fetched.getFaults());
+			result.checkpoint = checkpoint;
+		}
+		return result;
+	}
+	
+	/**
+	 * Lists the ID and last change time of every bug in scope changed since the given time, oldest change first.
+	 * Listings are repeated until one finds no new bug, see the class description.
+	 */
+	private List<Bug> listChanged(Date since) throws BugzillaException {
+		BugSearch search = new BugSearch(scope);
+		if(since != null) {
+			search.setChangedSince(since);
+		}
+		search.setProjection(FieldProjection.include("id", "last_change_time"));
+		Map<Integer, Bug> listed = new HashMap<Integer, Bug>();
+		boolean found = true;
+		while(found) {
+			found = false;
+			try {
+				Iterator<Bug> it = new BugSearchIterator(conn, search, pageSize);
+				while(it.hasNext()) {
+					Bug bug = it.next();
+					Bug earlier = listed.put(bug.getID(), bug);
+					if(earlier == null) {
+						found = true;
+					} else if(earlier.getLastChangeTime().after(bug.getLastChangeTime())) {
+						listed.put(bug.getID(), earlier);
+					}
+				}
+			} catch (IllegalStateException e) {
+				if(e.getCause() instanceof BugzillaException) {
+					throw (BugzillaException)e.getCause();
+				}
+				throw e;
+			}
+		}
+		List<Bug> changed = new ArrayList<Bug>(listed.values());
+		Collections.sort(changed, new Comparator<Bug>() {
+			@Override
+			public int compare(Bug a, Bug b) {
+				return a.getLastChangeTime().compareTo(b.getLastChangeTime());
+			}
+		});
+		return changed;
+	}
+	
+	/**
+	 * The {@code Result} of one {@link BugSync#sync()} run.
+	 * 
+	 * @author Tom
+	 */
+	public static final class Result {
+		
+		private final int changed;
+		
+		private int applied = 0;
+		
+		private final List<Object> missing = new ArrayList<Object>();
+		
+		private Date checkpoint;
+		
+		Result(int changed, Date checkpoint) {
+			this.changed = changed;
+			this.checkpoint = checkpoint;
+		}
+		
+		/**
+		 * @return The number of bugs the search reported as changed.
+		 */
+		public int getChangedCount() {
+			return changed;
+		}
+		
+		/**
+		 * @return The number of bugs fetched and stored.
+		 */
+		public int getAppliedCount() {
+			return applied;
+		}
+		
+		/**
+		 * @return The IDs of changed bugs which could not be fetched, for example because they became inaccessible.
+		 */
+		public List<Object> getMissing() {
+			return Collections.unmodifiableList(missing);
+		}
+		
+		/**
+		 * @return The store's checkpoint after the run, or null if nothing has ever been synchronized.
+		 */
+		public Date getCheckpoint() {
+			return checkpoint == null ? null : new Date(checkpoint.getTime());
+		}
+	}
+
+}
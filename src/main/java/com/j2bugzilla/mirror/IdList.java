@@ -0,0 +1,252 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of bug IDs, kept as a sorted {@code int} array. {@code IdLists} are returned by a
+ * {@link BugIndex} and are combined with {@link #and(IdList)}, {@link #or(IdList)} and {@link #andNot(IdList)}
+ * to answer queries over several fields.
+ * 
+ * @author Tom
+ */
+public final class IdList implements Iterable<Integer> {
+	
+	/**
+	 * An {@link IdList} with no IDs.
+	 */
+	public static final IdList EMPTY = new IdList(new int[0]);
+	
+	/**
+	 * When one list is this many times longer than the other, {@link #and(IdList)} searches the longer one for
+	 * each ID of the shorter instead of walking both.
+	 */
+	private static final int SEARCH_RATIO = 32;
+	
+	private final int[] ids;
+	
+	/**
+	 * Wraps an array which is already sorted and free of duplicates, without copying it.
+	 */
+	IdList(int[] ids) {
+		this.ids = ids;
+	}
+	
+	/**
+	 * Creates an {@link IdList} from IDs in any order.
+	 * @param ids Bug IDs, which may repeat.
+	 * @return A new {@code IdList}.
+	 */
+	public static IdList of(int... ids) {
+		int[] sorted = ids.clone();
+		Arrays.sort(sorted);
+		int size = 0;
+		for(int i = 0; i < sorted.length; i++) {
+			if(size == 0 || sorted[size - 1] != sorted[i]) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		return new IdList(Arrays.copyOf(sorted, size));
+	}
+	
+	/**
+	 * @return The number of IDs in this list.
+	 */
+	public int size() {
+		return ids.length;
+	}
+	
+	/**
+	 * @return True if this list holds no IDs.
+	 */
+	public boolean isEmpty() {
+		return ids.length == 0;
+	}
+	
+	/**
+	 * @param index A position in this list.
+	 * @return The ID at the given position, counting from the lowest ID.
+	 */
+	public int get(int index) {
+		return ids[index];
+	}
+	
+	/**
+	 * @param id A bug ID.
+	 * @return True if this list holds the ID.
+	 */
+	public boolean contains(int id) {
+		return Arrays.binarySearch(ids, id) >= 0;
+	}
+	
+	/**
+	 * @return The IDs of this list in ascending order.
+	 */
+	public int[] toArray() {
+		return ids.clone();
+	}
+	
+	/**
+	 * @param other Another {@link IdList}.
+	 * @return The IDs which are in both lists.
+	 */
+	public IdList and(IdList other) {
+		int[] small = ids.length <= other.ids.length ? ids : other.ids;
+		int[] large = small == ids ? other.ids : ids;
+		int[] result = new int[small.length];
+		int size = 0;
+		if(large.length / SEARCH_RATIO > small.length) {
+			int from = 0;
+			for(int id : small) {
+				int found = Arrays.binarySearch(large, from, large.length, id);
+				if(found >= 0) {
+					result[size++] = id;
+					from = found + 1;
+				} else {
+					from = -found - 1;
+				}
+			}
+		} else {
+			int i = 0;
+			int j = 0;
+			while(i < small.length && j < large.length) {
+				if(small[i] < large[j]) {
+					i++;
+				} else if(small[i] > large[j]) {
+					j++;
+				} else {
+					result[size++] = small[i];
+					i++;
+					j++;
+				}
+			}
+		}
+		return trim(result, size);
+	}
+	
+	/**
+	 * @param other Another {@link IdList}.
+	 * @return The IDs which are in either list.
+	 */
+	public IdList or(IdList other) {
+		if(other.ids.length == 0) {
+			return this;
+		} else if(ids.length == 0) {
+			return other;
+		}
+		int[] result = new int[ids.length + other.ids.length];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while(i < ids.length || j < other.ids.length) {
+			if(j == other.ids.length || (i < ids.length && ids[i] < other.ids[j])) {
+				result[size++] = ids[i++];
+			} else if(i == ids.length || other.ids[j] < ids[i]) {
+				result[size++] = other.ids[j++];
+			} else {
+				result[size++] = ids[i];
+				i++;
+				j++;
+			}
+		}
+		return trim(result, size);
+	}
+	
+	/**
+	 * @param other Another {@link IdList}.
+	 * @return The IDs of this list which are not in the other.
+	 */
+	public IdList andNot(IdList other) {
+		if(other.ids.length == 0) {
+			return this;
+		}
+		int[] result = new int[ids.length];
+		int size = 0;
+		int j = 0;
+		for(int id : ids) {
+			while(j < other.ids.length && other.ids[j] < id) {
+				j++;
+			}
+			if(j == other.ids.length || other.ids[j] != id) {
+				result[size++] = id;
+			}
+		}
+		return trim(result, size);
+	}
+	
+	private static IdList trim(int[] ids, int size) {
+		if(size == 0) {
+			return EMPTY;
+		}
+		return new IdList(size == ids.length ? ids : Arrays.copyOf(ids, size));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			private int next = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return next < ids.length;
+			}
+
+			@Override
+			public Integer next() {
+				if(next == ids.length) {
+					throw new NoSuchElementException();
+				}
+				return ids[next++];
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof IdList && Arrays.equals(ids, ((IdList)o).ids);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(ids);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return Arrays.toString(ids);
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.j2bugzilla.base.Bug;
+
+/**
+ * A {@link BugStore} which keeps its bugs in memory only. It is lost when the process exits, so every run of a
+ * {@link BugSync} into a new {@code InMemoryBugStore} starts from scratch. It is thread-safe.
+ * 
+ * @author Tom
+ */
+public class InMemoryBugStore implements BugStore {
+	
+	private final Map<Integer, Bug> bugs = new ConcurrentHashMap<Integer, Bug>();
+	
+	private volatile Date checkpoint;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Bug get(int id) {
+		return bugs.get(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return bugs.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Date getCheckpoint() {
+		Date checkpoint = this.checkpoint;
+		return checkpoint == null ? null : new Date(checkpoint.getTime());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void apply(Collection<Bug> bugs, Date checkpoint) {
+		for(Bug bug : bugs) {
+			this.bugs.put(bug.getID(), bug);
+		}
+		this.checkpoint = new Date(checkpoint.getTime());
+	}
+
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugCodec;
+
+/**
+ * A {@link BugStore} kept in a single append-only file, so that a mirror survives restarts without an external
+ * database. Every {@link #apply(Collection, Date) apply} appends one record per bug followed by a checkpoint
+ * record and forces them to disk. Reads go through a memory mapping of the file and an in-memory index from
+ * bug ID to the offset of its newest record, which is rebuilt by scanning the file when it is opened. Bugs are
+ * kept in the form written by {@link BugCodec}, along with the fields they were fetched with.
+ * 
+ * <p>Replaced records stay in the file until {@link #compact()} rewrites it with only the newest copy of each bug.
+ * A record torn by a crash is detected by its checksum and cut off when the store is next opened; since the
+ * checkpoint is written after its batch, the next {@link BugSync} fetches that batch again.</p>
+ * 
+ * <p>The file is locked while the store is open, so only one {@code MappedBugStore} on a host may use it at a time.
+ * Reads are thread-safe and may run alongside a write. The file is limited to 2 GB.</p>
+ * 
+ * @author Tom
+ */
+public class MappedBugStore implements BugStore, Closeable {
+	
+	private static final int MAGIC = 0x4A32424D;
+	
+	private static final int VERSION = 2;
+	
+	private static final int HEADER_LENGTH = 8;
+	
+	/**
+	 * Each record is its body length and the CRC32 of its body, followed by the body itself.
+	 */
+	private static final int RECORD_HEADER_LENGTH = 8;
+	
+	private static final byte BUG_RECORD = 1;
+	
+	private static final byte CHECKPOINT_RECORD = 2;
+	
+	private final File file;
+	
+	private FileChannel channel;
+	
+	private FileLock lock;
+	
+	private volatile View view = new View();
+	
+	private volatile Date checkpoint;
+	
+	private int length;
+	
+	private long staleBytes;
+	
+	/**
+	 * Opens a store, creating its file if it does not exist.
+	 * @param file The file to keep the bugs in.
+	 * @throws IOException If the file cannot be opened, is in use, or is not a bug store.
+	 */
+	public MappedBugStore(File file) throws IOException {
+		this.file = file;
+		open();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Bug get(int id) throws IOException {
+		ByteBuffer buffer = null;
+		int offset = 0;
+		while(buffer == null) {
+			//A compaction replaces the view, in which case the lookup is repeated against the new file
+			View view = this.view;
+			Integer found = view.index.get(id);
+			if(found == null) {
+				return null;
+			}
+			offset = found;
+			buffer = mappedThrough(view, offset + RECORD_HEADER_LENGTH);
+		}
+		buffer = buffer.duplicate();
+		buffer.position(offset);
+		byte[] body = new byte[buffer.getInt()];
+		buffer.getInt();
+		buffer.get(body);
+		return BugCodec.decodeBug(body, 5, body.length - 5);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return view.index.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Date getCheckpoint() {
+		Date checkpoint = this.checkpoint;
+		return checkpoint == null ? null : new Date(checkpoint.getTime());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void apply(Collection<Bug> bugs, Date checkpoint) throws IOException {
+		checkOpen();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Map<Integer, Integer> offsets = new HashMap<Integer, Integer>();
+		for(Bug bug : bugs) {
+			offsets.put(bug.getID(), length + out.size());
+			writeRecord(out, bugBody(bug));
+		}
+		writeRecord(out, checkpointBody(checkpoint));
+		if((long)length + out.size() > Integer.MAX_VALUE) {
+			throw new IOException("Bug store " + file + " would grow past 2 GB");
+		}
+		ByteBuffer records = ByteBuffer.wrap(out.toByteArray());
+		while(records.hasRemaining()) {
+			channel.write(records, length + records.position());
+		}
+		channel.force(false);
+		length += out.size();
+		for(Map.Entry<Integer, Integer> entry : offsets.entrySet()) {
+			Integer old = view.index.put(entry.getKey(), entry.getValue());
+			if(old != null) {
+				staleBytes += recordLength(view, old);
+			}
+		}
+		this.checkpoint = new Date(checkpoint.getTime());
+	}
+	
+	/**
+	 * Rewrites the file with only the newest record of each bug and the current checkpoint. The new file is written
+	 * beside the old one and renamed over it, so a crash during compaction leaves the old file intact. Reads carry on
+	 * against the old file until the new one is complete, and then move over to it all at once.
+	 * @throws IOException If the new file cannot be written.
+	 */
+	public synchronized void compact() throws IOException {
+		checkOpen();
+		View old = view;
+		File compacted = new File(file.getPath() + ".compact");
+		FileChannel out = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		View compactedView = new View();
+		FileLock compactedLock;
+		int compactedLength;
+		try {
+			ByteBuffer buffer = mappedThrough(old, length).duplicate();
+			compactedLength = write(out, header(), 0);
+			for(Map.Entry<Integer, Integer> entry : old.index.entrySet()) {
+				int offset = entry.getValue();
+				buffer.limit(offset + recordLength(old, offset)).position(offset);
+				compactedView.index.put(entry.getKey(), compactedLength);
+				compactedLength = write(out, buffer, compactedLength);
+			}
+			if(checkpoint != null) {
+				ByteArrayOutputStream record = new ByteArrayOutputStream();
+				writeRecord(record, checkpointBody(checkpoint));
+				compactedLength = write(out, ByteBuffer.wrap(record.toByteArray()), compactedLength);
+			}
+			out.force(false);
+			compactedView.mapped = out.map(FileChannel.MapMode.READ_ONLY, 0, compactedLength);
+			compactedLock = out.tryLock();
+			if(compactedLock == null) {
+				throw new IOException("Bug store " + compacted + " is in use");
+			}
+			Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException | RuntimeException e) {
+			out.close();
+			Files.deleteIfExists(compacted.toPath());
+			throw e;
+		}
+		FileChannel oldChannel = channel;
+		FileLock oldLock = lock;
+		channel = out;
+		lock = compactedLock;
+		length = compactedLength;
+		staleBytes = 0;
+		view = compactedView;
+		//Reads still holding the old view finish against its mapping, which outlives the channel
+		try {
+			oldLock.release();
+		} finally {
+			oldChannel.close();
+		}
+	}
+	
+	/**
+	 * @return The number of bytes in the file taken by records which a later record replaced, and which
+	 * {@link #compact()} would reclaim.
+	 */
+	public synchronized long getStaleBytes() {
+		return staleBytes;
+	}
+	
+	/**
+	 * @return The length of the file in bytes.
+	 */
+	public synchronized long getLength() {
+		return length;
+	}
+
+	/**
+	 * Releases the file. The store cannot be used afterwards.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		release();
+	}
+	
+	private void open() throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			try {
+				lock = channel.tryLock();
+			} catch(OverlappingFileLockException e) {
+				lock = null;
+			}
+			if(lock == null) {
+				throw new IOException("Bug store " + file + " is in use");
+			}
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Bug store " + file + " is larger than 2 GB");
+			}
+			if(channel.size() == 0) {
+				channel.write(header(), 0);
+				channel.force(false);
+			}
+			length = (int)channel.size();
+			View view = new View();
+			view.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			scan(view);
+			this.view = view;
+		} catch(IOException e) {
+			release();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Rebuilds the index and checkpoint from the file, cutting off a torn record at its end.
+	 */
+	private void scan(View view) throws IOException {
+		checkpoint = null;
+		staleBytes = 0;
+		ByteBuffer buffer = view.mapped.duplicate();
+		if(length < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+			throw new IOException(file + " is not a bug store");
+		}
+		int version = buffer.getInt();
+		if(version != VERSION) {
+			throw new IOException("Bug store " + file + " has unsupported version " + version);
+		}
+		CRC32 crc = new CRC32();
+		int offset = HEADER_LENGTH;
+		while(offset + RECORD_HEADER_LENGTH <= length) {
+			buffer.limit(length).position(offset);
+			int bodyLength = buffer.getInt();
+			int checksum = buffer.getInt();
+			if(bodyLength <= 0 || bodyLength > length - buffer.position()) {
+				break;
+			}
+			buffer.limit(buffer.position() + bodyLength);
+			crc.reset();
+			crc.update(buffer.duplicate());
+			if((int)crc.getValue() != checksum) {
+				break;
+			}
+			byte kind = buffer.get();
+			if(kind == BUG_RECORD) {
+				Integer old = view.index.put(buffer.getInt(), offset);
+				if(old != null) {
+					staleBytes += recordLength(view, old);
+				}
+			} else if(kind == CHECKPOINT_RECORD) {
+				checkpoint = new Date(buffer.getLong());
+			} else {
+				throw new IOException("Bug store " + file + " has an unknown record at offset " + offset);
+			}
+			offset += RECORD_HEADER_LENGTH + bodyLength;
+		}
+		if(offset < length) {
+			channel.truncate(offset);
+			channel.force(false);
+			length = offset;
+			view.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		}
+	}
+	
+	private void release() throws IOException {
+		view = new View();
+		if(channel != null) {
+			try {
+				if(lock != null && lock.isValid()) {
+					lock.release();
+				}
+			} finally {
+				lock = null;
+				channel.close();
+				channel = null;
+			}
+		}
+	}
+	
+	private void checkOpen() {
+		if(channel == null) {
+			throw new IllegalStateException("Bug store " + file + " is closed");
+		}
+	}
+	
+	/**
+	 * Returns a mapping of the file covering at least the given number of bytes, mapping the file again if it has
+	 * grown since it was last mapped. Returns null if the view is no longer the current one.
+	 */
+	private MappedByteBuffer mappedThrough(View view, int end) throws IOException {
+		MappedByteBuffer mapped = view.mapped;
+		if(mapped != null && mapped.capacity() >= end) {
+			return mapped;
+		}
+		synchronized(this) {
+			if(view != this.view) {
+				return null;
+			}
+			checkOpen();
+			if(view.mapped.capacity() < end) {
+				view.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			}
+			return view.mapped;
+		}
+	}
+	
+	private int recordLength(View view, int offset) throws IOException {
+		return RECORD_HEADER_LENGTH + mappedThrough(view, offset + RECORD_HEADER_LENGTH).getInt(offset);
+	}
+	
+	/**
+	 * Writes all of a buffer to a channel at the given position.
+	 * @return The position after the buffer.
+	 */
+	private static int write(FileChannel out, ByteBuffer buffer, int position) throws IOException {
+		while(buffer.hasRemaining()) {
+			position += out.write(buffer, position);
+		}
+		return position;
+	}
+	
+	private static ByteBuffer header() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC).putInt(VERSION).flip();
+		return header;
+	}
+	
+	private static void writeRecord(ByteArrayOutputStream out, byte[] body) {
+		CRC32 crc = new CRC32();
+		crc.update(body, 0, body.length);
+		out.write(ByteBuffer.allocate(RECORD_HEADER_LENGTH).putInt(body.length).putInt((int)crc.getValue()).array(),
+				0, RECORD_HEADER_LENGTH);
+		out.write(body, 0, body.length);
+	}
+	
+	private static byte[] checkpointBody(Date checkpoint) {
+		return ByteBuffer.allocate(9).put(CHECKPOINT_RECORD).putLong(checkpoint.getTime()).array();
+	}
+	
+	private static byte[] bugBody(Bug bug) throws IOException {
+		byte[] encoded;
+		try {
+			encoded = BugCodec.encode(bug);
+		} catch(IllegalArgumentException e) {
+			throw new IOException("Bug " + bug.getID() + " cannot be stored", e);
+		}
+		return ByteBuffer.allocate(5 + encoded.length).put(BUG_RECORD).putInt(bug.getID()).put(encoded).array();
+	}
+	
+	/**
+	 * The index of one version of the file together with its mapping, so that a read never looks an offset up in
+	 * one file and reads it from another.
+	 */
+	private static class View {
+		
+		private final Map<Integer, Integer> index = new ConcurrentHashMap<Integer, Integer>();
+		
+		private volatile MappedByteBuffer mapped;
+		
+	}
+
+}
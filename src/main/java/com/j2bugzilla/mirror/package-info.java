@@ -0,0 +1,23 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * <p>This package keeps a local mirror of the bugs of a Bugzilla installation.
+ * A {@link com.j2bugzilla.mirror.BugSync} brings a {@link com.j2bugzilla.mirror.BugStore}
+ * up to date by fetching only the bugs which changed since its last run. A
+ * {@link com.j2bugzilla.mirror.MappedBugStore} keeps the mirror in a local file, so it
+ * survives restarts and the next run resumes where the last one stopped.</p>
+ */
+package com.j2bugzilla.mirror;
@@ -24,6 +24,7 @@ import java.util.Map;
 import com.j2bugzilla.base.Bug;
 import com.j2bugzilla.base.BugzillaMethod;
 import com.j2bugzilla.base.Comment;
+import com.j2bugzilla.base.FieldProjection;
 
 /**
  * This class allows clients to request a list of all public {@link Comment Comments} made on a 
@@ -76,6 +77,15 @@ public class BugComments implements BugzillaMethod {
 		params.put("ids", id);
 	}
 	
+	/**
+	 * Limits the fields retrieved for each {@link Comment}, for example to {@code "id"} and {@code "text"}.
+	 * Fields which are not fetched are left at their defaults: an ID of -1, or null text.
+	 * @param projection A {@link FieldProjection} naming the comment fields to fetch.
+	 */
+	public void setProjection(FieldProjection projection) {
+		projection.addTo(params);
+	}
+	
 	/**
 	 * Returns a <code>List</code> of all public comments made on the
 	 * {@link Bug} requested from the installation
@@ -104,7 +114,8 @@ public class BugComments implements BugzillaMethod {
 			for(Object o : comments) {
 				@SuppressWarnings("unchecked")
 				Map<Object, Object> comment = (Map<Object, Object>)o;
-				Comment c = new Comment((Integer)comment.get("id"), (String)comment.get("text"));
+				Integer commentID = (Integer)comment.get("id");
+				Comment c = new Comment(commentID == null ? -1 : commentID, (String)comment.get("text"));
 				commentList.add(c);
 			}
 		}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+import com.j2bugzilla.base.FieldProjection;
+
+/**
+ * The {@code BugFetcher} retrieves any number of {@link com.j2bugzilla.base.Bug Bugs} by ID or alias.
+ * The IDs are split into chunks small enough for the installation to answer comfortably, and each chunk is
+ * fetched as a separate {@link GetBugs} request through {@link BugzillaConnector#executeMethodAsync(com.j2bugzilla.base.BugzillaMethod)},
+ * so the chunks run in parallel on the connector's executor. At most {@link #setMaxInFlight(int) max in flight}
+ * chunks are requested at once, so that a large fetch neither floods the executor nor the installation.
+ * 
+ * @author Tom
+ *
+ */
+public class BugFetcher {
+	
+	/**
+	 * The default number of bugs requested at once.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 200;
+	
+	/**
+	 * The default number of chunks requested at once.
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+	
+	private final BugzillaConnector conn;
+	
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	
+	private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	
+	private FieldProjection projection = FieldProjection.ALL;
+	
+	/**
+	 * Creates a new {@link BugFetcher} which executes its requests on the given connector.
+	 * @param conn A connected {@link BugzillaConnector}.
+	 */
+	public BugFetcher(BugzillaConnector conn) {
+		this.conn = conn;
+	}
+	
+	/**
+	 * Sets the largest number of IDs sent in a single request. Defaults to {@value #DEFAULT_CHUNK_SIZE}.
+	 * @param chunkSize A positive number of IDs.
+	 * @return A reference to the original {@code BugFetcher}.
+	 */
+	public BugFetcher setChunkSize(int chunkSize) {
+		if(chunkSize < 1) { throw new IllegalArgumentException("Chunk size must be positive"); }
+		this.chunkSize = chunkSize;
+		return this;
+	}
+	
+	/**
+	 * Sets the largest number of chunks being fetched at once. Defaults to {@value #DEFAULT_MAX_IN_FLIGHT}.
+	 * @param maxInFlight A positive number of chunks.
+	 * @return A reference to the original {@code BugFetcher}.
+	 */
+	public BugFetcher setMaxInFlight(int maxInFlight) {
+		if(maxInFlight < 1) { throw new IllegalArgumentException("Chunks in flight must be positive"); }
+		this.maxInFlight = maxInFlight;
+		return this;
+	}
+	
+	/**
+	 * Limits the fields retrieved for each bug. See {@link GetBugs#setProjection(FieldProjection)}.
+	 * @param projection A {@link FieldProjection} naming the fields to fetch.
+	 * @return A reference to the original {@code BugFetcher}.
+	 */
+	public BugFetcher setProjection(FieldProjection projection) {
+		this.projection = projection;
+		return this;
+	}
+	
+	/**
+	 * Retrieves every bug with the given IDs or aliases.
+	 * @param ids A collection of {@code Integer} IDs and/or {@code String} aliases, which may be empty.
+	 * @return A {@link GetBugs} holding the combined results of every chunk: all the bugs retrieved, and all the
+	 * IDs which faulted.
+	 * @throws BugzillaException If any chunk as a whole fails. No further chunks are requested once one has failed.
+	 */
+	public GetBugs fetch(Collection<?> ids) throws BugzillaException {
+		List<Object> all = new ArrayList<Object>(ids);
+		List<CompletableFuture<GetBugs>> chunks = new ArrayList<CompletableFuture<GetBugs>>();
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		final AtomicBoolean failed = new AtomicBoolean();
+		for(int from = 0; from < all.size() && !failed.get(); from += chunkSize) {
+			GetBugs chunk = new GetBugs(all.subList(from, Math.min(all.size(), from + chunkSize)));
+			chunk.setProjection(projection);
+			inFlight.acquireUninterruptibly();
+			chunks.add(conn.executeMethodAsync(chunk).whenComplete((done, e) -> {
+				if(e != null) {
+					failed.set(true);
+				}
+				inFlight.release();
+			}));
+		}
+		
+		List<Object> bugs = new ArrayList<Object>();
+		List<Object> faults = new ArrayList<Object>();
+		//Reuse the bugs of each chunk, which listeners on the connector may already have built
+		Map<Integer, Bug> built = new LinkedHashMap<Integer, Bug>();
+		for(CompletableFuture<GetBugs> chunk : chunks) {
+			GetBugs done = join(chunk);
+			Map<Object, Object> hash = done.getResultMap();
+			addAll(bugs, hash.get("bugs"));
+			addAll(faults, hash.get("faults"));
+			built.putAll(done.getBugs());
+		}
+		
+		Map<Object, Object> merged = new HashMap<Object, Object>();
+		merged.put("bugs", bugs.toArray());
+		merged.put("faults", faults.toArray());
+		GetBugs result = new GetBugs(all, true);
+		result.setProjection(projection);
+		result.setResultMap(merged);
+		result.setBugs(built);
+		return result;
+	}
+	
+	/**
+	 * Waits for a chunk to complete.
+	 */
+	private static GetBugs join(CompletableFuture<GetBugs> chunk) throws BugzillaException {
+		try {
+			return chunk.join();
+		} catch (CompletionException e) {
+			if(e.getCause() instanceof BugzillaException) {
+				throw (BugzillaException)e.getCause();
+			}
+			throw e;
+		}
+	}
+	
+	private static void addAll(List<Object> list, Object array) {
+		if(array != null) {
+			for(Object o : (Object[])array) {
+				list.add(o);
+			}
+		}
+	}
+
+}
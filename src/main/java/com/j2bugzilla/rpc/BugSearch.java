@@ -0,0 +1,364 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaMethod;
+import com.j2bugzilla.base.FieldProjection;
+import com.j2bugzilla.base.PageSource;
+
+/**
+ * The {@code BugSearch} class searches the bug database of a Bugzilla installation through the
+ * {@code Bug.search} webservice method. Results can be paged with {@link #setLimit(int)} and 
+ * {@link #setOffset(int)}; to walk through a large result set one page at a time, use a
+ * {@link BugSearchIterator}, or fetch several pages at once with a {@link com.j2bugzilla.base.ParallelPageFetcher}
+ * over {@link #pages(BugzillaConnector)}.
+ * 
+ * @author Tom
+ * @see <a href="http://www.bugzilla.org/docs/tip/en/html/api/Bugzilla/WebService/Bug.html#search">Bug.search</a>
+ */
+public class BugSearch implements BugzillaMethod {
+	
+	/**
+	 * The method Bugzilla will execute via XML-RPC
+	 */
+	private static final String METHOD_NAME = "Bug.search";
+
+	/**
+	 * The {@code SearchLimiter} enum defines the facets of a bug which can be searched on.
+	 * 
+	 * @author Tom
+	 */
+	public enum SearchLimiter {
+		
+		/**
+		 * The unique alias of a bug.
+		 */
+		ALIAS("alias"),
+		
+		/**
+		 * The login name of the person the bug is assigned to.
+		 */
+		ASSIGNED_TO("assigned_to"),
+		
+		/**
+		 * The component a bug is filed against.
+		 */
+		COMPONENT("component"),
+		
+		/**
+		 * The login name of the person who reported a bug.
+		 */
+		CREATOR("creator"),
+		
+		/**
+		 * The numeric ID of a bug.
+		 */
+		ID("id"),
+		
+		/**
+		 * The operating system a bug affects.
+		 */
+		OPERATING_SYSTEM("op_sys"),
+		
+		/**
+		 * The hardware platform a bug affects.
+		 */
+		PLATFORM("platform"),
+		
+		/**
+		 * The priority of a bug.
+		 */
+		PRIORITY("priority"),
+		
+		/**
+		 * The product a bug is filed against.
+		 */
+		PRODUCT("product"),
+		
+		/**
+		 * The resolution of a closed bug.
+		 */
+		RESOLUTION("resolution"),
+		
+		/**
+		 * The severity of a bug.
+		 */
+		SEVERITY("severity"),
+		
+		/**
+		 * The status of a bug, such as NEW or RESOLVED.
+		 */
+		STATUS("status"),
+		
+		/**
+		 * The one-line summary of a bug. Bugzilla matches substrings of the summary.
+		 */
+		SUMMARY("summary"),
+		
+		/**
+		 * The target milestone of a bug.
+		 */
+		TARGET_MILESTONE("target_milestone"),
+		
+		/**
+		 * The product version a bug is filed against.
+		 */
+		VERSION("version"),
+		
+		/**
+		 * The status whiteboard of a bug. Bugzilla matches substrings of the whiteboard.
+		 */
+		WHITEBOARD("whiteboard");
+		
+		private final String name;
+		
+		/**
+		 * Creates a new {@link SearchLimiter} with the designated name
+		 * @param name The name Bugzilla expects for this search limiter
+		 */
+		SearchLimiter(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * Get the name Bugzilla expects for this search limiter
+		 * @return A <code>String</code> representing the search limiter
+		 */
+		String getName() {
+			return this.name;
+		}
+	}
+	
+	/**
+	 * The {@code SearchQuery} class pairs a {@link SearchLimiter} with the value to search for. Queries on
+	 * different limiters are joined with a logical AND; several queries on the same limiter match bugs
+	 * with any of the values.
+	 * 
+	 * @author Tom
+	 */
+	public static class SearchQuery {
+		
+		private final SearchLimiter limiter;
+		
+		private final Object query;
+		
+		/**
+		 * Creates a new {@link SearchQuery} to filter the bug database through.
+		 * @param limiter A {@link SearchLimiter} enum.
+		 * @param query A {@code String} to filter with.
+		 */
+		public SearchQuery(SearchLimiter limiter, String query) {
+			this.limiter = limiter;
+			this.query = query;
+		}
+		
+		/**
+		 * Creates a new {@link SearchQuery} on a numeric facet, such as {@link SearchLimiter#ID}.
+		 * @param limiter A {@link SearchLimiter} enum.
+		 * @param query An {@code int} to filter with.
+		 */
+		public SearchQuery(SearchLimiter limiter, int query) {
+			this.limiter = limiter;
+			this.query = query;
+		}
+		
+		/**
+		 * @return The facet of a bug to search against.
+		 */
+		public SearchLimiter getLimiter() {
+			return limiter;
+		}
+		
+		/**
+		 * @return The value to query for within the specified limiter.
+		 */
+		public Object getQuery() {
+			return query;
+		}
+	}
+	
+	private final Map<Object, Object> params = new HashMap<Object, Object>();
+	
+	private Map<Object, Object> hash = new HashMap<Object, Object>();
+	
+	private FieldProjection projection = FieldProjection.ALL;
+	
+	/**
+	 * The {@link Bug Bugs} built from {@link #hash}, or null if they have not been built yet.
+	 */
+	private volatile List<Bug> results;
+	
+	/**
+	 * Creates a new {@link BugSearch} for the bugs matching every one of the given queries.
+	 * @param queries One or more {@link SearchQuery SearchQueries}.
+	 */
+	public BugSearch(SearchQuery... queries) {
+		if(queries.length == 0) {
+			throw new IllegalArgumentException("At least one search query is required");
+		}
+		Map<String, List<Object>> values = new HashMap<String, List<Object>>();
+		for(SearchQuery query : queries) {
+			String name = query.getLimiter().getName();
+			if(!values.containsKey(name)) {
+				values.put(name, new ArrayList<Object>());
+			}
+			values.get(name).add(query.getQuery());
+		}
+		for(Map.Entry<String, List<Object>> entry : values.entrySet()) {
+			List<Object> list = entry.getValue();
+			params.put(entry.getKey(), list.size() == 1 ? list.get(0) : list.toArray());
+		}
+	}
+	
+	/**
+	 * Creates a copy of another {@link BugSearch}, without its results.
+	 */
+	private BugSearch(BugSearch other) {
+		params.putAll(other.params);
+		projection = other.projection;
+	}
+	
+	/**
+	 * Limits the number of bugs returned. Bugzilla applies its own maximum as well.
+	 * @param limit A positive number of bugs.
+	 */
+	public void setLimit(int limit) {
+		if(limit < 1) { throw new IllegalArgumentException("Limit must be positive"); }
+		params.put("limit", limit);
+	}
+	
+	/**
+	 * Skips the given number of matching bugs, so that results can be paged through together
+	 * with {@link #setLimit(int)}.
+	 * @param offset A number of bugs to skip, zero or greater.
+	 */
+	public void setOffset(int offset) {
+		if(offset < 0) { throw new IllegalArgumentException("Offset cannot be negative"); }
+		params.put("offset", offset);
+	}
+	
+	/**
+	 * Only returns bugs which have changed at or after the given time.
+	 * @param since The earliest last change time of a matching bug.
+	 */
+	public void setChangedSince(Date since) {
+		params.put("last_change_time", since);
+	}
+	
+	/**
+	 * Limits the fields retrieved for each {@link Bug}. Accessors of the returned {@code Bugs} for fields
+	 * which were not fetched throw an {@link IllegalStateException}.
+	 * @param projection A {@link FieldProjection} naming the fields to fetch.
+	 */
+	public void setProjection(FieldProjection projection) {
+		this.projection = projection;
+		projection.addTo(params);
+	}
+	
+	/**
+	 * @return The {@link FieldProjection} this {@link BugSearch} fetches with.
+	 */
+	public FieldProjection getProjection() {
+		return projection;
+	}
+	
+	/**
+	 * Returns a new {@link BugSearch} with the same criteria as this one, for a different page of results.
+	 * Pages are sorted by bug ID, so that each page is cut from the same ordering of the results.
+	 * @param offset The number of matching bugs to skip.
+	 * @param limit The largest number of bugs to return.
+	 * @return A new {@code BugSearch} which has not been executed.
+	 */
+	public BugSearch page(int offset, int limit) {
+		BugSearch page = new BugSearch(this);
+		page.setOffset(offset);
+		page.setLimit(limit);
+		page.params.put("order", "bug_id");
+		return page;
+	}
+	
+	/**
+	 * Returns a {@link PageSource} which executes pages of this search asynchronously on the given connector.
+	 * @param conn A connected {@link BugzillaConnector}.
+	 * @return A {@code PageSource} of the {@link Bug Bugs} matching this search.
+	 */
+	public PageSource<Bug> pages(final BugzillaConnector conn) {
+		return new PageSource<Bug>() {
+			@Override
+			public CompletableFuture<List<Bug>> fetchPage(int offset, int limit) {
+				return conn.executeMethodAsync(page(offset, limit)).thenApply(BugSearch::getSearchResults);
+			}
+		};
+	}
+	
+	/**
+	 * Returns the {@link Bug Bugs} found by the query. The bugs are built from the results on the first call,
+	 * and every later call returns the same {@code Bug} objects.
+	 * @return A read-only {@code List} of {@code Bugs} matching the query, in the order returned by the installation.
+	 */
+	public List<Bug> getSearchResults() {
+		List<Bug> result = results;
+		if(result == null) {
+			result = new ArrayList<Bug>();
+			if(hash.containsKey("bugs")) {
+				for(Object o : (Object[])hash.get("bugs")) {
+					@SuppressWarnings("unchecked")
+					Map<String, Object> bugMap = (Map<String, Object>)o;
+					result.add(GetBug.toBug(bugMap, projection));
+				}
+			}
+			result = Collections.unmodifiableList(result);
+			results = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setResultMap(Map<Object, Object> hash) {
+		this.hash = hash;
+		this.results = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<Object, Object> getParameterMap() {
+		return Collections.unmodifiableMap(params);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getMethodName() {
+		return METHOD_NAME;
+	}
+	
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+
+/**
+ * The {@code BugSearchIterator} walks through the results of a {@link BugSearch} one page at a time.
+ * A page is only requested from the installation once the previous page has been consumed, so only one
+ * page of {@link Bug Bugs} is held in memory no matter how many bugs match.
+ * <p>
+ * Pages are requested by offset and sorted by bug ID, so that every page is cut from the same ordering. Bugs
+ * which start or stop matching the search while it is being iterated may still cause others to be skipped or
+ * returned twice.
+ * <p>
+ * Installations may return fewer bugs than were asked for on every page, if they cap the size of a search below
+ * the page size. A short first page is therefore taken as the installation's page size, and the search only
+ * ends on an empty page or on a page shorter than that.
+ * 
+ * @author Tom
+ */
+public class BugSearchIterator implements Iterator<Bug> {
+	
+	private final BugzillaConnector conn;
+	
+	private final BugSearch search;
+	
+	private final int pageSize;
+	
+	private int offset = 0;
+	
+	/**
+	 * The number of bugs a full page holds, which is the page size unless the first page came back shorter.
+	 */
+	private int fullPage;
+	
+	private Iterator<Bug> page;
+	
+	private boolean lastPage = false;
+	
+	/**
+	 * Creates a new {@link BugSearchIterator}. No request is made until the first bug is asked for.
+	 * @param conn A connected {@link BugzillaConnector}.
+	 * @param search The {@link BugSearch} describing the bugs to find. Its own limit and offset are ignored.
+	 * @param pageSize The number of bugs to request at once.
+	 */
+	public BugSearchIterator(BugzillaConnector conn, BugSearch search, int pageSize) {
+		if(pageSize < 1) { throw new IllegalArgumentException("Page size must be positive"); }
+		this.conn = conn;
+		this.search = search;
+		this.pageSize = pageSize;
+		this.fullPage = pageSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalStateException If the next page cannot be fetched; the cause is the {@link BugzillaException}
+	 */
+	@Override
+	public boolean hasNext() {
+		while((page == null || !page.hasNext()) && !lastPage) {
+			BugSearch next = search.page(offset, pageSize);
+			try {
+				conn.executeMethod(next);
+			} catch (BugzillaException e) {
+				throw new IllegalStateException("Could not fetch bugs starting at offset " + offset, e);
+			}
+			List<Bug> bugs = next.getSearchResults();
+			if(offset == 0 && !bugs.isEmpty() && bugs.size() < pageSize) {
+				//Either there are no more bugs, or the installation caps its pages; only the next page can tell
+				fullPage = bugs.size();
+			} else {
+				lastPage = bugs.size() < fullPage;
+			}
+			lastPage |= bugs.isEmpty();
+			offset += bugs.size();
+			page = bugs.iterator();
+		}
+		return page.hasNext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Bug next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.next();
+	}
+
+	/**
+	 * Bugs cannot be removed through a search.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Bugs cannot be removed through a search");
+	}
+
+}
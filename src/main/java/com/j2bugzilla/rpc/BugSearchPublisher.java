@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.j2bugzilla.base.BlockingSubscription;
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugStream;
+import com.j2bugzilla.base.BugzillaConnector;
+
+/**
+ * The {@code BugSearchPublisher} publishes the results of a {@link BugSearch} as a {@link BugStream.Publisher}, one page
+ * at a time. The next page is only requested from the installation once every bug of the previous page has been
+ * requested by the subscriber, so a slow subscriber holds back the search rather than letting pages pile up in memory.
+ * <p>
+ * Pages are fetched by a {@link BugSearchIterator}, so installations which cap their pages below the page size are
+ * paged through in full. The iterator runs on the publisher's own executor, which waits while the subscriber is behind;
+ * by default each subscription gets a thread of its own, so a slow subscriber neither blocks {@link #subscribe} nor
+ * holds a thread of the connector's executor. A publisher runs its search once, so it accepts a single subscriber.
+ * 
+ * @author Tom
+ */
+public class BugSearchPublisher implements BugStream.Publisher<Bug> {
+	
+	private static final String THREAD_PREFIX = "j2bugzilla-publisher-";
+	
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	
+	/**
+	 * Runs each task on a new daemon thread.
+	 */
+	private static final Executor THREAD_PER_SUBSCRIPTION = runnable -> {
+		Thread thread = new Thread(runnable, THREAD_PREFIX + THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+	};
+	
+	private final BugzillaConnector conn;
+	
+	private final BugSearch search;
+	
+	private final int pageSize;
+	
+	private final Executor executor;
+	
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+	
+	/**
+	 * Creates a new {@link BugSearchPublisher} which delivers bugs on a thread of its own.
+	 * No request is made until a subscriber subscribes.
+	 * @param conn A connected {@link BugzillaConnector}.
+	 * @param search The {@link BugSearch} describing the bugs to find. Its own limit and offset are ignored.
+	 * @param pageSize The number of bugs to request at once.
+	 */
+	public BugSearchPublisher(BugzillaConnector conn, BugSearch search, int pageSize) {
+		this(conn, search, pageSize, THREAD_PER_SUBSCRIPTION);
+	}
+	
+	/**
+	 * Creates a new {@link BugSearchPublisher} which delivers bugs on the given executor.
+	 * No request is made until a subscriber subscribes.
+	 * @param conn A connected {@link BugzillaConnector}.
+	 * @param search The {@link BugSearch} describing the bugs to find. Its own limit and offset are ignored.
+	 * @param pageSize The number of bugs to request at once.
+	 * @param executor The {@link Executor} running the search. Its thread waits whenever the subscriber is behind,
+	 * so it should not be shared with work which must not wait behind a slow subscriber.
+	 */
+	public BugSearchPublisher(BugzillaConnector conn, BugSearch search, int pageSize, Executor executor) {
+		if(pageSize < 1) { throw new IllegalArgumentException("Page size must be positive"); }
+		this.conn = conn;
+		this.search = search;
+		this.pageSize = pageSize;
+		this.executor = executor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void subscribe(BugStream.Subscriber<? super Bug> subscriber) {
+		final BlockingSubscription<Bug> subscription = new BlockingSubscription<Bug>(subscriber);
+		subscriber.onSubscribe(subscription);
+		if(!subscribed.compareAndSet(false, true)) {
+			subscription.fail(new IllegalStateException("A BugSearchPublisher accepts only one subscriber"));
+			return;
+		}
+		executor.execute(() -> publish(subscription));
+	}
+	
+	/**
+	 * Emits every bug of the search, fetching each page once the bugs before it have been requested.
+	 */
+	private void publish(BlockingSubscription<Bug> subscription) {
+		try {
+			BugSearchIterator bugs = new BugSearchIterator(conn, search, pageSize);
+			while(!subscription.isCancelled() && bugs.hasNext()) {
+				if(!subscription.emit(bugs.next())) {
+					break;
+				}
+			}
+			subscription.complete();
+		} catch(IllegalStateException e) {
+			//The iterator reports a failed page this way, with the BugzillaException as the cause
+			subscription.fail(e.getCause() != null ? e.getCause() : e);
+		} catch(RuntimeException e) {
+			subscription.fail(e);
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 import com.j2bugzilla.base.Bug;
 import com.j2bugzilla.base.BugFactory;
 import com.j2bugzilla.base.BugzillaMethod;
+import com.j2bugzilla.base.FieldProjection;
 
 
 /**
@@ -41,6 +42,15 @@ public class GetBug implements BugzillaMethod {
 	private Map<Object, Object> hash = new HashMap<Object, Object>();
 	private Map<Object, Object> params = new HashMap<Object, Object>();
 	
+	private FieldProjection projection = FieldProjection.ALL;
+	
+	/**
+	 * The {@link Bug} built from {@link #hash}, which may be null, once {@link #built} is set.
+	 */
+	private volatile Bug bug;
+	
+	private volatile boolean built;
+	
 	/**
 	 * Creates a new {@link GetBug} object to retrieve the {@code Bug} specified
 	 * by the ID parameter
@@ -60,12 +70,30 @@ public class GetBug implements BugzillaMethod {
 		params.put("ids", alias);
 	}
 	
+	/**
+	 * Limits the fields retrieved for the {@link Bug}. Accessors of the returned {@code Bug} for fields
+	 * which were not fetched throw an {@link IllegalStateException}.
+	 * @param projection A {@link FieldProjection} naming the fields to fetch.
+	 */
+	public void setProjection(FieldProjection projection) {
+		this.projection = projection;
+		projection.addTo(params);
+	}
+	
+	/**
+	 * @return The {@link FieldProjection} this {@link GetBug} fetches with.
+	 */
+	public FieldProjection getProjection() {
+		return projection;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void setResultMap(Map<Object, Object> hash) {
 		this.hash = hash;
+		this.built = false;
 	}
 
 	/**
@@ -77,41 +105,56 @@ public class GetBug implements BugzillaMethod {
 	}
 	
 	/**
-	 * Retrieves the {@link com.j2bugzilla.base.Bug} corresponding to the given ID
+	 * Retrieves the {@link com.j2bugzilla.base.Bug} corresponding to the given ID. The bug is built from the
+	 * results on the first call, and every later call returns the same {@code Bug} object.
 	 * @return A {@code Bug} matching the ID, or null if the returned hash
 	 * does not contain a match
 	 */
 	public Bug getBug() {
+		if(built) {
+			return bug;
+		}
 		Bug result = null;
 		if(hash.containsKey("bugs")) {
 			
 			Object[] bugs = (Object[])hash.get("bugs");
-			if(bugs.length == 0) { 
-				return result; //early return if map is empty
-			}
 			
 			for(Object o : bugs) {
 				@SuppressWarnings("unchecked")
 				Map<String, Object> bugMap = (HashMap<String, Object>)o;
-				
-				if(!bugMap.containsKey("version")) {
-					//version required for bugs, but older versions of Bugzilla
-					//didn't return it in the outer map -- check the 'internals'
-					@SuppressWarnings("unchecked")
-					Map<String, Object> internals = (Map<String, Object>)bugMap.get("internals");
-					Object version = internals.get("version");
-					if(version instanceof Double) {
-						bugMap.put("version", Double.toString((Double) version));
-					} else if(version instanceof String) {
-						bugMap.put("version", (String)version);
-					}
-				}
-				
-				result =  new BugFactory().createBug(bugMap);
+				result = toBug(bugMap, projection);
 			}
 		}
+		bug = result;
+		built = true;
 		return result;
 	}
+	
+	/**
+	 * Creates a {@link Bug} from one entry of the {@code bugs} array returned by {@code Bug.get}.
+	 * @param bugMap The {@code Map} describing a single bug.
+	 * @param projection The {@link FieldProjection} the bug was fetched with.
+	 * @return A new {@code Bug}.
+	 */
+	static Bug toBug(Map<String, Object> bugMap, FieldProjection projection) {
+		if(!bugMap.containsKey("version") && bugMap.containsKey("internals")) {
+			//version required for bugs, but older versions of Bugzilla
+			//didn't return it in the outer map -- check the 'internals'
+			//Copy first, since the results may be cached and shared; the bug can then adopt the copy
+			bugMap = new HashMap<String, Object>(bugMap);
+			@SuppressWarnings("unchecked")
+			Map<String, Object> internals = (Map<String, Object>)bugMap.get("internals");
+			Object version = internals.get("version");
+			if(version instanceof Double) {
+				bugMap.put("version", Double.toString((Double) version));
+			} else if(version instanceof String) {
+				bugMap.put("version", (String)version);
+			}
+			return new BugFactory().adoptBug(bugMap, projection);
+		}
+		
+		return new BugFactory().createBug(bugMap, projection);
+	}
 
 	/**
 	 * {@inheritDoc}
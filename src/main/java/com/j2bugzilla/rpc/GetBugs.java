@@ -0,0 +1,197 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaMethod;
+import com.j2bugzilla.base.FieldProjection;
+
+/**
+ * Allows users to retrieve many {@link Bug Bugs} at once, by ID or alias, in a single request. 
+ * Unlike {@link GetBug}, a missing or inaccessible bug does not fail the whole request; its ID
+ * is reported by {@link #getFaults()} instead.
+ * <p>
+ * Installations limit how large a single request may be, so to fetch thousands of bugs, prefer
+ * {@link BugFetcher} which splits the IDs across several {@code GetBugs} requests.
+ * 
+ * @author Tom
+ *
+ */
+public class GetBugs implements BugzillaMethod {
+
+	/**
+	 * The method name for this {@link BugzillaMethod}
+	 */
+	private static final String METHOD_NAME = "Bug.get";
+	
+	private Map<Object, Object> hash = new HashMap<Object, Object>();
+	private final Map<Object, Object> params = new HashMap<Object, Object>();
+	
+	private FieldProjection projection = FieldProjection.ALL;
+	
+	/**
+	 * The {@link Bug Bugs} built from {@link #hash}, built on first use. Threads racing to build them each build an
+	 * equal map, and any may win.
+	 */
+	private volatile Map<Integer, Bug> bugs;
+	
+	/**
+	 * The IDs and aliases requested, in order.
+	 */
+	private final List<Object> ids;
+	
+	/**
+	 * Creates a new {@link GetBugs} object to retrieve the {@code Bugs} specified by the
+	 * given IDs and aliases.
+	 * @param ids A collection of {@code Integer} IDs and/or {@code String} aliases of bugs
+	 * in the installation connected to.
+	 */
+	public GetBugs(Collection<?> ids) {
+		this(ids, false);
+	}
+	
+	/**
+	 * Creates a new {@link GetBugs}, which may request no IDs at all when it only holds results merged by
+	 * {@link BugFetcher}. The installation rejects a request without IDs, so such an instance is never executed.
+	 */
+	GetBugs(Collection<?> ids, boolean allowEmpty) {
+		if(ids.isEmpty() && !allowEmpty) {
+			throw new IllegalArgumentException("At least one bug ID is required");
+		}
+		this.ids = Collections.unmodifiableList(new ArrayList<Object>(ids));
+		params.put("ids", this.ids.toArray());
+		params.put("permissive", true);
+	}
+	
+	/**
+	 * Limits the fields retrieved for each {@link Bug}. Accessors of the returned {@code Bugs} for fields
+	 * which were not fetched throw an {@link IllegalStateException}. The {@code id} field is always fetched,
+	 * since results are keyed by it.
+	 * @param projection A {@link FieldProjection} naming the fields to fetch.
+	 */
+	public void setProjection(FieldProjection projection) {
+		if(!projection.isFetched("id")) {
+			throw new IllegalArgumentException("The id field is required to key the results");
+		}
+		this.projection = projection;
+		projection.addTo(params);
+	}
+	
+	/**
+	 * @return The {@link FieldProjection} this {@link GetBugs} fetches with.
+	 */
+	public FieldProjection getProjection() {
+		return projection;
+	}
+	
+	/**
+	 * @return The IDs and aliases this {@link GetBugs} requests, in order.
+	 */
+	public List<Object> getIDs() {
+		return ids;
+	}
+	
+	/**
+	 * Returns every {@link Bug} retrieved, keyed by bug ID. The bugs are built from the results on the first call,
+	 * and every later call returns the same {@code Bug} objects.
+	 * @return A read-only {@code Map} of bug ID to {@code Bug}, in the order returned by the installation.
+	 * Empty if the method has not been executed.
+	 */
+	public Map<Integer, Bug> getBugs() {
+		Map<Integer, Bug> result = bugs;
+		if(result == null) {
+			result = new LinkedHashMap<Integer, Bug>();
+			if(hash.containsKey("bugs")) {
+				for(Object o : (Object[])hash.get("bugs")) {
+					@SuppressWarnings("unchecked")
+					Map<String, Object> bugMap = (Map<String, Object>)o;
+					Bug bug = GetBug.toBug(bugMap, projection);
+					result.put(bug.getID(), bug);
+				}
+			}
+			result = Collections.unmodifiableMap(result);
+			bugs = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * Sets the {@link Bug Bugs} already built from the results, so that {@link #getBugs()} returns them rather than
+	 * building its own. Used by {@link BugFetcher} when merging chunks.
+	 * @param bugs The bugs of the results, keyed by bug ID.
+	 */
+	void setBugs(Map<Integer, Bug> bugs) {
+		this.bugs = Collections.unmodifiableMap(bugs);
+	}
+	
+	/**
+	 * Returns the IDs or aliases which could not be retrieved, for example because the bug
+	 * does not exist or the user may not see it.
+	 * @return A {@code List} of the IDs or aliases which faulted, as returned by the installation.
+	 */
+	public List<Object> getFaults() {
+		List<Object> faults = new ArrayList<Object>();
+		if(hash.containsKey("faults")) {
+			for(Object o : (Object[])hash.get("faults")) {
+				@SuppressWarnings("unchecked")
+				Map<String, Object> fault = (Map<String, Object>)o;
+				faults.add(fault.get("id"));
+			}
+		}
+		return faults;
+	}
+	
+	/**
+	 * @return The raw results returned by the installation, for merging chunks in {@link BugFetcher}.
+	 */
+	Map<Object, Object> getResultMap() {
+		return hash;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setResultMap(Map<Object, Object> hash) {
+		this.hash = hash;
+		this.bugs = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<Object, Object> getParameterMap() {
+		return Collections.unmodifiableMap(params);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getMethodName() {
+		return METHOD_NAME;
+	}
+
+}
@@ -23,6 +23,7 @@ import java.util.Set;
 
 import com.j2bugzilla.base.BugzillaMethod;
 import com.j2bugzilla.base.Product;
+import com.j2bugzilla.base.ValuePool;
 
 /**
  * The {@code GetLegalValues} class allows clients to query their installation for information on the allowed values for fields
@@ -87,7 +88,8 @@ public class GetLegalValues implements BugzillaMethod {
 	}
 	
 	/**
-	 * Returns the {@code Set} of legal strings which the given {@link Fields field} may be assigned.
+	 * Returns the {@code Set} of legal strings which the given {@link Fields field} may be assigned. The strings are
+	 * also added to the {@link ValuePool#getDefault() default ValuePool}, so that bugs created afterwards share them.
 	 * @return A set of {@code Strings}.
 	 */
 	public Set<String> getLegalValues() {
@@ -106,7 +108,7 @@ public class GetLegalValues implements BugzillaMethod {
 		for(Object obj : values) {
 			@SuppressWarnings("unchecked")//Cast to structure defined by webservice
 			Map<Object, Object> map = (Map<Object, Object>) obj;
-			String name = (String) map.get("name");
+			String name = ValuePool.getDefault().intern((String) map.get("name"));
 			
 			if(product == null) {
 				legalValues.add(name);
@@ -15,9 +15,12 @@
  */
 package com.j2bugzilla.rpc;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.j2bugzilla.base.Bug;
 import com.j2bugzilla.base.BugzillaMethod;
@@ -26,6 +29,10 @@ import com.j2bugzilla.base.BugzillaMethod;
  * The {@code UpdateBug} class allows clients to update an existing {@link Bug} on the installation with
  * new values. Currently, this method only allows one bug at a time to be updated.
  * 
+ * Only the fields {@link Bug#getChangedFields() changed} on the bug are sent, so that fields the caller did not touch
+ * are neither validated again nor overwritten if someone else changed them in the meantime. Once the update succeeds,
+ * the fields it sent are marked unchanged, unless they were changed again while it ran.
+ * 
  * Note that Bugzilla 3.6 does not allow updating bugs via the webservice.
  * @author Tom
  *
@@ -36,16 +43,28 @@ public class UpdateBug implements BugzillaMethod {
 	 * The method name for this webservice operation.
 	 */
 	private static final String METHOD_NAME = "Bug.update";
+	
+	/**
+	 * The fields of a {@link Bug} sent to the installation when it is updated.
+	 */
+	private static final String[] UPDATABLE_FIELDS = {"alias", "summary", "priority", "product", "component",
+		"version", "status", "resolution", "op_sys", "platform", "severity"};
 
 	/**
 	 * A {@link Bug} to update on the installation.
 	 */
 	private final Bug bug;
 	
+	/**
+	 * The changed fields read by the last {@link #getParameterMap()}, with the values they had then. A null value,
+	 * such as a cleared resolution, is not sent but still counts as handled.
+	 */
+	private volatile Map<String, Object> sent = Collections.emptyMap();
+	
 	/**
 	 * Creates a new {@link UpdateBug} object to submit to the Bugzilla webservice. The {@link Bug} on the
-	 * installation identified by the id or alias of the bug provided will have its fields updated 
-	 * to match those of the values in the provided bug.
+	 * installation identified by the id of the bug provided will have the fields which were changed on
+	 * the provided bug updated to match.
 	 * @param bug
 	 */
 	public UpdateBug(Bug bug) {
@@ -61,6 +80,16 @@ public class UpdateBug implements BugzillaMethod {
 		//For now, we only modify one bug at a time, thus this array should be a single element
 		assert(modified.length == 1);
 		//There aren't a ton of useful elements returned, so for now just discard the map.	
+		//Only fields still holding what was sent are done; anything set since must go in a later update
+		Map<Object, Object> state = bug.getParameterMap();
+		List<String> done = new ArrayList<String>();
+		for(Map.Entry<String, Object> field : sent.entrySet()) {
+			Object value = state.get(field.getKey());
+			if(value == null ? field.getValue() == null : value.equals(field.getValue())) {
+				done.add(field.getKey());
+			}
+		}
+		bug.clearChangedFields(done);
 	}
 
 	/**
@@ -72,17 +101,17 @@ public class UpdateBug implements BugzillaMethod {
 		
 		params.put("ids", bug.getID());
 		
-		copyNotNull(params, "alias", bug.getAlias());
-		copyNotNull(params, "summary", bug.getSummary());
-		copyNotNull(params, "priority", bug.getPriority());
-		copyNotNull(params, "product", bug.getProduct());
-		copyNotNull(params, "component", bug.getComponent());
-		copyNotNull(params, "version", bug.getVersion());
-		copyNotNull(params, "status", bug.getStatus());
-		copyNotNull(params, "resolution", bug.getResolution());
-		copyNotNull(params, "op_sys", bug.getOperatingSystem());
-		copyNotNull(params, "platform", bug.getPlatform());
-		copyNotNull(params, "severity", bug.getSeverity());
+		//Read the raw state rather than the accessors, which fail for fields a projected bug never fetched
+		Map<Object, Object> state = bug.getParameterMap();
+		Set<String> changed = bug.getChangedFields();
+		Map<String, Object> read = new HashMap<String, Object>();
+		for(String field : UPDATABLE_FIELDS) {
+			if(changed.contains(field)) {
+				read.put(field, state.get(field));
+				copyNotNull(params, field, state.get(field));
+			}
+		}
+		sent = read;
 		
 		return Collections.unmodifiableMap(params);
 	}
@@ -93,6 +122,13 @@ public class UpdateBug implements BugzillaMethod {
 		}
 	}
 	
+	/**
+	 * @return The {@link Bug} this method updates on the installation.
+	 */
+	public Bug getBug() {
+		return bug;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,141 @@
+package com.j2bugzilla.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.j2bugzilla.base.Flag.Status;
+
+/**
+ * Compares the cost per bug of checking a flag, as a release check does for many bugs, between the old
+ * {@code getFlags()}, which parsed the raw flags into a new set on every call, and the memoized {@code getFlags()}
+ * and {@code getFlag(String)}. Run it with {@code main}; it is not part of the unit tests.
+ */
+public class BugFlagsBenchmark {
+	
+	private static final int BUGS = 20000;
+	
+	private static final int PASSES = 20;
+	
+	private static final String[] NAMES = {"review", "superreview", "approval", "blocking", "in-testsuite", "qe-verify"};
+	
+	private static final String[] STATUSES = {" ", "?", "+", "-"};
+	
+	public static void main(String[] args) {
+		List<Bug> bugs = newBugs();
+		for(int warmup = 0; warmup < 3; warmup++) {
+			run(bugs, 0);
+			run(newBugs(), 1);
+			run(bugs, 2);
+		}
+		System.out.printf("old getFlags:            %8.1f ns/bug%n", run(bugs, 0));
+		List<Bug> fresh = newBugs();
+		System.out.printf("getFlags, parsing:       %8.1f ns/bug%n", runOnce(fresh));
+		System.out.printf("getFlags, memoized:      %8.1f ns/bug%n", run(fresh, 1));
+		System.out.printf("getFlag, memoized:       %8.1f ns/bug%n", run(fresh, 2));
+	}
+	
+	private static List<Bug> newBugs() {
+		List<Bug> bugs = new ArrayList<Bug>(BUGS);
+		for(int i = 0; i < BUGS; i++) {
+			Map<String, Object> state = StubBugzillaServer.newBug(i);
+			Object[] flags = new Object[i % 5];
+			for(int f = 0; f < flags.length; f++) {
+				Map<String, Object> flag = new HashMap<String, Object>();
+				flag.put("name", new String(NAMES[(i + f) % NAMES.length]));
+				flag.put("status", STATUSES[(i * 3 + f) % STATUSES.length]);
+				flags[f] = flag;
+			}
+			state.put("flags", flags);
+			bugs.add(new Bug(state));
+		}
+		return bugs;
+	}
+	
+	/**
+	 * @param mode 0 for the old {@code getFlags()}, 1 for {@code getFlags()}, 2 for {@code getFlag(String)}
+	 * @return The average time of one check, in nanoseconds, over several passes through every bug.
+	 */
+	private static double run(List<Bug> bugs, int mode) {
+		//The old code read the field directly, so copying the state is kept out of the timing
+		List<Object[]> raw = new ArrayList<Object[]>(bugs.size());
+		for(Bug bug : bugs) {
+			raw.add((Object[])bug.getParameterMap().get("flags"));
+		}
+		Flag approved = new Flag("approval", Status.POSITIVE);
+		long count = 0;
+		long start = System.nanoTime();
+		for(int pass = 0; pass < PASSES; pass++) {
+			for(int i = 0; i < bugs.size(); i++) {
+				Bug bug = bugs.get(i);
+				if(mode == 0) {
+					count += hasApproval(oldGetFlags(raw.get(i))) ? 1 : 0;
+				} else if(mode == 1) {
+					count += bug.getFlags().contains(approved) ? 1 : 0;
+				} else {
+					Flag flag = bug.getFlag("approval");
+					count += flag != null && flag.getStatus() == Status.POSITIVE ? 1 : 0;
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if(count == 42) { System.out.println(); }
+		return (double)elapsed / (PASSES * bugs.size());
+	}
+	
+	private static double runOnce(List<Bug> bugs) {
+		Flag approved = new Flag("approval", Status.POSITIVE);
+		long count = 0;
+		long start = System.nanoTime();
+		for(Bug bug : bugs) {
+			count += bug.getFlags().contains(approved) ? 1 : 0;
+		}
+		long elapsed = System.nanoTime() - start;
+		if(count == 42) { System.out.println(); }
+		return (double)elapsed / bugs.size();
+	}
+	
+	/**
+	 * Flags had no {@code equals} before, so a check had to look at each one.
+	 */
+	private static boolean hasApproval(Set<Flag> flags) {
+		for(Flag flag : flags) {
+			if(flag.getName().equals("approval") && flag.getStatus() == Status.POSITIVE) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * The implementation of {@code Bug.getFlags()} before flags were parsed once and shared.
+	 */
+	private static Set<Flag> oldGetFlags(Object[] flagObjs) {
+		Set<Flag> flags = new HashSet<Flag>();
+		for(Object obj : flagObjs) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> flag = (Map<String, Object>)obj;
+			String name = (String)flag.get("name");
+			String status = (String)flag.get("status");
+			Status s;
+			if(status.equals(" ")) {
+				s = Status.UNSET;
+			} else if(status.equals("?")) {
+				s = Status.UNKNOWN;
+			} else if(status.equals("+")) {
+				s = Status.POSITIVE;
+			} else if(status.equals("-")) {
+				s = Status.NEGATIVE;
+			} else {
+				throw new IllegalStateException("Unknown flag state");
+			}
+			flags.add(new Flag(name, s));
+		}
+		return Collections.unmodifiableSet(flags);
+	}
+
+}
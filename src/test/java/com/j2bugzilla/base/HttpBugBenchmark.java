@@ -0,0 +1,85 @@
+package com.j2bugzilla.base;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compares the cost per row of reading the last change time of search results, as done when sorting or filtering
+ * them, between the old {@code getDeltaTs()}, which created a {@code SimpleDateFormat} and parsed the value on every
+ * call, and the cached typed accessor. Run it with {@code main}; it is not part of the unit tests.
+ */
+public class HttpBugBenchmark {
+	
+	private static final int ROWS = 50000;
+	
+	private static final int PASSES = 20;
+	
+	public static void main(String[] args) {
+		List<HttpBug> bugs = newBugs();
+		for(int warmup = 0; warmup < 3; warmup++) {
+			run(bugs, false);
+			run(newBugs(), true);
+		}
+		System.out.printf("old getDeltaTs:          %8.1f ns/row%n", run(bugs, false));
+		List<HttpBug> fresh = newBugs();
+		System.out.printf("getLastUpdate, parsing:  %8.1f ns/row%n", runOnce(fresh));
+		System.out.printf("getLastUpdate, cached:   %8.1f ns/row%n", run(fresh, true));
+	}
+	
+	private static List<HttpBug> newBugs() {
+		ColumnSchema schema = new ColumnSchema(HttpBug.ID, HttpBug.LAST_UPDATE);
+		BugFactory factory = new BugFactory();
+		List<HttpBug> bugs = new ArrayList<HttpBug>(ROWS);
+		for(int i = 0; i < ROWS; i++) {
+			String time = String.format("2017-%02d-%02d %02d:%02d:%02d", i % 12 + 1, i % 28 + 1, i % 24, i % 60, (i * 7) % 60);
+			bugs.add(factory.createHttpBug(schema, new Object[]{String.valueOf(i), time}));
+		}
+		return bugs;
+	}
+	
+	/**
+	 * @return The average time of one access, in nanoseconds, over several passes through every bug.
+	 */
+	private static double run(List<HttpBug> bugs, boolean cached) {
+		long sum = 0;
+		long start = System.nanoTime();
+		for(int pass = 0; pass < PASSES; pass++) {
+			for(HttpBug bug : bugs) {
+				Date date = cached ? bug.getLastUpdate() : oldDeltaTs(bug);
+				sum += date.getTime();
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if(sum == 42) { System.out.println(); }
+		return (double)elapsed / (PASSES * bugs.size());
+	}
+	
+	private static double runOnce(List<HttpBug> bugs) {
+		long sum = 0;
+		long start = System.nanoTime();
+		for(HttpBug bug : bugs) {
+			sum += bug.getLastUpdate().getTime();
+		}
+		long elapsed = System.nanoTime() - start;
+		if(sum == 42) { System.out.println(); }
+		return (double)elapsed / bugs.size();
+	}
+	
+	/**
+	 * The implementation of {@code HttpBug.getDeltaTs()} before values were parsed once and cached.
+	 */
+	private static Date oldDeltaTs(HttpBug bug) {
+		String sLastChange = (String) bug.get("DeltaTs");
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		try {
+			return format.parse(sLastChange);
+		} catch (ParseException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.j2bugzilla.base;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link BugStream.Subscriber} for tests which records everything it receives, and only requests items when told to.
+ */
+public class RecordingSubscriber<T> implements BugStream.Subscriber<T> {
+	
+	private final List<T> items = new CopyOnWriteArrayList<T>();
+	
+	private final CountDownLatch done = new CountDownLatch(1);
+	
+	private volatile BugStream.Subscription subscription;
+	
+	private volatile Throwable error;
+	
+	private volatile boolean completed;
+	
+	private volatile int waitingFor = -1;
+	
+	private volatile CountDownLatch received;
+
+	@Override
+	public void onSubscribe(BugStream.Subscription subscription) {
+		this.subscription = subscription;
+	}
+
+	@Override
+	public void onNext(T item) {
+		items.add(item);
+		CountDownLatch received = this.received;
+		if(received != null && items.size() >= waitingFor) {
+			received.countDown();
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		error = throwable;
+		done.countDown();
+	}
+
+	@Override
+	public void onComplete() {
+		completed = true;
+		done.countDown();
+	}
+	
+	public BugStream.Subscription getSubscription() {
+		return subscription;
+	}
+	
+	public List<T> getItems() {
+		return items;
+	}
+	
+	public Throwable getError() {
+		return error;
+	}
+	
+	public boolean isCompleted() {
+		return completed;
+	}
+	
+	/**
+	 * Requests items and waits until the total received reaches {@code total}.
+	 * @return True if it did within five seconds.
+	 */
+	public boolean requestAndWait(long n, int total) throws InterruptedException {
+		waitingFor = total;
+		received = new CountDownLatch(items.size() >= total ? 0 : 1);
+		subscription.request(n);
+		return received.await(5, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Waits for completion or an error.
+	 * @return True if either arrived within five seconds.
+	 */
+	public boolean awaitDone() throws InterruptedException {
+		return awaitDone(5000);
+	}
+	
+	/**
+	 * Waits for completion or an error.
+	 * @return True if either arrived within the given number of milliseconds.
+	 */
+	public boolean awaitDone(long millis) throws InterruptedException {
+		return done.await(millis, TimeUnit.MILLISECONDS);
+	}
+
+}
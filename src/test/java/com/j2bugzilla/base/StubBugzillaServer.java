@@ -0,0 +1,196 @@
+package com.j2bugzilla.base;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ws.commons.serialize.XMLWriterImpl;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.common.TypeFactoryImpl;
+import org.apache.xmlrpc.common.XmlRpcHttpRequestConfigImpl;
+import org.apache.xmlrpc.parser.XmlRpcRequestParser;
+import org.apache.xmlrpc.serializer.XmlRpcWriter;
+import org.apache.xmlrpc.util.SAXParsers;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal XML-RPC server on the loopback interface, used to exercise {@link BugzillaConnector}
+ * without a real Bugzilla installation.
+ */
+public class StubBugzillaServer {
+
+	/**
+	 * Answers a single XML-RPC method call.
+	 */
+	public interface Handler {
+		Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException;
+	}
+	
+	private final Handler handler;
+	
+	private final HttpServer server;
+	
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	
+	private final AtomicInteger requests = new AtomicInteger();
+	
+	private final Set<InetSocketAddress> clients = Collections.synchronizedSet(new HashSet<InetSocketAddress>());
+	
+	private final Map<String, String> pages = Collections.synchronizedMap(new HashMap<String, String>());
+	
+	public StubBugzillaServer(Handler handler) throws IOException {
+		this.handler = handler;
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				clients.add(exchange.getRemoteAddress());
+				try {
+					byte[] body;
+					if("POST".equals(exchange.getRequestMethod())) {
+						body = respond(exchange);
+						exchange.getResponseHeaders().set("Content-Type", "text/xml");
+					} else {
+						String page = pages.get(exchange.getRequestURI().getPath());
+						if(page == null) {
+							exchange.sendResponseHeaders(404, -1);
+							return;
+						}
+						body = page.getBytes("UTF-8");
+						exchange.getResponseHeaders().set("Content-Type", "text/html");
+					}
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} catch (Exception e) {
+					exchange.sendResponseHeaders(500, -1);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+	}
+	
+	/**
+	 * Builds the map Bugzilla returns for a bug with the required fields set.
+	 */
+	public static Map<String, Object> newBug(int id) {
+		Map<String, Object> bug = new HashMap<String, Object>();
+		bug.put("id", id);
+		bug.put("product", "Test");
+		bug.put("component", "Test");
+		bug.put("summary", "Bug " + id);
+		bug.put("version", "1.0");
+		return bug;
+	}
+	
+	/**
+	 * @return The base URL of this server, ending in a slash.
+	 */
+	public String getURL() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+	
+	/**
+	 * Serves the given body for GET requests to the given path.
+	 */
+	public void setPage(String path, String body) {
+		pages.put(path, body);
+	}
+	
+	/**
+	 * @return The number of HTTP requests received so far.
+	 */
+	public int getRequestCount() {
+		return requests.get();
+	}
+	
+	/**
+	 * @return The number of distinct client sockets requests were received from.
+	 */
+	public int getConnectionCount() {
+		return clients.size();
+	}
+	
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private byte[] respond(HttpExchange exchange) throws Exception {
+		XmlRpcHttpRequestConfigImpl config = new XmlRpcHttpRequestConfigImpl();
+		TypeFactoryImpl types = new TypeFactoryImpl(new XmlRpcClient());
+		
+		XmlRpcRequestParser parser = new XmlRpcRequestParser(config, types);
+		XMLReader reader = SAXParsers.newXMLReader();
+		reader.setContentHandler(parser);
+		reader.parse(new InputSource(exchange.getRequestBody()));
+		
+		List<Object> params = parser.getParams();
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Writer out = new OutputStreamWriter(bytes, "UTF-8");
+		XMLWriterImpl xml = new XMLWriterImpl();
+		xml.setEncoding("UTF-8");
+		xml.setDeclarating(true);
+		xml.setWriter(out);
+		XmlRpcWriter writer = new XmlRpcWriter(config, xml, types);
+		try {
+			if("system.multicall".equals(parser.getMethodName())) {
+				writer.write(config, multicall((Object[])params.get(0)));
+			} else {
+				writer.write(config, handler.handle(parser.getMethodName(), firstParam(params.toArray())));
+			}
+		} catch (XmlRpcException e) {
+			writer.write(config, e.code, e.getMessage());
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Object[] multicall(Object[] calls) {
+		Object[] results = new Object[calls.length];
+		for(int i = 0; i < calls.length; i++) {
+			Map<Object, Object> call = (Map<Object, Object>)calls[i];
+			try {
+				results[i] = new Object[]{handler.handle((String)call.get("methodName"), firstParam((Object[])call.get("params")))};
+			} catch (XmlRpcException e) {
+				Map<Object, Object> fault = new HashMap<Object, Object>();
+				fault.put("faultCode", e.code);
+				fault.put("faultString", e.getMessage());
+				results[i] = fault;
+			}
+		}
+		return results;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Map<Object, Object> firstParam(Object[] params) {
+		return params.length == 0 ? new HashMap<Object, Object>() : (Map<Object, Object>)params[0];
+	}
+	
+}
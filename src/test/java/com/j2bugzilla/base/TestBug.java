@@ -1,7 +1,14 @@
 package com.j2bugzilla.base;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
 
 import org.junit.Test;
 
@@ -12,5 +19,183 @@ public class TestBug {
 		Map<String, Object> fields = new HashMap<String, Object>();
 		new Bug(fields);
 	}
+	
+	@Test
+	public void testProjectedBug() {
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("id", 1);
+		fields.put("status", "NEW");
+		Bug bug = new Bug(fields, FieldProjection.include("id", "status", "last_change_time"));
+		
+		assertEquals("ID is incorrect", 1, bug.getID());
+		assertEquals("Status is incorrect", "NEW", bug.getStatus());
+		assertNull("A fetched but empty field should be null", bug.getLastChangeTime());
+		
+		bug.setSummary("Set locally");
+		assertEquals("A field set locally should be readable", "Set locally", bug.getSummary());
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testUnfetchedField() {
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("id", 1);
+		new Bug(fields, FieldProjection.include("id")).getProduct();
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testExcludedField() {
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("product", "Test");
+		fields.put("component", "Test");
+		fields.put("version", "1.0");
+		new Bug(fields, FieldProjection.exclude("summary")).getSummary();
+	}
+	
+	@Test
+	public void testProjectionParameters() {
+		Map<Object, Object> params = new HashMap<Object, Object>();
+		FieldProjection.include("id", "status").addTo(params);
+		assertEquals("Wrong number of included fields", 2, ((Object[])params.get("include_fields")).length);
+		
+		FieldProjection.ALL.addTo(params);
+		assertTrue("Fetching all fields needs no parameters", params.isEmpty());
+	}
+	
+	@Test
+	public void testParameterMapKeepsEveryField() {
+		Map<String, Object> fields = StubBugzillaServer.newBug(3);
+		fields.put("status", "NEW");
+		fields.put("resolution", null);
+		fields.put("last_change_time", new Date(1500000000000L));
+		fields.put("cc", new Object[] {"a@example.com"});
+		fields.put("cf_custom", "custom");
+		//Newer installations return a list of aliases, which must survive as it is
+		fields.put("alias", new Object[] {"three"});
+		Bug bug = new Bug(new HashMap<String, Object>(fields));
+		
+		Map<Object, Object> params = bug.getParameterMap();
+		assertEquals(fields.keySet(), params.keySet());
+		assertTrue(params.containsKey("resolution"));
+		assertNull(params.get("resolution"));
+		assertEquals("custom", params.get("cf_custom"));
+		assertEquals(new Date(1500000000000L), params.get("last_change_time"));
+		assertArrayEquals(new Object[] {"three"}, (Object[])params.get("alias"));
+		assertEquals(3, bug.getID());
+		assertEquals("NEW", bug.getStatus());
+		assertNull(bug.getResolution());
+		
+		bug.setAlias("three");
+		bug.setStatus("RESOLVED");
+		bug.setResolution("FIXED");
+		assertEquals("three", bug.getAlias());
+		assertEquals("FIXED", bug.getParameterMap().get("resolution"));
+		bug.clearResolution();
+		assertFalse("Cleared resolution was still sent", bug.getParameterMap().containsKey("resolution"));
+		assertEquals("RESOLVED", bug.getParameterMap().get("status"));
+	}
+	
+	@Test
+	public void testLastChangeTimeIsCopied() {
+		Map<String, Object> fields = StubBugzillaServer.newBug(1);
+		fields.put("last_change_time", new Date(1000L));
+		Bug bug = new Bug(fields);
+		bug.getLastChangeTime().setTime(2000L);
+		assertEquals(new Date(1000L), bug.getLastChangeTime());
+		
+		fields.put("last_change_time", null);
+		assertNull(new Bug(fields).getLastChangeTime());
+	}
+	
+	@Test
+	public void testChangedFields() {
+		Bug bug = new Bug(StubBugzillaServer.newBug(1), FieldProjection.ALL);
+		assertTrue("Loaded bug has changes", bug.getChangedFields().isEmpty());
+		
+		bug.setStatus("RESOLVED");
+		bug.setResolution("FIXED");
+		bug.setStatus("VERIFIED");
+		assertEquals(new HashSet<String>(Arrays.asList("status", "resolution")), bug.getChangedFields());
+		
+		bug.clearChangedFields();
+		assertTrue(bug.getChangedFields().isEmpty());
+		assertEquals("Clearing changes reverted a value", "VERIFIED", bug.getStatus());
+		
+		bug.clearResolution();
+		assertEquals(Collections.singleton("resolution"), bug.getChangedFields());
+	}
+	
+	@Test
+	public void testNewBugHasAllFieldsChanged() {
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("product", "Widgets");
+		fields.put("component", "Frobnicator");
+		fields.put("summary", "Crash on start");
+		fields.put("version", "1.0");
+		assertEquals(fields.keySet(), new Bug(fields).getChangedFields());
+	}
+	
+	@Test
+	public void testCommonValuesAreShared() {
+		Map<String, Object> first = StubBugzillaServer.newBug(1);
+		first.put("status", new String("NEW"));
+		Map<String, Object> second = StubBugzillaServer.newBug(2);
+		second.put("status", new String("NEW"));
+		assertSame(new Bug(first).getStatus(), new Bug(second).getStatus());
+	}
+	
+	private static Map<String, Object> flag(String name, String status) {
+		Map<String, Object> flag = new HashMap<String, Object>();
+		flag.put("name", name);
+		flag.put("status", status);
+		return flag;
+	}
+	
+	private static Bug bugWithFlags(Object... flags) {
+		Map<String, Object> fields = StubBugzillaServer.newBug(1);
+		fields.put("flags", flags);
+		return new Bug(fields);
+	}
+	
+	@Test
+	public void testFlags() {
+		Bug bug = bugWithFlags(flag("review", "?"), flag("approval", "+"), flag("review", "-"), flag("review", "?"));
+		Set<Flag> flags = bug.getFlags();
+		
+		assertEquals("Duplicate flags were kept", 3, flags.size());
+		assertTrue(flags.contains(new Flag("approval", Flag.Status.POSITIVE)));
+		assertFalse(flags.contains(new Flag("approval", Flag.Status.NEGATIVE)));
+		assertSame("Flags were parsed again", flags, bug.getFlags());
+		
+		assertEquals(Flag.Status.POSITIVE, bug.getFlag("approval").getStatus());
+		assertEquals("The first review flag listed was not returned", Flag.Status.UNKNOWN, bug.getFlag("review").getStatus());
+		assertNull(bug.getFlag("blocking"));
+		
+		Bug other = bugWithFlags(flag("approval", "+"));
+		assertSame("Flags were not shared between bugs", bug.getFlag("approval"), other.getFlag("approval"));
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFlagsAreImmutable() {
+		bugWithFlags(flag("review", "?")).getFlags().clear();
+	}
+	
+	@Test
+	public void testNoFlags() {
+		assertTrue(new Bug(StubBugzillaServer.newBug(1)).getFlags().isEmpty());
+		assertTrue(bugWithFlags().getFlags().isEmpty());
+		assertNull(bugWithFlags().getFlag("review"));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testUnknownFlagStatus() {
+		bugWithFlags(flag("review", "!")).getFlags();
+	}
+	
+	@Test
+	public void testFactoryFlags() {
+		Bug bug = new BugFactory().newBug().setProduct("Test").setComponent("Test").setSummary("Flags")
+				.setVersion("1.0").addFlag(new Flag("review", Flag.Status.UNKNOWN)).createBug();
+		assertEquals(Flag.Status.UNKNOWN, bug.getFlag("review").getStatus());
+	}
 
 }
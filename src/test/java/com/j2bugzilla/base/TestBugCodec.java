@@ -0,0 +1,207 @@
+package com.j2bugzilla.base;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestBugCodec {
+	
+	private static Map<String, Object> state(int id) {
+		Map<String, Object> state = StubBugzillaServer.newBug(id);
+		state.put("status", "NEW");
+		state.put("priority", "P2");
+		state.put("assigned_to", "someone@example.com");
+		state.put("creation_time", new Date(1500000000000L));
+		state.put("is_open", true);
+		state.put("estimated_time", 2.5);
+		state.put("cc", new Object[] {"a@example.com", "someone@example.com"});
+		Map<String, Object> flag = new HashMap<String, Object>();
+		flag.put("name", "review");
+		flag.put("status", "?");
+		flag.put("id", -3);
+		state.put("flags", new Object[] {flag});
+		state.put("cf_big", 1L << 40);
+		state.put("cf_empty", null);
+		return state;
+	}
+	
+	private static void assertSameState(Bug expected, Bug actual) {
+		Map<Object, Object> want = expected.getParameterMap();
+		Map<Object, Object> got = actual.getParameterMap();
+		assertEquals(want.keySet(), got.keySet());
+		for(Object key : want.keySet()) {
+			assertTrue("Field " + key + " differs", deepEquals(want.get(key), got.get(key)));
+		}
+	}
+	
+	private static boolean deepEquals(Object a, Object b) {
+		if(a instanceof Map<?, ?> && b instanceof Map<?, ?>) {
+			Map<?, ?> x = (Map<?, ?>)a;
+			Map<?, ?> y = (Map<?, ?>)b;
+			if(!x.keySet().equals(y.keySet())) {
+				return false;
+			}
+			for(Object key : x.keySet()) {
+				if(!deepEquals(x.get(key), y.get(key))) {
+					return false;
+				}
+			}
+			return true;
+		} else if(a instanceof Object[] && b instanceof Object[]) {
+			Object[] x = (Object[])a;
+			Object[] y = (Object[])b;
+			if(x.length != y.length) {
+				return false;
+			}
+			for(int i = 0; i < x.length; i++) {
+				if(!deepEquals(x[i], y[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return a == null ? b == null : a.equals(b);
+	}
+
+	@Test
+	public void testBugRoundTrip() throws IOException {
+		Map<String, Object> state = state(42);
+		state.put("cf_custom", "A custom field with a rather long value that is not worth adding to the dictionary");
+		state.put("cf_copy", "A custom field with a rather long value that is not worth adding to the dictionary");
+		Bug bug = new BugFactory().createBug(state);
+		Bug decoded = BugCodec.decodeBug(BugCodec.encode(bug));
+		assertSameState(bug, decoded);
+		assertEquals(42, decoded.getID());
+		assertEquals("NEW", decoded.getStatus());
+		assertEquals(1, decoded.getFlags().size());
+	}
+	
+	@Test
+	public void testProjectionRoundTrip() throws IOException {
+		Map<String, Object> state = new HashMap<String, Object>();
+		state.put("id", 5);
+		state.put("summary", "partial");
+		Bug decoded = BugCodec.decodeBug(BugCodec.encode(
+				new BugFactory().createBug(state, FieldProjection.include("id", "summary"))));
+		assertEquals("partial", decoded.getSummary());
+		try {
+			decoded.getProduct();
+			fail("Projection was lost");
+		} catch(IllegalStateException e) {
+			//Expected
+		}
+	}
+	
+	@Test
+	public void testOtherModels() throws IOException {
+		Comment comment = BugCodec.decodeComment(BugCodec.encode(new Comment(12, "Fixed in trunk")));
+		assertEquals(12, comment.getID());
+		assertEquals("Fixed in trunk", comment.getText());
+		
+		Attachment attachment = new AttachmentFactory().newAttachment().setData(new byte[] {1, 2, 3})
+				.setName("patch.diff").setMime("text/plain").setSummary("A patch").setCreator("someone@example.com")
+				.setID(9).setBugID(42).createAttachment();
+		attachment.setCreationDate(new Date(1500000000000L));
+		Attachment decoded = BugCodec.decodeAttachment(BugCodec.encode(attachment));
+		assertArrayEquals(new byte[] {1, 2, 3}, decoded.getRawData());
+		assertEquals("patch.diff", decoded.getFileName());
+		assertEquals("text/plain", decoded.getMIMEType());
+		assertEquals("A patch", decoded.getSummary());
+		assertEquals("someone@example.com", decoded.getCreator());
+		assertEquals(9, decoded.getAttachmentID());
+		assertEquals(42, decoded.getBugID());
+		assertEquals(new Date(1500000000000L), decoded.createdOn());
+		assertNull(decoded.lastChangedOn());
+		
+		ColumnSchema schema = new ColumnSchema("Id", "BugStatus", "ShortDesc");
+		HttpBug bug = new BugFactory().createHttpBug(schema, new Object[] {"7", "NEW", null});
+		HttpBug decodedBug = BugCodec.decodeHttpBug(BugCodec.encode(bug));
+		assertEquals(Arrays.asList("Id", "BugStatus", "ShortDesc"), decodedBug.getSchema().getNames());
+		assertEquals("NEW", decodedBug.get("BugStatus"));
+		assertNull(decodedBug.get("ShortDesc"));
+	}
+	
+	@Test
+	public void testStreamSharesDictionaryAndSchemas() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BugCodec.Writer writer = new BugCodec.Writer(bytes);
+		ColumnSchema schema = new ColumnSchema("Id", "BugStatus");
+		for(int id = 1; id <= 100; id++) {
+			writer.write(new BugFactory().createBug(state(id)));
+			writer.write(new BugFactory().createHttpBug(schema, new Object[] {String.valueOf(id), "NEW"}));
+		}
+		writer.write(new Comment(1, "Last"));
+		writer.close();
+		
+		BugCodec.Reader reader = new BugCodec.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+		ColumnSchema shared = null;
+		for(int id = 1; id <= 100; id++) {
+			assertSameState(new BugFactory().createBug(state(id)), (Bug)reader.read());
+			HttpBug bug = (HttpBug)reader.read();
+			assertEquals(String.valueOf(id), bug.get("Id"));
+			if(shared == null) {
+				shared = bug.getSchema();
+			}
+			assertSame("Columns were not shared", shared, bug.getSchema());
+		}
+		assertEquals("Last", ((Comment)reader.read()).getText());
+		assertNull(reader.read());
+		reader.close();
+		
+		int single = BugCodec.encode(new BugFactory().createBug(state(1))).length;
+		assertTrue("Stream did not reuse the dictionary", bytes.size() < 100 * single * 2 / 3);
+	}
+	
+	@Test
+	public void testSmallerThanSerialization() throws IOException {
+		Bug bug = new BugFactory().createBug(state(42));
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(serialized);
+		out.writeObject(new HashMap<Object, Object>(bug.getParameterMap()));
+		out.close();
+		assertTrue(BugCodec.encode(bug).length * 3 < serialized.size());
+	}
+	
+	@Test
+	public void testRejectsBadInput() {
+		byte[] encoded = BugCodec.encode(new BugFactory().createBug(state(42)));
+		byte[] newer = encoded.clone();
+		newer[0] = (byte)(BugCodec.VERSION + 1);
+		assertFails(newer);
+		assertFails(Arrays.copyOf(encoded, encoded.length / 2));
+		assertFails(new byte[0]);
+		assertFails(BugCodec.encode(new Comment(1, "Not a bug")));
+		try {
+			BugCodec.decodeComment(encoded);
+			fail("Decoded a bug as a comment");
+		} catch(IOException e) {
+			//Expected
+		}
+	}
+	
+	private static void assertFails(byte[] data) {
+		try {
+			BugCodec.decodeBug(data);
+			fail("Decoded bad input");
+		} catch(IOException e) {
+			//Expected
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsUnknownValues() {
+		Map<String, Object> state = state(1);
+		state.put("cf_thread", new Thread());
+		BugCodec.encode(new BugFactory().createBug(state));
+	}
+
+}
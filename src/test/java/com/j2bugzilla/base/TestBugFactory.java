@@ -1,5 +1,12 @@
 package com.j2bugzilla.base;
 
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.junit.Test;
 
 public class TestBugFactory {
@@ -15,4 +22,86 @@ public class TestBugFactory {
 		BugFactory factory = new BugFactory();
 		factory.createBug();
 	}
+	
+	@Test
+	public void testHttpBugSharesSchema() {
+		BugFactory factory = new BugFactory();
+		ColumnSchema schema = new ColumnSchema("Id", "BugStatus", "ShortDesc");
+		HttpBug first = factory.createHttpBug(schema, new Object[]{"1", "NEW", "First"});
+		HttpBug second = factory.createHttpBug(schema, new Object[]{"2", "ASSIGNED", "Second"});
+		assertSame("Schema was not shared", first.getSchema(), second.getSchema());
+		assertEquals("Wrong ID", "2", second.getId());
+		
+		Map<String, Object> expected = new LinkedHashMap<String, Object>();
+		expected.put("Id", "1");
+		expected.put("BugStatus", "NEW");
+		expected.put("ShortDesc", "First");
+		assertEquals("View does not match the values", expected, first.getInternalState());
+		assertEquals("View is not in column order", expected.keySet().toString(), first.getInternalState().keySet().toString());
+		assertNull("Missing column has a value", first.getInternalState().get("Priority"));
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testHttpBugViewIsReadOnly() {
+		HttpBug bug = new BugFactory().createHttpBug(new ColumnSchema("Id"), new Object[]{"1"});
+		bug.getInternalState().put("Id", "2");
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testHttpBugWrongLength() {
+		new BugFactory().createHttpBug(new ColumnSchema("Id", "BugStatus"), new Object[]{"1"});
+	}
+	
+	@Test
+	public void testCreateDoesNotKeepMap() {
+		Map<String, Object> properties = StubBugzillaServer.newBug(1);
+		properties.put("cf_custom", "before");
+		Bug bug = new BugFactory().createBug(properties);
+		properties.put("cf_custom", "after");
+		properties.put("summary", "after");
+		assertEquals("before", bug.getParameterMap().get("cf_custom"));
+		assertEquals("Bug 1", bug.getSummary());
+	}
+	
+	@Test
+	public void testAdoptBug() {
+		Map<String, Object> properties = StubBugzillaServer.newBug(1);
+		properties.put("status", "NEW");
+		properties.put("cf_custom", "custom");
+		Map<String, Object> expected = new HashMap<String, Object>(properties);
+		
+		Bug bug = new BugFactory().adoptBug(properties, FieldProjection.ALL);
+		assertEquals("Typed fields were left in the adopted map", 1, properties.size());
+		assertEquals(expected, new HashMap<Object, Object>(bug.getParameterMap()));
+		assertEquals("NEW", bug.getStatus());
+		
+		bug.setStatus("ASSIGNED");
+		assertEquals("ASSIGNED", bug.getParameterMap().get("status"));
+		assertEquals(expected.size(), bug.getParameterMap().size());
+	}
+	
+	@Test
+	public void testParameterMapIsReadOnlyView() {
+		Bug bug = new BugFactory().createBug(StubBugzillaServer.newBug(1));
+		Map<Object, Object> params = bug.getParameterMap();
+		bug.setStatus("NEW");
+		assertEquals("View did not reflect a change", "NEW", params.get("status"));
+		assertEquals(6, params.size());
+		assertEquals(params.size(), params.entrySet().size());
+		try {
+			params.put("status", "ASSIGNED");
+			fail("View was modifiable");
+		} catch(UnsupportedOperationException e) {
+			//Expected
+		}
+		try {
+			Iterator<Object> keys = params.keySet().iterator();
+			keys.next();
+			keys.remove();
+			fail("View was modifiable");
+		} catch(UnsupportedOperationException e) {
+			//Expected
+		}
+	}
+
 }
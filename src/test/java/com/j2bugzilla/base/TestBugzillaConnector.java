@@ -0,0 +1,228 @@
+package com.j2bugzilla.base;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j2bugzilla.rpc.BugComments;
+import com.j2bugzilla.rpc.GetBug;
+import com.j2bugzilla.rpc.LogIn;
+
+public class TestBugzillaConnector {
+	
+	private static final int THREADS = 16;
+	
+	private static final int CALLS_PER_THREAD = 100;
+	
+	private static final String TOKEN = "1234-abcd";
+
+	private StubBugzillaServer server;
+	
+	@Before
+	public void startServer() throws Exception {
+		server = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				if("User.login".equals(methodName)) {
+					result.put("id", 1);
+					result.put("token", TOKEN);
+					return result;
+				}
+				if(!TOKEN.equals(params.get("Bugzilla_token"))) {
+					throw new XmlRpcException(410, "You must log in before using this part of Bugzilla.");
+				}
+				int id = (Integer)params.get("ids");
+				if(id < 0) {
+					throw new XmlRpcException(101, "Bug does not exist");
+				}
+				if("Bug.comments".equals(methodName)) {
+					Map<Object, Object> comment = new HashMap<Object, Object>();
+					comment.put("id", id * 10);
+					comment.put("text", "Comment on bug " + id);
+					Map<Object, Object> comments = new HashMap<Object, Object>();
+					comments.put("comments", new Object[]{comment});
+					Map<Object, Object> bugs = new HashMap<Object, Object>();
+					bugs.put(String.valueOf(id), comments);
+					result.put("bugs", bugs);
+					return result;
+				}
+				result.put("bugs", new Object[]{StubBugzillaServer.newBug((Integer)params.get("ids"))});
+				return result;
+			}
+		});
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	@Test
+	public void testConcurrentExecution() throws Exception {
+		BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+		
+		stress(conn);
+	}
+	
+	@Test
+	public void testConcurrentPooledExecution() throws Exception {
+		BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL(), null, null, new PooledTransportConfig().setMaxConnections(THREADS / 2));
+		try {
+			stress(conn);
+		} finally {
+			conn.close();
+		}
+		assertTrue("Pool size was exceeded", server.getConnectionCount() <= THREADS / 2);
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testExecuteWithoutConnecting() throws BugzillaException {
+		new BugzillaConnector().executeMethod(new GetBug(1));
+	}
+	
+	@Test
+	public void testBatch() throws Exception {
+		BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+		conn.executeMethod(new LogIn("user@example.com", "secret"));
+		conn.setBatchSize(100);
+		
+		List<GetBug> methods = new ArrayList<GetBug>();
+		for(int i = 0; i < 250; i++) {
+			methods.add(new GetBug(i == 42 ? -1 : i));
+		}
+		int before = server.getRequestCount();
+		Map<BugzillaMethod, BugzillaException> faults = conn.executeBatch(methods);
+		
+		assertEquals("Batch was not split into three requests", 3, server.getRequestCount() - before);
+		assertEquals("Exactly one method should fail", 1, faults.size());
+		assertEquals("Fault was not translated", "The bug you attempted to retrieve does not exist",
+				faults.get(methods.get(42)).getMessage());
+		for(int i = 0; i < 250; i++) {
+			if(i != 42) {
+				assertEquals("Result was dispatched to the wrong method", i, methods.get(i).getBug().getID());
+			}
+		}
+	}
+	
+	@Test
+	public void testAsyncComposition() throws Exception {
+		final BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+		
+		final AtomicInteger executed = new AtomicInteger();
+		final ExecutorService pool = Executors.newFixedThreadPool(2);
+		conn.setAsyncExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				executed.incrementAndGet();
+				pool.execute(command);
+			}
+		});
+		
+		List<Comment> comments = conn.executeMethodAsync(new LogIn("user@example.com", "secret"))
+				.thenCompose(login -> conn.executeMethodAsync(new GetBug(7)))
+				.thenCompose(get -> conn.executeMethodAsync(new BugComments(get.getBug())))
+				.thenApply(BugComments::getComments)
+				.get(10, TimeUnit.SECONDS);
+		pool.shutdown();
+		
+		assertEquals("Wrong number of comments", 1, comments.size());
+		assertEquals("Comment belongs to the wrong bug", "Comment on bug 7", comments.get(0).getText());
+		assertEquals("Calls did not run on the configured executor", 3, executed.get());
+	}
+	
+	@Test
+	public void testAsyncFault() throws Exception {
+		BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+		conn.executeMethod(new LogIn("user@example.com", "secret"));
+		
+		try {
+			conn.executeMethodAsync(new GetBug(-1)).get(10, TimeUnit.SECONDS);
+			fail("A fault should complete the future exceptionally");
+		} catch (ExecutionException e) {
+			assertTrue("Fault was not translated", e.getCause() instanceof BugzillaException);
+		}
+	}
+	
+	@Test
+	public void testDefaultAsyncExecutorIsBounded() throws Exception {
+		BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+		conn.executeMethod(new LogIn("user@example.com", "secret"));
+		
+		int calls = BugzillaConnector.DefaultAsyncExecutor.MAX_THREADS * 4;
+		List<CompletableFuture<GetBug>> futures = new ArrayList<CompletableFuture<GetBug>>();
+		for(int id = 0; id < calls; id++) {
+			futures.add(conn.executeMethodAsync(new GetBug(id)));
+		}
+		for(int id = 0; id < calls; id++) {
+			assertEquals(id, futures.get(id).get(30, TimeUnit.SECONDS).getBug().getID());
+		}
+		assertTrue("Default executor grew past its bound", BugzillaConnector.DefaultAsyncExecutor.INSTANCE
+				.getLargestPoolSize() <= BugzillaConnector.DefaultAsyncExecutor.MAX_THREADS);
+	}
+	
+	/**
+	 * Logs in once, then has every thread fetch its own bugs through the shared connector and
+	 * checks that no thread ever sees another thread's result.
+	 */
+	private void stress(final BugzillaConnector conn) throws Exception {
+		conn.executeMethod(new LogIn("user@example.com", "secret"));
+		
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for(int t = 0; t < THREADS; t++) {
+			final int thread = t;
+			results.add(pool.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					start.await();
+					int checked = 0;
+					for(int i = 0; i < CALLS_PER_THREAD; i++) {
+						int id = thread * CALLS_PER_THREAD + i;
+						GetBug get = new GetBug(id);
+						conn.executeMethod(get);
+						assertEquals("Result belongs to another request", id, get.getBug().getID());
+						checked++;
+					}
+					return checked;
+				}
+			}));
+		}
+		start.countDown();
+		
+		int total = 0;
+		for(Future<Integer> result : results) {
+			total += result.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+		
+		assertEquals("Not every call completed", THREADS * CALLS_PER_THREAD, total);
+		assertEquals("Login was not shared", "user", conn.getUser());
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.j2bugzilla.base;
+
+import static org.junit.Assert.*;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class TestHttpBug {
+	
+	private static final ColumnSchema SCHEMA = new ColumnSchema(HttpBug.ID, HttpBug.LAST_UPDATE, HttpBug.CREATION_DATE, 
+			HttpBug.CASE_COUNT, HttpBug.STATUS, HttpBug.SUMMARY);
+	
+	private static HttpBug newBug(Object... values) {
+		return new BugFactory().createHttpBug(SCHEMA, values);
+	}
+	
+	@Test
+	public void testTypedAccessors() throws Exception {
+		HttpBug bug = newBug("42", "2017-05-26 13:38:57", "2017-05-01", "3", "NEW", "Crash on start");
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		assertEquals("Wrong ID", 42, bug.getBugId());
+		assertEquals("Wrong last update", format.parse("2017-05-26 13:38:57"), bug.getLastUpdate());
+		assertEquals("getDeltaTs differs from getLastUpdate", bug.getLastUpdate(), bug.getDeltaTs());
+		assertEquals("Date without a time is not midnight", format.parse("2017-05-01 00:00:00"), bug.getCreationDate());
+		assertEquals("Wrong case count", 3, bug.getCaseCount());
+		assertEquals("Wrong status", "NEW", bug.getStatus());
+		assertEquals("Wrong summary", "Crash on start", bug.getSummary());
+		assertNull("Missing column has a value", bug.getPriority());
+	}
+	
+	@Test
+	public void testDatesAreCopies() {
+		HttpBug bug = newBug("1", "2017-05-26 13:38:57", "", "", "NEW", "");
+		Date date = bug.getLastUpdate();
+		date.setTime(0);
+		assertFalse("Cached date was changed through a returned copy", date.equals(bug.getLastUpdate()));
+		assertNull("Blank date has a value", bug.getCreationDate());
+		assertEquals("Blank number is not zero", 0, bug.getCaseCount());
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testUnparseableDate() {
+		newBug("1", "yesterday", "", "", "NEW", "").getLastUpdate();
+	}
+
+}
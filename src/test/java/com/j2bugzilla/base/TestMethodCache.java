@@ -0,0 +1,166 @@
+package com.j2bugzilla.base;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j2bugzilla.rpc.CommentBug;
+import com.j2bugzilla.rpc.GetBug;
+import com.j2bugzilla.rpc.LogIn;
+
+public class TestMethodCache {
+	
+	private StubBugzillaServer server;
+	
+	private BugzillaConnector conn;
+	
+	private MethodCache cache;
+	
+	/**
+	 * When set, {@code Bug.get} counts this down once it has read the bug, then waits for {@link #writeDone}.
+	 */
+	private volatile CountDownLatch readStarted;
+	
+	private volatile CountDownLatch writeDone;
+	
+	@Before
+	public void connect() throws Exception {
+		server = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				if("User.login".equals(methodName)) {
+					result.put("id", 1);
+					result.put("token", "token");
+				} else if("Bug.add_comment".equals(methodName)) {
+					result.put("id", 100);
+				} else {
+					Object ids = params.get("ids");
+					Map<String, Object> bug = StubBugzillaServer.newBug(ids instanceof Integer ? (Integer)ids : 7);
+					bug.put("alias", new Object[]{"seven"});
+					result.put("bugs", new Object[]{bug});
+					CountDownLatch started = readStarted;
+					if(started != null) {
+						started.countDown();
+						try {
+							writeDone.await(10, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				}
+				return result;
+			}
+		});
+		conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+		cache = new MethodCache(2);
+		conn.setCache(cache);
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	private Bug get(Object id) throws BugzillaException {
+		GetBug get = id instanceof Integer ? new GetBug((Integer)id) : new GetBug((String)id);
+		conn.executeMethod(get);
+		return get.getBug();
+	}
+	
+	@Test
+	public void testHitsAndMisses() throws BugzillaException {
+		assertEquals("Wrong bug", 1, get(1).getID());
+		assertEquals("Wrong bug", 1, get(1).getID());
+		assertEquals("Cached bug was fetched again", 1, server.getRequestCount());
+		assertEquals("Wrong hit count", 1, cache.getHitCount());
+		assertEquals("Wrong miss count", 1, cache.getMissCount());
+		assertEquals("Wrong hit rate", 0.5, cache.getHitRate(), 0.0001);
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedEviction() throws BugzillaException {
+		get(1);
+		get(2);
+		get(1);
+		get(3);
+		assertEquals("Cache grew past its size", 2, cache.size());
+		assertEquals("Wrong eviction count", 1, cache.getEvictionCount());
+		int requests = server.getRequestCount();
+		get(1);
+		assertEquals("Recently used bug was evicted", requests, server.getRequestCount());
+		get(2);
+		assertEquals("Least recently used bug was kept", requests + 1, server.getRequestCount());
+	}
+	
+	@Test
+	public void testTimeToLive() throws Exception {
+		cache.setTimeToLive("Bug.get", 50, TimeUnit.MILLISECONDS);
+		get(1);
+		Thread.sleep(100);
+		get(1);
+		assertEquals("Expired bug was not fetched again", 2, server.getRequestCount());
+	}
+	
+	@Test
+	public void testWriteInvalidates() throws BugzillaException {
+		get("seven");
+		get(1);
+		conn.executeMethod(new CommentBug(7, "A comment"));
+		int requests = server.getRequestCount();
+		get("seven");
+		assertEquals("Bug fetched by alias was not invalidated by its ID", requests + 1, server.getRequestCount());
+		get(1);
+		assertEquals("Unrelated bug was invalidated", requests + 1, server.getRequestCount());
+	}
+	
+	@Test
+	public void testReadOverlappingWriteIsNotCached() throws Exception {
+		readStarted = new CountDownLatch(1);
+		writeDone = new CountDownLatch(1);
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					get(9);
+				} catch (BugzillaException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		reader.start();
+		assertTrue("Read never reached the server", readStarted.await(10, TimeUnit.SECONDS));
+		readStarted = null;
+		conn.executeMethod(new CommentBug(9, "A comment"));
+		writeDone.countDown();
+		reader.join(10000);
+		
+		int requests = server.getRequestCount();
+		get(9);
+		assertEquals("Result read before the write was cached", requests + 1, server.getRequestCount());
+		get(9);
+		assertEquals("Result read after the write was not cached", requests + 1, server.getRequestCount());
+	}
+	
+	@Test
+	public void testLoginClears() throws BugzillaException {
+		get(1);
+		conn.executeMethod(new LogIn("user@example.com", "secret"));
+		assertEquals("Login did not clear the cache", 0, cache.size());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testWritesCannotBeCached() {
+		cache.setTimeToLive("Bug.update", 1, TimeUnit.MINUTES);
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.j2bugzilla.base;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestParallelPageFetcher {
+	
+	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+	
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Serves the numbers 0 to total - 1 after a random delay, tracking the most pages requested at once.
+	 */
+	private class NumberSource implements PageSource<Integer> {
+		
+		private final int total;
+		
+		private final int failAt;
+		
+		private final int cap;
+		
+		private final Random random = new Random(42);
+		
+		private final AtomicInteger running = new AtomicInteger();
+		
+		private final AtomicInteger maxRunning = new AtomicInteger();
+		
+		private final AtomicInteger requests = new AtomicInteger();
+		
+		NumberSource(int total, int failAt) {
+			this(total, failAt, Integer.MAX_VALUE);
+		}
+		
+		/**
+		 * @param cap The most numbers served on one page, whatever the limit asked for
+		 */
+		NumberSource(int total, int failAt, int cap) {
+			this.total = total;
+			this.failAt = failAt;
+			this.cap = cap;
+		}
+
+		@Override
+		public CompletableFuture<List<Integer>> fetchPage(final int offset, final int limit) {
+			requests.incrementAndGet();
+			final int delay;
+			synchronized(random) {
+				delay = random.nextInt(10);
+			}
+			int now = running.incrementAndGet();
+			maxRunning.accumulateAndGet(now, Math::max);
+			final CompletableFuture<List<Integer>> future = new CompletableFuture<List<Integer>>();
+			executor.execute(() -> {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				if(offset == failAt) {
+					future.completeExceptionally(new BugzillaException("Page failed"));
+					return;
+				}
+				List<Integer> page = new ArrayList<Integer>();
+				for(int i = offset; i < Math.min(total, offset + Math.min(limit, cap)); i++) {
+					page.add(i);
+				}
+				future.complete(page);
+			});
+			return future;
+		}
+	}
+	
+	@Test
+	public void testOrdered() throws BugzillaException {
+		NumberSource source = new NumberSource(1234, -1);
+		final List<Integer> results = new ArrayList<Integer>();
+		int count = new ParallelPageFetcher<Integer>(source).setPageSize(50).setMaxInFlight(4)
+				.fetchAll((offset, page) -> {
+					assertEquals("Page delivered out of order", results.size(), offset);
+					results.addAll(page);
+				});
+		assertEquals("Wrong number of results", 1234, count);
+		for(int i = 0; i < results.size(); i++) {
+			assertEquals("Results out of order", i, (int)results.get(i));
+		}
+		assertTrue("Too many pages in flight", source.maxRunning.get() <= 4);
+		assertTrue("Pages were not fetched in parallel", source.maxRunning.get() > 1);
+		assertTrue("Fetched too far past the end", source.requests.get() <= 25 + 4);
+	}
+	
+	@Test
+	public void testUnordered() throws BugzillaException {
+		NumberSource source = new NumberSource(1000, -1);
+		final boolean[] seen = new boolean[1000];
+		int count = new ParallelPageFetcher<Integer>(source).setPageSize(100).setOrdered(false)
+				.fetchAll((offset, page) -> {
+					for(int i : page) {
+						assertFalse("Result delivered twice", seen[i]);
+						seen[i] = true;
+					}
+				});
+		assertEquals("Wrong number of results", 1000, count);
+		for(boolean b : seen) {
+			assertTrue("Result was not delivered", b);
+		}
+	}
+	
+	@Test
+	public void testCappedPages() throws BugzillaException {
+		NumberSource source = new NumberSource(1000, -1, 30);
+		final List<Integer> results = new ArrayList<Integer>();
+		int count = new ParallelPageFetcher<Integer>(source).setPageSize(100).setMaxInFlight(4)
+				.fetchAll((offset, page) -> {
+					assertEquals("Page delivered out of order", results.size(), offset);
+					results.addAll(page);
+				});
+		assertEquals("Capped pages cut the results short", 1000, count);
+		for(int i = 0; i < results.size(); i++) {
+			assertEquals("Results out of order", i, (int)results.get(i));
+		}
+		assertTrue("Pages were not fetched in parallel", source.maxRunning.get() > 1);
+	}
+	
+	@Test
+	public void testShortFirstPage() throws BugzillaException {
+		NumberSource source = new NumberSource(30, -1);
+		int count = new ParallelPageFetcher<Integer>(source).setPageSize(100).fetchAll((offset, page) -> { });
+		assertEquals(30, count);
+		assertTrue("Fetched too far past the end", source.requests.get() <= 1 + 4);
+	}
+	
+	@Test
+	public void testEmpty() throws BugzillaException {
+		NumberSource source = new NumberSource(0, -1);
+		int count = new ParallelPageFetcher<Integer>(source).fetchAll((offset, page) -> fail("Empty page delivered"));
+		assertEquals("Results found in an empty set", 0, count);
+	}
+	
+	@Test
+	public void testFailure() {
+		NumberSource source = new NumberSource(1000, 300);
+		final List<Integer> results = new ArrayList<Integer>();
+		try {
+			new ParallelPageFetcher<Integer>(source).setPageSize(100).fetchAll((offset, page) -> results.addAll(page));
+			fail("Failed page was not reported");
+		} catch (BugzillaException e) {
+			assertEquals("Wrong exception", "Page failed", e.getMessage());
+		}
+		assertTrue("Pages after the failure were delivered", results.size() <= 300);
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.j2bugzilla.base;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j2bugzilla.rpc.GetBug;
+
+public class TestPooledHttpTransport {
+
+	private StubBugzillaServer server;
+	
+	@Before
+	public void startServer() throws Exception {
+		server = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				if(!"Bug.get".equals(methodName)) {
+					throw new XmlRpcException(32000, "Unknown method " + methodName);
+				}
+				int id = (Integer)params.get("ids");
+				if(id < 0) {
+					throw new XmlRpcException(101, "Bug does not exist");
+				}
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				result.put("bugs", new Object[]{StubBugzillaServer.newBug(id)});
+				return result;
+			}
+		});
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	@Test
+	public void testConnectionsAreReused() throws Exception {
+		BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL(), null, null, new PooledTransportConfig().setMaxConnections(2));
+		try {
+			for(int i = 1; i <= 50; i++) {
+				GetBug get = new GetBug(i);
+				conn.executeMethod(get);
+				assertEquals("Wrong bug returned", "Bug " + i, get.getBug().getSummary());
+			}
+		} finally {
+			conn.close();
+		}
+		
+		assertEquals("Every call should reach the server", 50, server.getRequestCount());
+		assertTrue("Connections were not reused", server.getConnectionCount() <= 2);
+	}
+	
+	@Test
+	public void testFaultIsTranslated() throws Exception {
+		BugzillaConnector conn = new BugzillaConnector();
+		conn.connectTo(server.getURL(), null, null, new PooledTransportConfig());
+		try {
+			conn.executeMethod(new GetBug(-1));
+			fail("A fault should be raised for a nonexistent bug");
+		} catch (BugzillaException e) {
+			assertEquals("Fault was not translated", "The bug you attempted to retrieve does not exist", e.getMessage());
+		} finally {
+			conn.close();
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPoolSize() {
+		new PooledTransportConfig().setMaxConnections(0);
+	}
+
+}
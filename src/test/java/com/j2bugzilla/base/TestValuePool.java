@@ -0,0 +1,87 @@
+package com.j2bugzilla.base;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.j2bugzilla.rpc.GetLegalValues;
+import com.j2bugzilla.rpc.GetLegalValues.Fields;
+
+public class TestValuePool {
+	
+	@Test
+	public void testEqualValuesAreShared() {
+		ValuePool pool = new ValuePool(16);
+		String first = pool.intern(new String("NEW"));
+		assertSame(first, pool.intern(new String("NEW")));
+		assertEquals("NEW", first);
+		assertNull(pool.intern(null));
+		assertEquals(1, pool.size());
+	}
+	
+	@Test
+	public void testPoolIsBounded() {
+		ValuePool pool = new ValuePool(2);
+		pool.addAll(Arrays.asList("NEW", "ASSIGNED"));
+		String resolved = new String("RESOLVED");
+		assertSame("Value was pooled past the limit", resolved, pool.intern(resolved));
+		assertEquals(2, pool.size());
+		assertEquals("Pooled value was lost once full", "NEW", pool.intern(new String("NEW")));
+		
+		pool.clear();
+		assertSame(pool.intern(resolved), pool.intern(new String("RESOLVED")));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new ValuePool(-1);
+	}
+	
+	@Test
+	public void testBugsShareValues() {
+		Map<String, Object> first = StubBugzillaServer.newBug(1);
+		first.put("priority", new String("P1"));
+		Map<String, Object> second = StubBugzillaServer.newBug(2);
+		second.put("priority", new String("P1"));
+		BugFactory factory = new BugFactory();
+		assertSame(factory.createBug(first).getPriority(), factory.createBug(second).getPriority());
+		assertNotSame("Summaries were pooled", factory.createBug(first).getSummary(),
+				factory.createBug(StubBugzillaServer.newBug(1)).getSummary());
+	}
+	
+	@Test
+	public void testHttpBugsShareValues() {
+		ColumnSchema schema = new ColumnSchema(HttpBug.ID, HttpBug.STATUS, HttpBug.SUMMARY);
+		BugFactory factory = new BugFactory();
+		HttpBug first = factory.createHttpBug(schema, new Object[] { "1", new String("NEW"), new String("Crash") });
+		HttpBug second = factory.createHttpBug(schema, new Object[] { "2", new String("NEW"), new String("Crash") });
+		assertSame(first.getStatus(), second.getStatus());
+		assertNotSame("Summaries were pooled", first.getSummary(), second.getSummary());
+		
+		Map<String, Object> state = new HashMap<String, Object>();
+		state.put(HttpBug.STATUS, new String("NEW"));
+		assertSame(first.getStatus(), factory.createHttpBug(state).getStatus());
+	}
+	
+	@Test
+	public void testSeededFromLegalValues() {
+		String severity = new String("catastrophic");
+		Map<Object, Object> value = new HashMap<Object, Object>();
+		value.put("name", severity);
+		Map<Object, Object> field = new HashMap<Object, Object>();
+		field.put("values", new Object[] { value });
+		Map<Object, Object> hash = new HashMap<Object, Object>();
+		hash.put("fields", new Object[] { field });
+		
+		GetLegalValues legalValues = new GetLegalValues(Fields.SEVERITY);
+		legalValues.setResultMap(hash);
+		
+		assertTrue(legalValues.getLegalValues().contains("catastrophic"));
+		assertSame("Legal value was not pooled", severity, ValuePool.getDefault().intern(new String("catastrophic")));
+	}
+
+}
@@ -5,6 +5,9 @@ import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.core.StringContains.containsString;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.xmlrpc.XmlRpcException;
 import org.junit.Test;
 
@@ -23,5 +26,15 @@ public class TestXmlExceptionHandler {
 		BugzillaException bEx = XmlExceptionHandler.handleFault(ex);
 		assertThat("The error message appears to be unknown", bEx.getMessage(), containsString("unknown"));
 	}
+	
+	@Test
+	public void testHandleFaultStruct() {
+		Map<Object, Object> fault = new HashMap<Object, Object>();
+		fault.put("faultCode", 101);
+		fault.put("faultString", "Bug #5 does not exist.");
+		BugzillaException bEx = XmlExceptionHandler.handleFault(fault);
+		assertThat("The error message appears to be known", bEx.getMessage(), not(containsString("unknown")));
+		assertEquals("The fault code was lost", 101, ((XmlRpcException)bEx.getCause()).code);
+	}
 
 }
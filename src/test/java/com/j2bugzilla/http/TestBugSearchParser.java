@@ -0,0 +1,275 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.http;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+import com.j2bugzilla.base.HttpBug;
+import com.j2bugzilla.base.RecordingSubscriber;
+import com.j2bugzilla.base.StubBugzillaServer;
+import com.j2bugzilla.http.BugSearchParser.SearchLimiter;
+import com.j2bugzilla.http.BugSearchParser.SearchQuery;
+
+public class TestBugSearchParser {
+	
+	private StubBugzillaServer server;
+	
+	private BugzillaConnector conn;
+	
+	@Before
+	public void connect() throws Exception {
+		server = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				throw new XmlRpcException("No XML-RPC methods");
+			}
+		});
+		conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	/**
+	 * Builds a bug list page in the layout of buglist.cgi. Every other row leaves out its closing tag.
+	 */
+	static String bugList(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<html>\n<head><title>Bug List</title></head>\n<body>\n");
+		sb.append("<table class=\"bz_buglist\" cellspacing=\"0\" cellpadding=\"4\" width=\"100%\" id=\"buglistSorter\">\n");
+		sb.append("  <colgroup>\n    <col class=\"bz_id_column\">\n    <col class=\"bz_bug_status_column\">\n");
+		sb.append("    <col class=\"bz_short_desc_column\">\n  </colgroup>\n");
+		sb.append("  <tr align=\"left\">\n    <th>ID</th><th>Status</th><th>Summary</th>\n  </tr>\n");
+		for(int i = 1; i <= count; i++) {
+			sb.append("  <tr id=\"b").append(i).append("\" class=\"bz_bugitem\">\n");
+			sb.append("    <td class=\"first-child bz_id_column\"><a href=\"show_bug.cgi?id=").append(i).append("\">").append(i).append("</a></td>\n");
+			sb.append("    <td class=\"bz_bug_status_column\"><span title=\"NEW\">NEW</span></td>\n");
+			sb.append("    <td class=\"bz_short_desc_column\"><a href=\"show_bug.cgi?id=").append(i).append("\">Bug &lt;").append(i).append("&gt; fails</a></td>\n");
+			if(i % 2 == 0) {
+				sb.append("  </tr>\n");
+			}
+		}
+		sb.append("</table>\n<p>").append(count).append(" bugs found.</p>\n</body>\n</html>\n");
+		return sb.toString();
+	}
+	
+	private static BugSearchParser newParser() {
+		return new BugSearchParser(new SearchQuery(SearchLimiter.BUG_STATUS, "NEW"));
+	}
+	
+	@Test
+	public void testStreamingRequest() throws BugzillaException {
+		server.setPage("/buglist.cgi", bugList(25));
+		BugSearchParser parser = newParser();
+		conn.executeHttpRequest(parser);
+		List<HttpBug> bugs = parser.getResults();
+		assertEquals("Wrong number of bugs", 25, bugs.size());
+		for(int i = 0; i < bugs.size(); i++) {
+			HttpBug bug = bugs.get(i);
+			assertEquals("Wrong ID", String.valueOf(i + 1), bug.getId());
+			assertEquals("Span title was not used", "NEW", bug.getInternalState().get("BugStatus"));
+			assertEquals("Wrong summary", "Bug <" + (i + 1) + "> fails", bug.getInternalState().get("ShortDesc"));
+			assertSame("Column schema was not shared", bugs.get(0).getSchema(), bug.getSchema());
+		}
+	}
+	
+	@Test
+	public void testEndTagsInAttributes() throws BugzillaException {
+		String page = bugList(3).replace("<td class=\"bz_bug_status_column\">", 
+				"<td class=\"bz_bug_status_column\" title=\"Closes </tr> before </table>\">");
+		server.setPage("/buglist.cgi", page);
+		BugSearchParser parser = newParser();
+		conn.executeHttpRequest(parser);
+		assertEquals("Markup in an attribute ended the table", 3, parser.getResults().size());
+		assertEquals("NEW", parser.getResults().get(2).getInternalState().get("BugStatus"));
+	}
+	
+	@Test
+	public void testSameAsDocument() throws BugzillaException {
+		String page = bugList(10);
+		server.setPage("/buglist.cgi", page);
+		BugSearchParser streamed = newParser();
+		conn.executeHttpRequest(streamed);
+		BugSearchParser parsed = newParser();
+		parsed.parse(Jsoup.parse(page));
+		assertEquals("Different number of bugs", parsed.getResults().size(), streamed.getResults().size());
+		for(int i = 0; i < parsed.getResults().size(); i++) {
+			assertEquals("Different bug", parsed.getResults().get(i).getInternalState(), streamed.getResults().get(i).getInternalState());
+		}
+	}
+	
+	@Test
+	public void testParallelParse() {
+		Document doc = Jsoup.parse(bugList(2000));
+		BugSearchParser serial = newParser();
+		serial.parse(doc);
+		BugSearchParser parallel = newParser();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			parallel.setForkJoinPool(pool);
+			parallel.parse(doc);
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals("Wrong number of bugs", 2000, parallel.getResults().size());
+		for(int i = 0; i < 2000; i++) {
+			assertEquals("Bugs out of order", serial.getResults().get(i).getInternalState(), parallel.getResults().get(i).getInternalState());
+		}
+	}
+	
+	@Test
+	public void testColumnsCachedAcrossSearches() {
+		BugSearchParser first = newParser();
+		first.parse(Jsoup.parse(bugList(2)));
+		BugSearchParser second = newParser();
+		second.parse(Jsoup.parse(bugList(3)));
+		assertSame("Same columns should share a schema", first.getResults().get(0).getSchema(), second.getResults().get(0).getSchema());
+	}
+	
+	@Test
+	public void testShortRow() {
+		String page = bugList(1).replace("<td class=\"bz_short_desc_column\">", "<th>");
+		BugSearchParser parser = newParser();
+		parser.parse(Jsoup.parse(page));
+		HttpBug bug = parser.getResults().get(0);
+		assertEquals("Wrong status", "NEW", bug.getStatus());
+		assertNull("Missing cell has a value", bug.getSummary());
+	}
+	
+	@Test
+	public void testPublisher() throws InterruptedException {
+		server.setPage("/buglist.cgi", bugList(500));
+		HttpBugSearchPublisher publisher = new HttpBugSearchPublisher(conn, newParser());
+		RecordingSubscriber<HttpBug> subscriber = new RecordingSubscriber<HttpBug>();
+		publisher.subscribe(subscriber);
+		
+		assertTrue("Requested bugs did not arrive", subscriber.requestAndWait(10, 10));
+		Thread.sleep(100);
+		assertEquals("More bugs arrived than were requested", 10, subscriber.getItems().size());
+		assertFalse("Completed early", subscriber.isCompleted());
+		
+		subscriber.getSubscription().request(Long.MAX_VALUE);
+		assertTrue("Search did not complete", subscriber.awaitDone());
+		assertNull("Search failed", subscriber.getError());
+		assertEquals("Not every bug was published", 500, subscriber.getItems().size());
+		assertEquals("Bugs out of order", "500", subscriber.getItems().get(499).getId());
+	}
+	
+	@Test
+	public void testPublisherCancel() throws InterruptedException {
+		server.setPage("/buglist.cgi", bugList(500));
+		HttpBugSearchPublisher publisher = new HttpBugSearchPublisher(conn, newParser());
+		RecordingSubscriber<HttpBug> subscriber = new RecordingSubscriber<HttpBug>();
+		publisher.subscribe(subscriber);
+		assertTrue("Requested bugs did not arrive", subscriber.requestAndWait(5, 5));
+		subscriber.getSubscription().cancel();
+		subscriber.getSubscription().request(10);
+		assertFalse("Cancelled subscription was signalled", subscriber.awaitDone(200));
+		assertEquals("Bugs arrived after cancelling", 5, subscriber.getItems().size());
+	}
+	
+	@Test
+	public void testConsumer() throws BugzillaException {
+		server.setPage("/buglist.cgi", bugList(7));
+		BugSearchParser parser = newParser();
+		final List<String> ids = new ArrayList<String>();
+		parser.setBugConsumer(bug -> ids.add(bug.getId()));
+		conn.executeHttpRequest(parser);
+		assertEquals("Bugs were not handed over", 7, ids.size());
+		assertTrue("Bugs were collected as well", parser.getResults().isEmpty());
+	}
+	
+	@Test
+	public void testCsv() throws BugzillaException {
+		server.setPage("/buglist.cgi", "bug_id,\"bug_status\",\"short_desc\"\r\n"
+				+ "1,\"NEW\",\"Crash, on \"\"start\"\"\"\r\n"
+				+ "2,\"ASSIGNED\",\"Two\nlines\"\r\n"
+				+ "3,NEW,Plain\r\n");
+		BugSearchCsvParser parser = new BugSearchCsvParser(new SearchQuery(SearchLimiter.BUG_STATUS, "NEW"));
+		assertEquals("CSV was not requested", "csv", parser.getParameters().get("ctype"));
+		conn.executeHttpRequest(parser);
+		List<HttpBug> bugs = parser.getResults();
+		assertEquals("Wrong number of bugs", 3, bugs.size());
+		assertEquals("Wrong ID", "1", bugs.get(0).getId());
+		assertEquals("Quotes were not unescaped", "Crash, on \"start\"", bugs.get(0).getInternalState().get("ShortDesc"));
+		assertEquals("Wrong status", "ASSIGNED", bugs.get(1).getInternalState().get("BugStatus"));
+		assertEquals("Line break was lost", "Two\nlines", bugs.get(1).getInternalState().get("ShortDesc"));
+		assertEquals("Unquoted value was not read", "Plain", bugs.get(2).getInternalState().get("ShortDesc"));
+	}
+	
+	@Test
+	public void testCsvSameKeysAsHtml() throws BugzillaException {
+		server.setPage("/buglist.cgi", bugList(1));
+		BugSearchParser html = newParser();
+		conn.executeHttpRequest(html);
+		
+		server.setPage("/buglist.cgi", "bug_id,bug_status,short_desc\n1,NEW,Bug <1> fails\n");
+		BugSearchCsvParser csv = new BugSearchCsvParser(new SearchQuery(SearchLimiter.BUG_STATUS, "NEW"));
+		conn.executeHttpRequest(csv);
+		assertEquals("CSV and HTML bugs differ", html.getResults().get(0).getInternalState(), csv.getResults().get(0).getInternalState());
+		assertTrue("Page is not a CSV parser", csv.page(0, 10) instanceof BugSearchCsvParser);
+		assertEquals("Pages are not sorted", "bug_id", csv.page(0, 10).getParameters().get(BugSearchParser.ORDER));
+	}
+	
+	@Test
+	public void testCsvFromDocument() {
+		BugSearchCsvParser parser = new BugSearchCsvParser(new SearchQuery(SearchLimiter.BUG_STATUS, "NEW"));
+		parser.parse(Jsoup.parse("bug_id,bug_status\n1,NEW\n2,ASSIGNED\n"));
+		List<HttpBug> bugs = parser.getResults();
+		assertEquals("Wrong number of bugs", 2, bugs.size());
+		assertEquals("Wrong status", "ASSIGNED", bugs.get(1).getInternalState().get("BugStatus"));
+	}
+	
+	@Test
+	public void testColumnKeys() {
+		List<String> keys = Arrays.asList(HttpBug.CREATION_DATE, HttpBug.LAST_UPDATE, HttpBug.SEVERITY, HttpBug.PRIORITY,
+				HttpBug.STATUS, HttpBug.CASE_COUNT, HttpBug.ASSIGNED, HttpBug.NEED_INFO, HttpBug.REPORTER, HttpBug.CATEGORY,
+				HttpBug.COMPONENT, HttpBug.FIX_BY, HttpBug.BRANCH, HttpBug.VISS, HttpBug.SUMMARY);
+		BugSearchParser.SearchColumn[] columns = BugSearchParser.SearchColumn.values();
+		assertEquals("Every column needs a typed accessor", columns.length, keys.size());
+		for(int i = 0; i < columns.length; i++) {
+			assertEquals("Wrong key for " + columns[i], keys.get(i), BugSearchParser.columnKey(columns[i].getName()));
+		}
+		assertEquals("Wrong key for the ID", HttpBug.ID, BugSearchParser.columnKey("bug_id"));
+	}
+	
+	@Test
+	public void testNoResults() throws BugzillaException {
+		server.setPage("/buglist.cgi", "<html><body><p>Zarro Boogs found.</p></body></html>\n");
+		BugSearchParser parser = newParser();
+		conn.executeHttpRequest(parser);
+		assertTrue("Bugs found in an empty list", parser.getResults().isEmpty());
+	}
+
+}
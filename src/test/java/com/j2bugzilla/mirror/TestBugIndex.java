@@ -0,0 +1,256 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.Test;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugFactory;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaMethod;
+import com.j2bugzilla.base.FieldProjection;
+import com.j2bugzilla.base.MethodListener;
+import com.j2bugzilla.base.StubBugzillaServer;
+import com.j2bugzilla.mirror.BugIndex.Field;
+import com.j2bugzilla.rpc.BugSearch;
+import com.j2bugzilla.rpc.BugSearch.SearchLimiter;
+import com.j2bugzilla.rpc.BugSearch.SearchQuery;
+import com.j2bugzilla.rpc.GetBug;
+import com.j2bugzilla.rpc.UpdateBug;
+
+public class TestBugIndex {
+	
+	private static final String[] OPEN = {"NEW", "ASSIGNED", "REOPENED"};
+	
+	private static Map<String, Object> state(int id, String status, String product, String assignee) {
+		Map<String, Object> state = StubBugzillaServer.newBug(id);
+		state.put("status", status);
+		state.put("product", product);
+		state.put("priority", "P" + (id % 5 + 1));
+		state.put("severity", "normal");
+		state.put("assigned_to", assignee);
+		return state;
+	}
+	
+	private static Bug bug(int id, String status, String product, String assignee) {
+		return new BugFactory().createBug(state(id, status, product, assignee));
+	}
+	
+	@Test
+	public void testQueries() {
+		BugIndex index = new BugIndex();
+		List<Bug> bugs = new ArrayList<Bug>();
+		//Indexed out of order, so the posting lists must sort themselves
+		for(int id = 300; id > 0; id--) {
+			String status = id % 3 == 0 ? "RESOLVED" : id % 3 == 1 ? "NEW" : "ASSIGNED";
+			bugs.add(bug(id, status, id % 2 == 0 ? "Widgets" : "Gadgets", "user" + (id % 4) + "@example.com"));
+		}
+		index.addAll(bugs);
+		
+		assertEquals(300, index.size());
+		assertEquals(300, index.all().size());
+		IdList found = index.lookup(Field.STATUS, OPEN)
+				.and(index.lookup(Field.PRODUCT, "Widgets"))
+				.and(index.lookup(Field.ASSIGNEE, "user2@example.com"));
+		
+		List<Integer> expected = new ArrayList<Integer>();
+		for(int id = 1; id <= 300; id++) {
+			if(id % 3 != 0 && id % 2 == 0 && id % 4 == 2) {
+				expected.add(id);
+			}
+		}
+		assertEquals(expected.size(), found.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals((int)expected.get(i), found.get(i));
+		}
+		assertEquals(IdList.EMPTY, index.lookup(Field.PRODUCT, "Nothing"));
+		assertEquals(Arrays.asList("Gadgets", "Widgets"), new ArrayList<String>(index.getValues(Field.PRODUCT)));
+		assertEquals(100, index.lookup(Field.STATUS, "RESOLVED").size());
+	}
+	
+	@Test
+	public void testChanges() {
+		BugIndex index = new BugIndex();
+		index.add(bug(1, "NEW", "Widgets", "a@example.com"));
+		index.add(bug(2, "NEW", "Widgets", "a@example.com"));
+		assertEquals(IdList.of(1, 2), index.lookup(Field.STATUS, "NEW"));
+		
+		index.add(bug(1, "RESOLVED", "Widgets", "b@example.com"));
+		assertEquals(IdList.of(2), index.lookup(Field.STATUS, "NEW"));
+		assertEquals(IdList.of(1), index.lookup(Field.STATUS, "RESOLVED"));
+		assertEquals(IdList.of(1), index.lookup(Field.ASSIGNEE, "b@example.com"));
+		assertEquals("RESOLVED", index.getValue(1, Field.STATUS));
+		assertEquals(2, index.size());
+		
+		index.remove(2);
+		assertEquals(IdList.EMPTY, index.lookup(Field.STATUS, "NEW"));
+		assertFalse("Unused value was kept", index.getValues(Field.STATUS).contains("NEW"));
+		assertEquals(IdList.of(1), index.all());
+		
+		index.clear();
+		assertEquals(0, index.size());
+		assertEquals(IdList.EMPTY, index.lookup(Field.PRODUCT, "Widgets"));
+	}
+	
+	@Test
+	public void testProjectedBugKeepsOtherFields() {
+		BugIndex index = new BugIndex();
+		index.add(bug(1, "NEW", "Widgets", "a@example.com"));
+		
+		Map<String, Object> state = new HashMap<String, Object>();
+		state.put("id", 1);
+		state.put("status", "RESOLVED");
+		index.add(new BugFactory().createBug(state, FieldProjection.include("id", "status")));
+		
+		assertEquals(IdList.of(1), index.lookup(Field.STATUS, "RESOLVED"));
+		assertEquals(IdList.of(1), index.lookup(Field.PRODUCT, "Widgets"));
+		assertEquals(IdList.of(1), index.lookup(Field.ASSIGNEE, "a@example.com"));
+	}
+	
+	@Test
+	public void testFollowsConnector() throws Exception {
+		final Map<Integer, Map<String, Object>> server = new HashMap<Integer, Map<String, Object>>();
+		for(int id = 1; id <= 10; id++) {
+			server.put(id, state(id, "NEW", "Widgets", "a@example.com"));
+		}
+		StubBugzillaServer stub = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				if("Bug.search".equals(methodName)) {
+					result.put("bugs", server.values().toArray());
+				} else {
+					Map<String, Object> bug = server.get(params.get("ids"));
+					if("Bug.update".equals(methodName)) {
+						bug.put("status", params.get("status"));
+					}
+					result.put("bugs", new Object[] {bug});
+				}
+				return result;
+			}
+		});
+		try {
+			BugzillaConnector conn = new BugzillaConnector();
+			conn.connectTo(stub.getURL());
+			BugIndex index = new BugIndex().listenTo(conn);
+			
+			conn.executeMethod(new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Widgets")));
+			assertEquals(10, index.lookup(Field.STATUS, "NEW").size());
+			
+			GetBug get = new GetBug(4);
+			conn.executeMethod(get);
+			Bug bug = get.getBug();
+			bug.setStatus("RESOLVED");
+			conn.executeMethod(new UpdateBug(bug));
+			assertEquals(IdList.of(4), index.lookup(Field.STATUS, "RESOLVED"));
+			assertEquals(9, index.lookup(Field.STATUS, "NEW").size());
+			
+			conn.removeMethodListener(index);
+			server.get(5).put("status", "RESOLVED");
+			conn.executeMethod(new GetBug(5));
+			assertEquals("Removed listener was still told", IdList.of(4), index.lookup(Field.STATUS, "RESOLVED"));
+		} finally {
+			stub.stop();
+		}
+	}
+	
+	@Test
+	public void testSkipsResultsWithoutIds() throws Exception {
+		StubBugzillaServer stub = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				Map<String, Object> bug = new HashMap<String, Object>();
+				bug.put("summary", "Crash on start");
+				bug.put("status", "NEW");
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				result.put("bugs", new Object[] {bug});
+				return result;
+			}
+		});
+		try {
+			BugzillaConnector conn = new BugzillaConnector();
+			conn.connectTo(stub.getURL());
+			BugIndex index = new BugIndex().listenTo(conn);
+			
+			BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Widgets"));
+			search.setProjection(FieldProjection.include("summary", "status"));
+			conn.executeMethod(search);
+			assertEquals(1, search.getSearchResults().size());
+			
+			GetBug get = new GetBug(1);
+			get.setProjection(FieldProjection.include("summary", "status"));
+			conn.executeMethod(get);
+			assertEquals("NEW", get.getBug().getStatus());
+			
+			assertEquals(0, index.size());
+		} finally {
+			stub.stop();
+		}
+	}
+	
+	@Test
+	public void testSharesBugsWithCaller() throws Exception {
+		StubBugzillaServer stub = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				result.put("bugs", new Object[] {state(1, "NEW", "Widgets", "a@example.com")});
+				return result;
+			}
+		});
+		try {
+			BugzillaConnector conn = new BugzillaConnector();
+			conn.connectTo(stub.getURL());
+			final List<Bug> indexed = new ArrayList<Bug>();
+			conn.addMethodListener(new MethodListener() {
+				@Override
+				public void methodExecuted(BugzillaMethod method) {
+					if(method instanceof GetBug) {
+						indexed.add(((GetBug)method).getBug());
+					} else if(method instanceof BugSearch) {
+						indexed.addAll(((BugSearch)method).getSearchResults());
+					}
+				}
+			});
+			
+			BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Widgets"));
+			conn.executeMethod(search);
+			GetBug get = new GetBug(1);
+			conn.executeMethod(get);
+			
+			assertEquals(2, indexed.size());
+			assertSame(indexed.get(0), search.getSearchResults().get(0));
+			assertSame(indexed.get(1), get.getBug());
+		} finally {
+			stub.stop();
+		}
+	}
+	
+	@Test
+	public void testAssignedTo() {
+		assertEquals("a@example.com", bug(1, "NEW", "Widgets", "a@example.com").getAssignedTo());
+	}
+
+}
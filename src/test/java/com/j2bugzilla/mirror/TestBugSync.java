@@ -0,0 +1,184 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+import com.j2bugzilla.base.StubBugzillaServer;
+import com.j2bugzilla.rpc.BugSearch.SearchLimiter;
+import com.j2bugzilla.rpc.BugSearch.SearchQuery;
+
+public class TestBugSync {
+	
+	private static final int BUG_COUNT = 120;
+	
+	private static final long BASE = 1500000000000L;
+	
+	/**
+	 * The last change time of each bug on the server, in whole seconds as XML-RPC sends them.
+	 */
+	private final Map<Integer, Date> changed = new ConcurrentHashMap<Integer, Date>();
+	
+	private final List<Integer> fetched = new ArrayList<Integer>();
+	
+	private volatile int failBelow = 0;
+	
+	/**
+	 * A bug which leaves the scope once a later page than the first has been listed, or 0 for none.
+	 */
+	private volatile int leaves = 0;
+	
+	private final List<Integer> outOfScope = new ArrayList<Integer>();
+	
+	private StubBugzillaServer server;
+	
+	private BugzillaConnector conn;
+	
+	@Before
+	public void connect() throws Exception {
+		for(int id = 1; id <= BUG_COUNT; id++) {
+			//Bugs change in reverse order of their IDs, so the sync has to sort them
+			changed.put(id, new Date(BASE + (BUG_COUNT - id) * 1000L));
+		}
+		server = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				List<Object> bugs = new ArrayList<Object>();
+				if("Bug.search".equals(methodName)) {
+					Date since = (Date)params.get("last_change_time");
+					int offset = (Integer)params.get("offset");
+					int limit = (Integer)params.get("limit");
+					if(offset > 0 && leaves != 0) {
+						synchronized(outOfScope) {
+							outOfScope.add(leaves);
+						}
+						leaves = 0;
+					}
+					List<Integer> matching = new ArrayList<Integer>();
+					for(int id = 1; id <= BUG_COUNT; id++) {
+						boolean inScope;
+						synchronized(outOfScope) {
+							inScope = !outOfScope.contains(id);
+						}
+						if(inScope && (since == null || !changed.get(id).before(since))) {
+							matching.add(id);
+						}
+					}
+					for(int i = offset; i < Math.min(matching.size(), offset + limit); i++) {
+						bugs.add(newBug(matching.get(i)));
+					}
+				} else {
+					for(Object id : (Object[])params.get("ids")) {
+						if((Integer)id < failBelow) {
+							throw new XmlRpcException(32000, "Server went away");
+						}
+						synchronized(fetched) {
+							fetched.add((Integer)id);
+						}
+						bugs.add(newBug((Integer)id));
+					}
+					result.put("faults", new Object[0]);
+				}
+				result.put("bugs", bugs.toArray());
+				return result;
+			}
+		});
+		conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+	}
+	
+	private Map<String, Object> newBug(int id) {
+		Map<String, Object> bug = StubBugzillaServer.newBug(id);
+		bug.put("last_change_time", changed.get(id));
+		return bug;
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	private BugSync newSync(BugStore store) {
+		return new BugSync(conn, store, new SearchQuery(SearchLimiter.PRODUCT, "Test")).setBatchSize(25).setPageSize(50);
+	}
+	
+	@Test
+	public void testDeltas() throws Exception {
+		InMemoryBugStore store = new InMemoryBugStore();
+		BugSync.Result first = newSync(store).sync();
+		assertEquals("Not every bug was stored", BUG_COUNT, store.size());
+		assertEquals("Wrong number of changes", BUG_COUNT, first.getAppliedCount());
+		assertEquals("Checkpoint is not the newest change", changed.get(1), store.getCheckpoint());
+		
+		changed.put(60, new Date(BASE + 500000));
+		changed.put(70, new Date(BASE + 600000));
+		fetched.clear();
+		BugSync.Result second = newSync(store).sync();
+		//The bug changed exactly at the checkpoint is fetched again
+		assertEquals("Wrong number of changes", 3, second.getChangedCount());
+		assertTrue("Unchanged bugs were fetched", fetched.size() == 3 && fetched.contains(60) && fetched.contains(70) && fetched.contains(1));
+		assertEquals("Changed bug was not updated", changed.get(60), store.get(60).getLastChangeTime());
+		assertEquals("Checkpoint did not move", changed.get(70), store.getCheckpoint());
+	}
+	
+	@Test
+	public void testBugLeavingScopeDoesNotHideOthers() throws Exception {
+		InMemoryBugStore store = new InMemoryBugStore();
+		//Once the second page is asked for, bug 1 is gone and bug 51 moves onto the first page, which was already read
+		leaves = 1;
+		BugSync.Result result = newSync(store).sync();
+		assertEquals("A bug was skipped", BUG_COUNT, result.getChangedCount());
+		assertNotNull("Shifted bug was not stored", store.get(51));
+		assertEquals("Not every bug was stored", BUG_COUNT, store.size());
+	}
+	
+	@Test
+	public void testResumesAfterFailure() throws Exception {
+		InMemoryBugStore store = new InMemoryBugStore();
+		//Oldest changes are applied first, so the batch holding bugs 96-120 succeeds and the next one fails
+		failBelow = 96;
+		try {
+			newSync(store).sync();
+			fail("Failure was not reported");
+		} catch (BugzillaException e) {
+			//Expected
+		}
+		assertEquals("Completed batch was not kept", 25, store.size());
+		assertEquals("Checkpoint did not stop at the completed batch", changed.get(96), store.getCheckpoint());
+		
+		failBelow = 0;
+		fetched.clear();
+		newSync(store).sync();
+		assertEquals("Not every bug was stored", BUG_COUNT, store.size());
+		assertEquals("Resumed sync started over", BUG_COUNT - 25 + 1, fetched.size());
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class TestIdList {
+	
+	@Test
+	public void testOf() {
+		IdList list = IdList.of(5, 3, 9, 3, 1);
+		assertArrayEquals(new int[] {1, 3, 5, 9}, list.toArray());
+		assertEquals(4, list.size());
+		assertTrue(list.contains(9));
+		assertFalse(list.contains(4));
+		assertEquals(IdList.EMPTY, IdList.of());
+	}
+	
+	@Test
+	public void testOperations() {
+		IdList a = IdList.of(1, 2, 3, 5, 8, 13);
+		IdList b = IdList.of(2, 3, 4, 5, 6);
+		assertEquals(IdList.of(2, 3, 5), a.and(b));
+		assertEquals(IdList.of(1, 2, 3, 4, 5, 6, 8, 13), a.or(b));
+		assertEquals(IdList.of(1, 8, 13), a.andNot(b));
+		assertEquals(IdList.EMPTY, a.and(IdList.EMPTY));
+		assertEquals(a, a.or(IdList.EMPTY));
+		assertEquals(a, IdList.EMPTY.or(a));
+		assertEquals(IdList.EMPTY, a.andNot(a));
+	}
+	
+	@Test
+	public void testMatchesSets() {
+		Random random = new Random(42);
+		for(int round = 0; round < 50; round++) {
+			//Vary the sizes so that both ways of intersecting are used
+			int[] left = randomIds(random, 1 + random.nextInt(5000));
+			int[] right = randomIds(random, 1 + random.nextInt(random.nextBoolean() ? 50 : 5000));
+			Set<Integer> leftSet = toSet(left);
+			Set<Integer> rightSet = toSet(right);
+			
+			Set<Integer> and = new TreeSet<Integer>(leftSet);
+			and.retainAll(rightSet);
+			Set<Integer> or = new TreeSet<Integer>(leftSet);
+			or.addAll(rightSet);
+			Set<Integer> andNot = new TreeSet<Integer>(leftSet);
+			andNot.removeAll(rightSet);
+			
+			IdList l = IdList.of(left);
+			IdList r = IdList.of(right);
+			assertEquals(and, toSet(l.and(r)));
+			assertEquals(and, toSet(r.and(l)));
+			assertEquals(or, toSet(l.or(r)));
+			assertEquals(andNot, toSet(l.andNot(r)));
+		}
+	}
+	
+	private static int[] randomIds(Random random, int count) {
+		int[] ids = new int[count];
+		for(int i = 0; i < count; i++) {
+			ids[i] = random.nextInt(20000);
+		}
+		return ids;
+	}
+	
+	private static Set<Integer> toSet(int[] ids) {
+		Set<Integer> set = new TreeSet<Integer>();
+		for(int id : ids) {
+			set.add(id);
+		}
+		return set;
+	}
+	
+	private static Set<Integer> toSet(IdList list) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for(int id : list) {
+			ids.add(id);
+		}
+		assertEquals("IDs were not distinct", ids.size(), new TreeSet<Integer>(ids).size());
+		assertEquals("IDs were not sorted", new ArrayList<Integer>(new TreeSet<Integer>(ids)), ids);
+		return new TreeSet<Integer>(ids);
+	}
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.mirror;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugFactory;
+import com.j2bugzilla.base.FieldProjection;
+import com.j2bugzilla.base.StubBugzillaServer;
+
+public class TestMappedBugStore {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private File file;
+	
+	private MappedBugStore store;
+	
+	@Before
+	public void open() throws IOException {
+		file = new File(folder.getRoot(), "bugs.db");
+		store = new MappedBugStore(file);
+	}
+	
+	@After
+	public void close() throws IOException {
+		store.close();
+	}
+	
+	private static Bug bug(int id, String summary) {
+		Map<String, Object> state = StubBugzillaServer.newBug(id);
+		state.put("summary", summary);
+		state.put("cc", new Object[] {"a@example.com", "b@example.com"});
+		return new BugFactory().createBug(state);
+	}
+	
+	private static List<Bug> bugs(int from, int to, String summary) {
+		List<Bug> bugs = new ArrayList<Bug>();
+		for(int id = from; id <= to; id++) {
+			bugs.add(bug(id, summary));
+		}
+		return bugs;
+	}
+	
+	private MappedBugStore reopen() throws IOException {
+		store.close();
+		store = new MappedBugStore(file);
+		return store;
+	}
+
+	@Test
+	public void emptyStore() throws IOException {
+		assertEquals(0, store.size());
+		assertNull(store.get(1));
+		assertNull(store.getCheckpoint());
+		assertNull(reopen().getCheckpoint());
+	}
+	
+	@Test
+	public void survivesReopen() throws IOException {
+		store.apply(bugs(1, 50, "first"), new Date(1000L));
+		store.apply(bugs(51, 100, "second"), new Date(2000L));
+		
+		reopen();
+		assertEquals(100, store.size());
+		assertEquals(new Date(2000L), store.getCheckpoint());
+		Bug bug = store.get(75);
+		assertEquals(75, bug.getID());
+		assertEquals("second", bug.getSummary());
+		assertEquals("Test", bug.getProduct());
+		assertTrue(Arrays.equals(new Object[] {"a@example.com", "b@example.com"},
+				(Object[])bug.getParameterMap().get("cc")));
+		assertNull(store.get(101));
+	}
+	
+	@Test
+	public void newestRecordWins() throws IOException {
+		store.apply(bugs(1, 10, "old"), new Date(1000L));
+		assertEquals(0, store.getStaleBytes());
+		store.apply(bugs(5, 15, "new"), new Date(2000L));
+		
+		assertEquals(15, store.size());
+		assertEquals("old", store.get(4).getSummary());
+		assertEquals("new", store.get(5).getSummary());
+		assertTrue(store.getStaleBytes() > 0);
+		
+		long stale = store.getStaleBytes();
+		assertEquals(stale, reopen().getStaleBytes());
+		assertEquals("new", store.get(10).getSummary());
+	}
+	
+	@Test
+	public void compactDropsReplacedRecords() throws IOException {
+		for(int round = 0; round < 5; round++) {
+			store.apply(bugs(1, 20, "round " + round), new Date(1000L * round));
+		}
+		long before = store.getLength();
+		store.compact();
+		
+		assertEquals(0, store.getStaleBytes());
+		assertTrue(store.getLength() < before / 4);
+		assertEquals(file.length(), store.getLength());
+		assertEquals(20, store.size());
+		assertEquals("round 4", store.get(20).getSummary());
+		assertEquals(new Date(4000L), store.getCheckpoint());
+		
+		store.apply(bugs(21, 21, "after"), new Date(5000L));
+		reopen();
+		assertEquals(21, store.size());
+		assertEquals("round 4", store.get(1).getSummary());
+		assertEquals("after", store.get(21).getSummary());
+		assertEquals(new Date(5000L), store.getCheckpoint());
+	}
+	
+	@Test
+	public void readsCarryOnDuringCompaction() throws Exception {
+		for(int round = 0; round < 3; round++) {
+			store.apply(bugs(1, 200, "round " + round), new Date(1000L * round));
+		}
+		final AtomicBoolean compacting = new AtomicBoolean(true);
+		final AtomicReference<String> missed = new AtomicReference<String>();
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while(compacting.get() && missed.get() == null) {
+					if(store.size() != 200) {
+						missed.set("size " + store.size());
+					}
+					for(int id = 1; id <= 200; id++) {
+						try {
+							Bug bug = store.get(id);
+							if(bug == null || bug.getID() != id) {
+								missed.set("bug " + id);
+							}
+						} catch(IOException e) {
+							missed.set("bug " + id + ": " + e);
+						}
+					}
+				}
+			}
+		});
+		reader.start();
+		try {
+			for(int round = 3; round < 50; round++) {
+				store.apply(bugs(1, 200, "round " + round), new Date(1000L * round));
+				store.compact();
+			}
+		} finally {
+			compacting.set(false);
+			reader.join();
+		}
+		
+		assertNull(missed.get());
+		assertEquals("round 49", store.get(200).getSummary());
+		assertEquals(file.length(), store.getLength());
+	}
+	
+	@Test
+	public void tornRecordIsCutOff() throws IOException {
+		store.apply(bugs(1, 10, "kept"), new Date(1000L));
+		long length = store.getLength();
+		store.apply(bugs(11, 20, "torn"), new Date(2000L));
+		store.close();
+		
+		//Cut the second batch off part way through, as a crash during a write would
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(length + 20);
+		raf.close();
+		
+		store = new MappedBugStore(file);
+		assertEquals(10, store.size());
+		assertEquals(new Date(1000L), store.getCheckpoint());
+		assertEquals(length, store.getLength());
+		assertNull(store.get(11));
+		
+		store.apply(bugs(11, 20, "again"), new Date(2000L));
+		assertEquals("again", reopen().get(15).getSummary());
+	}
+	
+	@Test
+	public void corruptRecordIsCutOff() throws IOException {
+		store.apply(bugs(1, 10, "kept"), new Date(1000L));
+		long length = store.getLength();
+		store.apply(bugs(11, 11, "corrupt"), new Date(2000L));
+		store.close();
+		
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(length + 20);
+		raf.write(0xFF);
+		raf.close();
+		
+		store = new MappedBugStore(file);
+		assertEquals(10, store.size());
+		assertEquals(new Date(1000L), store.getCheckpoint());
+	}
+	
+	@Test(expected = IOException.class)
+	public void fileIsLocked() throws IOException {
+		new MappedBugStore(file);
+	}
+	
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException {
+		File other = folder.newFile("other");
+		RandomAccessFile raf = new RandomAccessFile(other, "rw");
+		raf.writeBytes("not a bug store");
+		raf.close();
+		new MappedBugStore(other);
+	}
+	
+	@Test
+	public void projectedBugs() throws IOException {
+		Map<String, Object> state = new HashMap<String, Object>();
+		state.put("id", 7);
+		state.put("summary", "partial");
+		store.apply(Arrays.asList(new BugFactory().createBug(state, FieldProjection.include("id", "summary"))),
+				new Date(1000L));
+		
+		reopen();
+		assertEquals("partial", store.get(7).getSummary());
+		try {
+			store.get(7).getProduct();
+			fail("Product was not stored");
+		} catch(IllegalStateException e) {
+			//Expected
+		}
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void closedStore() throws IOException {
+		store.close();
+		store.apply(bugs(1, 1, "closed"), new Date(1000L));
+	}
+
+}
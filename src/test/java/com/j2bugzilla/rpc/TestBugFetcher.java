@@ -0,0 +1,164 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+import com.j2bugzilla.base.BugzillaMethod;
+import com.j2bugzilla.base.MethodListener;
+import com.j2bugzilla.base.StubBugzillaServer;
+
+public class TestBugFetcher {
+	
+	private StubBugzillaServer server;
+	
+	private BugzillaConnector conn;
+	
+	private final AtomicInteger running = new AtomicInteger();
+	
+	private final AtomicInteger mostRunning = new AtomicInteger();
+	
+	@Before
+	public void connect() throws Exception {
+		server = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				Object[] ids = (Object[])params.get("ids");
+				if(ids.length > 100) {
+					throw new XmlRpcException(32000, "Too many bugs requested");
+				}
+				mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				List<Object> bugs = new ArrayList<Object>();
+				List<Object> faults = new ArrayList<Object>();
+				for(Object id : ids) {
+					if((Integer)id % 7 == 0) {
+						Map<String, Object> fault = new HashMap<String, Object>();
+						fault.put("id", id);
+						fault.put("faultCode", 101);
+						faults.add(fault);
+					} else {
+						bugs.add(StubBugzillaServer.newBug((Integer)id));
+					}
+				}
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				result.put("bugs", bugs.toArray());
+				result.put("faults", faults.toArray());
+				return result;
+			}
+		});
+		conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	@Test
+	public void testFetchInChunks() throws BugzillaException {
+		List<Integer> ids = new ArrayList<Integer>();
+		for(int i = 1; i <= 1000; i++) {
+			ids.add(i);
+		}
+		
+		GetBugs result = new BugFetcher(conn).setChunkSize(100).fetch(ids);
+		
+		assertEquals("IDs were not split into chunks", 10, server.getRequestCount());
+		assertEquals("Bugs are missing", 1000 - 1000 / 7, result.getBugs().size());
+		assertEquals("Faults are missing", 1000 / 7, result.getFaults().size());
+		assertEquals("Bug summary is incorrect", "Bug 999", result.getBugs().get(999).getSummary());
+	}
+	
+	@Test
+	public void testFetchNothing() throws BugzillaException {
+		GetBugs result = new BugFetcher(conn).fetch(new ArrayList<Integer>());
+		
+		assertEquals("Nothing should be requested", 0, server.getRequestCount());
+		assertTrue(result.getBugs().isEmpty());
+		assertTrue(result.getFaults().isEmpty());
+	}
+	
+	@Test
+	public void testChunksInFlightAreBounded() throws BugzillaException {
+		List<Integer> ids = new ArrayList<Integer>();
+		for(int i = 1; i <= 400; i++) {
+			ids.add(i);
+		}
+		
+		GetBugs result = new BugFetcher(conn).setChunkSize(10).setMaxInFlight(2).fetch(ids);
+		
+		assertEquals(40, server.getRequestCount());
+		assertEquals(400 - 400 / 7, result.getBugs().size());
+		assertTrue("Too many chunks were in flight: " + mostRunning.get(), mostRunning.get() <= 2);
+	}
+	
+	@Test
+	public void testBugsAreBuiltOnce() throws BugzillaException {
+		GetBugs result = new BugFetcher(conn).fetch(Arrays.asList(1, 2, 3));
+		assertSame(result.getBugs(), result.getBugs());
+		assertSame(result.getBugs().get(2), result.getBugs().get(2));
+	}
+	
+	@Test
+	public void testListenersShareBugsWithResult() throws BugzillaException {
+		final Map<Integer, Bug> seen = new ConcurrentHashMap<Integer, Bug>();
+		conn.addMethodListener(new MethodListener() {
+			@Override
+			public void methodExecuted(BugzillaMethod method) {
+				seen.putAll(((GetBugs)method).getBugs());
+			}
+		});
+		GetBugs result = new BugFetcher(conn).setChunkSize(2).fetch(Arrays.asList(1, 2, 3, 4, 5));
+		
+		assertEquals(5, result.getBugs().size());
+		for(Bug bug : result.getBugs().values()) {
+			assertSame("Bug was built again for the result", seen.get(bug.getID()), bug);
+		}
+	}
+	
+	@Test(expected = BugzillaException.class)
+	public void testChunkFailure() throws BugzillaException {
+		List<Integer> ids = new ArrayList<Integer>();
+		for(int i = 1; i <= 150; i++) {
+			ids.add(i);
+		}
+		new BugFetcher(conn).setChunkSize(150).fetch(ids);
+	}
+
+}
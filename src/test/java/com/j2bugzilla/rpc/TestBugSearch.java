@@ -0,0 +1,232 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaConnector;
+import com.j2bugzilla.base.BugzillaException;
+import com.j2bugzilla.base.FieldProjection;
+import com.j2bugzilla.base.ParallelPageFetcher;
+import com.j2bugzilla.base.RecordingSubscriber;
+import com.j2bugzilla.base.StubBugzillaServer;
+import com.j2bugzilla.rpc.BugSearch.SearchLimiter;
+import com.j2bugzilla.rpc.BugSearch.SearchQuery;
+
+public class TestBugSearch {
+	
+	private static final int BUG_COUNT = 250;
+	
+	private StubBugzillaServer server;
+	
+	private BugzillaConnector conn;
+	
+	/**
+	 * The most bugs the stub returns at once, whatever limit is asked for.
+	 */
+	private volatile int maxLimit = Integer.MAX_VALUE;
+	
+	@Before
+	public void connect() throws Exception {
+		server = new StubBugzillaServer(new StubBugzillaServer.Handler() {
+			@Override
+			public Object handle(String methodName, Map<Object, Object> params) throws XmlRpcException {
+				assertEquals("Wrong method called", "Bug.search", methodName);
+				int offset = params.containsKey("offset") ? (Integer)params.get("offset") : 0;
+				int limit = Math.min(maxLimit, params.containsKey("limit") ? (Integer)params.get("limit") : BUG_COUNT);
+				List<Object> bugs = new ArrayList<Object>();
+				for(int id = offset + 1; id <= Math.min(BUG_COUNT, offset + limit); id++) {
+					bugs.add(StubBugzillaServer.newBug(id));
+				}
+				Map<Object, Object> result = new HashMap<Object, Object>();
+				result.put("bugs", bugs.toArray());
+				return result;
+			}
+		});
+		conn = new BugzillaConnector();
+		conn.connectTo(server.getURL());
+	}
+	
+	@After
+	public void stopServer() {
+		server.stop();
+	}
+	
+	@Test
+	public void testParameters() {
+		Date since = new Date();
+		BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo"), 
+				new SearchQuery(SearchLimiter.STATUS, "NEW"), new SearchQuery(SearchLimiter.STATUS, "ASSIGNED"));
+		search.setChangedSince(since);
+		search.setProjection(FieldProjection.include("id", "summary"));
+		Map<Object, Object> params = search.getParameterMap();
+		assertEquals("Product was not passed", "Foo", params.get("product"));
+		assertArrayEquals("Statuses were not passed", new Object[]{"NEW", "ASSIGNED"}, (Object[])params.get("status"));
+		assertEquals("Change time was not passed", since, params.get("last_change_time"));
+		assertNotNull("Projection was not passed", params.get("include_fields"));
+		
+		BugSearch page = search.page(50, 25);
+		assertEquals("Offset was not set", 50, page.getParameterMap().get("offset"));
+		assertEquals("Limit was not set", 25, page.getParameterMap().get("limit"));
+		assertEquals("Criteria were not copied", "Foo", page.getParameterMap().get("product"));
+		assertEquals("Pages are not sorted", "bug_id", page.getParameterMap().get("order"));
+		assertFalse("Original search was changed", params.containsKey("offset"));
+	}
+	
+	@Test
+	public void testSearch() throws BugzillaException {
+		BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo"));
+		search.setLimit(10);
+		search.setOffset(5);
+		conn.executeMethod(search);
+		List<Bug> bugs = search.getSearchResults();
+		assertEquals("Wrong number of bugs", 10, bugs.size());
+		assertEquals("Wrong first bug", 6, bugs.get(0).getID());
+	}
+	
+	@Test
+	public void testIteratorFetchesLazily() {
+		BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo"));
+		BugSearchIterator iterator = new BugSearchIterator(conn, search, 100);
+		assertEquals("Fetched before iterating", 0, server.getRequestCount());
+		
+		for(int i = 1; i <= 100; i++) {
+			assertEquals("Bugs out of order", i, iterator.next().getID());
+		}
+		assertEquals("Fetched more than one page", 1, server.getRequestCount());
+		
+		int count = 100;
+		while(iterator.hasNext()) {
+			assertEquals("Bugs out of order", ++count, iterator.next().getID());
+		}
+		assertEquals("Not every bug was returned", BUG_COUNT, count);
+		assertEquals("Short page should end the search", 3, server.getRequestCount());
+	}
+	
+	@Test
+	public void testIteratorSurvivesCappedPages() {
+		maxLimit = 40;
+		BugSearchIterator iterator = new BugSearchIterator(conn, new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo")), 100);
+		int count = 0;
+		while(iterator.hasNext()) {
+			assertEquals("Bugs out of order", ++count, iterator.next().getID());
+		}
+		assertEquals("Capped pages ended the search early", BUG_COUNT, count);
+		assertEquals("Short page should end the search", 7, server.getRequestCount());
+	}
+	
+	@Test
+	public void testIteratorEndsOnEmptyPage() {
+		BugSearchIterator iterator = new BugSearchIterator(conn, new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo")), 1000);
+		int count = 0;
+		while(iterator.hasNext()) {
+			iterator.next();
+			count++;
+		}
+		assertEquals(BUG_COUNT, count);
+		assertEquals("A short first page needs one more page to tell", 2, server.getRequestCount());
+	}
+	
+	@Test
+	public void testPublisherFollowsDemand() throws InterruptedException {
+		BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo"));
+		BugSearchPublisher publisher = new BugSearchPublisher(conn, search, 100);
+		RecordingSubscriber<Bug> subscriber = new RecordingSubscriber<Bug>();
+		publisher.subscribe(subscriber);
+		
+		assertTrue("Requested bugs did not arrive", subscriber.requestAndWait(50, 50));
+		Thread.sleep(100);
+		assertEquals("More bugs arrived than were requested", 50, subscriber.getItems().size());
+		assertEquals("Fetched a page which was not needed yet", 1, server.getRequestCount());
+		
+		subscriber.getSubscription().request(Long.MAX_VALUE);
+		assertTrue("Search did not complete", subscriber.awaitDone());
+		assertTrue("Search did not complete", subscriber.isCompleted());
+		assertEquals("Not every bug was published", BUG_COUNT, subscriber.getItems().size());
+		assertEquals("Bugs out of order", BUG_COUNT, subscriber.getItems().get(BUG_COUNT - 1).getID());
+		assertEquals("Short page should end the search", 3, server.getRequestCount());
+	}
+	
+	@Test
+	public void testPublisherErrors() throws InterruptedException {
+		BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo"));
+		BugSearchPublisher publisher = new BugSearchPublisher(conn, search, 100);
+		RecordingSubscriber<Bug> first = new RecordingSubscriber<Bug>();
+		publisher.subscribe(first);
+		first.getSubscription().request(0);
+		assertTrue("Invalid request was not reported", first.awaitDone());
+		assertTrue("Wrong error", first.getError() instanceof IllegalArgumentException);
+		
+		RecordingSubscriber<Bug> second = new RecordingSubscriber<Bug>();
+		publisher.subscribe(second);
+		assertTrue("Second subscriber was not refused", second.awaitDone());
+		assertTrue("Wrong error", second.getError() instanceof IllegalStateException);
+	}
+	
+	@Test
+	public void testPublisherSurvivesCappedPages() throws InterruptedException {
+		maxLimit = 40;
+		BugSearchPublisher publisher = new BugSearchPublisher(conn, new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo")), 100);
+		RecordingSubscriber<Bug> subscriber = new RecordingSubscriber<Bug>();
+		publisher.subscribe(subscriber);
+		subscriber.getSubscription().request(Long.MAX_VALUE);
+		assertTrue("Search did not complete", subscriber.awaitDone());
+		assertTrue("Search did not complete", subscriber.isCompleted());
+		assertEquals("Capped pages ended the search early", BUG_COUNT, subscriber.getItems().size());
+	}
+	
+	@Test
+	public void testPublisherRunsOnItsExecutor() throws InterruptedException {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		BugSearchPublisher publisher = new BugSearchPublisher(conn, new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo")), 
+				100, tasks::add);
+		RecordingSubscriber<Bug> subscriber = new RecordingSubscriber<Bug>();
+		publisher.subscribe(subscriber);
+		assertEquals("Search did not go to the executor", 1, tasks.size());
+		assertEquals("Subscribing fetched a page", 0, server.getRequestCount());
+		
+		Thread thread = new Thread(tasks.get(0));
+		thread.start();
+		assertTrue("Requested bugs did not arrive", subscriber.requestAndWait(BUG_COUNT, BUG_COUNT));
+		assertTrue("Search did not complete", subscriber.awaitDone());
+		thread.join();
+	}
+	
+	@Test
+	public void testParallelPages() throws BugzillaException {
+		BugSearch search = new BugSearch(new SearchQuery(SearchLimiter.PRODUCT, "Foo"));
+		final List<Bug> bugs = new ArrayList<Bug>();
+		int count = new ParallelPageFetcher<Bug>(search.pages(conn)).setPageSize(30).setMaxInFlight(3)
+				.fetchAll((offset, page) -> bugs.addAll(page));
+		assertEquals("Not every bug was returned", BUG_COUNT, count);
+		for(int i = 0; i < bugs.size(); i++) {
+			assertEquals("Bugs out of order", i + 1, bugs.get(i).getID());
+		}
+	}
+
+}
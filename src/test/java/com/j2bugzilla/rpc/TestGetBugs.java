@@ -0,0 +1,65 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.StubBugzillaServer;
+
+public class TestGetBugs {
+
+	@Test
+	public void testBugsAndFaults() {
+		GetBugs getBugs = new GetBugs(Arrays.asList(1, 2, "missing"));
+		assertArrayEquals("IDs were not passed", new Object[]{1, 2, "missing"}, (Object[])getBugs.getParameterMap().get("ids"));
+		assertEquals("Request should be permissive", true, getBugs.getParameterMap().get("permissive"));
+		
+		Map<String, Object> fault = new HashMap<String, Object>();
+		fault.put("id", "missing");
+		fault.put("faultCode", 100);
+		
+		Map<Object, Object> hash = new HashMap<Object, Object>();
+		hash.put("bugs", new Object[]{StubBugzillaServer.newBug(1), StubBugzillaServer.newBug(2)});
+		hash.put("faults", new Object[]{fault});
+		getBugs.setResultMap(hash);
+		
+		Map<Integer, Bug> bugs = getBugs.getBugs();
+		assertEquals("Every bug should be returned, not just the last", 2, bugs.size());
+		assertEquals("Bug summary is incorrect", "Bug 1", bugs.get(1).getSummary());
+		assertEquals("Bug summary is incorrect", "Bug 2", bugs.get(2).getSummary());
+		assertEquals("Faulted IDs are incorrect", Arrays.<Object>asList("missing"), getBugs.getFaults());
+	}
+	
+	@Test
+	public void testBeforeCall() {
+		GetBugs getBugs = new GetBugs(Arrays.asList(1));
+		assertTrue("Bugs returned before execution", getBugs.getBugs().isEmpty());
+		assertTrue("Faults returned before execution", getBugs.getFaults().isEmpty());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoIDs() {
+		new GetBugs(Arrays.asList());
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 Thomas Golden
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.j2bugzilla.rpc;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugFactory;
+import com.j2bugzilla.base.FieldProjection;
+
+public class TestUpdateBug {
+	
+	private static Bug loadBug() {
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("id", 7);
+		fields.put("product", "Widgets");
+		fields.put("component", "Frobnicator");
+		fields.put("summary", "Crash on start");
+		fields.put("version", "1.0");
+		fields.put("status", "NEW");
+		fields.put("priority", "P2");
+		//As GetBug loads it, with no fields changed
+		return new BugFactory().createBug(fields, FieldProjection.ALL);
+	}
+	
+	@Test
+	public void testOnlyChangedFieldsAreSent() {
+		Bug bug = loadBug();
+		bug.setStatus("RESOLVED");
+		bug.setResolution("FIXED");
+		
+		Map<Object, Object> params = new UpdateBug(bug).getParameterMap();
+		Map<Object, Object> expected = new HashMap<Object, Object>();
+		expected.put("ids", 7);
+		expected.put("status", "RESOLVED");
+		expected.put("resolution", "FIXED");
+		assertEquals(expected, params);
+	}
+	
+	@Test
+	public void testUnchangedBugSendsOnlyId() {
+		Map<Object, Object> params = new UpdateBug(loadBug()).getParameterMap();
+		assertEquals(1, params.size());
+		assertEquals(7, params.get("ids"));
+	}
+	
+	@Test
+	public void testClearedResolutionIsNotSent() {
+		Bug bug = loadBug();
+		bug.setStatus("REOPENED");
+		bug.clearResolution();
+		
+		Map<Object, Object> params = new UpdateBug(bug).getParameterMap();
+		assertEquals("REOPENED", params.get("status"));
+		assertFalse(params.containsKey("resolution"));
+	}
+	
+	@Test
+	public void testFactoryBuiltBugSendsItsFields() {
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("id", 7);
+		fields.put("product", "Widgets");
+		fields.put("component", "Frobnicator");
+		fields.put("summary", "Crash on start");
+		fields.put("version", "1.0");
+		Bug bug = new BugFactory().createBug(fields);
+		
+		Map<Object, Object> params = new UpdateBug(bug).getParameterMap();
+		Map<Object, Object> expected = new HashMap<Object, Object>();
+		expected.put("ids", 7);
+		expected.put("product", "Widgets");
+		expected.put("component", "Frobnicator");
+		expected.put("summary", "Crash on start");
+		expected.put("version", "1.0");
+		assertEquals(expected, params);
+	}
+	
+	@Test
+	public void testSuccessMarksFieldsUnchanged() {
+		Bug bug = loadBug();
+		bug.setSummary("Crash on exit");
+		UpdateBug update = new UpdateBug(bug);
+		//As the connector does, build the request before handing over the results
+		update.getParameterMap();
+		
+		Map<Object, Object> hash = new HashMap<Object, Object>();
+		hash.put("bugs", new Object[] { new HashMap<Object, Object>() });
+		update.setResultMap(hash);
+		
+		assertTrue(bug.getChangedFields().isEmpty());
+		assertFalse(update.getParameterMap().containsKey("summary"));
+		assertEquals("Crash on exit", bug.getSummary());
+	}
+	
+	@Test
+	public void testChangesDuringUpdateAreKept() {
+		Bug bug = loadBug();
+		bug.setSummary("Crash on exit");
+		bug.setStatus("ASSIGNED");
+		UpdateBug update = new UpdateBug(bug);
+		update.getParameterMap();
+		
+		//Changed while the update is in flight
+		bug.setStatus("RESOLVED");
+		bug.setPlatform("Linux");
+		
+		Map<Object, Object> hash = new HashMap<Object, Object>();
+		hash.put("bugs", new Object[] { new HashMap<Object, Object>() });
+		update.setResultMap(hash);
+		
+		assertEquals(new HashSet<String>(Arrays.asList("status", "platform")), bug.getChangedFields());
+		Map<Object, Object> params = new UpdateBug(bug).getParameterMap();
+		assertEquals("RESOLVED", params.get("status"));
+		assertEquals("Linux", params.get("platform"));
+		assertFalse(params.containsKey("summary"));
+	}
+
+}